@@ -4,7 +4,9 @@ import static org.basex.core.Text.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.io.*;
@@ -17,6 +19,13 @@ import org.basex.util.list.*;
  * This is the starter class for running the database server. It handles
  * concurrent requests from multiple users.
  *
+ * New connections and idle sessions are observed by a single selector thread, which
+ * also receives the login data of new clients. As soon as the login data is complete,
+ * or as soon as an authenticated client sends a request, its session is passed on to
+ * a worker pool. Hence, the number of threads is independent of the number of open
+ * connections: it grows with the number of pending requests, whereas the number of
+ * concurrent transactions is limited by {@link MainProp#PARALLEL}.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  * @author Andreas Weiler
@@ -31,6 +40,9 @@ public final class BaseXServer extends Main implements Runnable {
 
   /** New sessions. */
   private final HashSet<ClientListener> auth = new HashSet<ClientListener>();
+  /** Idle sessions, which are waiting to be registered by the selector. */
+  private final ConcurrentLinkedQueue<ClientListener> idle =
+    new ConcurrentLinkedQueue<ClientListener>();
   /** Stopped flag. */
   private volatile boolean stopped;
   /** EventsListener. */
@@ -38,7 +50,11 @@ public final class BaseXServer extends Main implements Runnable {
   /** Initial commands. */
   private StringList commands;
   /** Server socket. */
-  private ServerSocket socket;
+  private ServerSocketChannel socket;
+  /** Selector for new connections and idle sessions. */
+  private Selector selector;
+  /** Workers, which process the requests of active sessions. */
+  private ExecutorService workers;
   /** Start as daemon. */
   private boolean service;
 
@@ -100,14 +116,28 @@ public final class BaseXServer extends Main implements Runnable {
       // execute command-line arguments
       for(final String c : commands) execute(c);
 
-      socket = new ServerSocket();
+      selector = Selector.open();
+      socket = ServerSocketChannel.open();
       // reuse address (on non-Windows machines: !Prop.WIN);
-      socket.setReuseAddress(true);
-      socket.bind(new InetSocketAddress(addr, port));
+      socket.socket().setReuseAddress(true);
+      socket.socket().bind(new InetSocketAddress(addr, port));
+      socket.configureBlocking(false);
+      socket.register(selector, SelectionKey.OP_ACCEPT);
       esocket = new ServerSocket();
       esocket.setReuseAddress(true);
       esocket.bind(new InetSocketAddress(addr, eport));
       stop = stopFile(port);
+      // requests waiting for locks must never prevent other requests from being processed
+      workers = new ThreadPoolExecutor(Math.max(mprop.num(MainProp.PARALLEL), 1),
+        Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(final Runnable r) {
+            final Thread t = new Thread(r, Util.name(ClientListener.class));
+            t.setDaemon(true);
+            return t;
+          }
+        });
 
       // show info when server is aborted
       context.log.writeServer(OK, SRV_STARTED_PORT_X, port);
@@ -138,38 +168,53 @@ public final class BaseXServer extends Main implements Runnable {
   @Override
   public void run() {
     running = true;
+    final ArrayList<ClientListener> active = new ArrayList<ClientListener>();
     while(running) {
       try {
-        final Socket s = socket.accept();
-        if(stop.exists()) {
-          if(!stop.delete()) {
-            context.log.writeServer(ERROR_C + Util.info(FILE_NOT_DELETED_X, stop));
+        selector.select();
+
+        // register idle sessions
+        for(ClientListener cl; (cl = idle.poll()) != null;) {
+          try {
+            final SocketChannel ch = cl.channel();
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_READ, cl);
+          } catch(final IOException ex) {
+            // channel has been closed in the meantime
+            cl.quit();
           }
-          quit();
-        } else {
-          // drop inactive connections
-          final long ka = context.mprop.num(MainProp.KEEPALIVE) * 1000L;
-          if(ka > 0) {
-            final long ms = System.currentTimeMillis();
-            for(final ClientListener cs : context.sessions) {
-              if(ms - cs.last > ka) cs.quit();
+        }
+
+        final Set<SelectionKey> keys = selector.selectedKeys();
+        for(final SelectionKey key : keys) {
+          if(!key.isValid()) continue;
+          if(key.isAcceptable()) {
+            accept();
+          } else {
+            // new sessions are activated as soon as their login data is complete
+            final ClientListener cl = (ClientListener) key.attachment();
+            if(cl.ready()) {
+              key.cancel();
+              active.add(cl);
             }
           }
-          final ClientListener cl = new ClientListener(s, context, this);
-          // start authentication timeout
-          final long to = context.mprop.num(MainProp.KEEPALIVE) * 1000L;
-          if(to > 0) {
-            cl.auth.schedule(new TimerTask() {
-              @Override
-              public void run() {
-                cl.quitAuth();
-              }
-            }, to);
-            auth.add(cl);
+        }
+        keys.clear();
+        if(active.isEmpty()) continue;
+
+        // deregister channels of active sessions and pass them on to the workers
+        selector.selectNow();
+        keys.clear();
+        for(final ClientListener cl : active) {
+          try {
+            cl.channel().configureBlocking(true);
+            workers.execute(cl);
+          } catch(final IOException ex) {
+            cl.quit();
           }
-          cl.start();
         }
-      } catch(final SocketException ex) {
+        active.clear();
+      } catch(final ClosedSelectorException ex) {
         break;
       } catch(final Throwable ex) {
         // socket may have been unexpectedly closed
@@ -177,6 +222,69 @@ public final class BaseXServer extends Main implements Runnable {
         break;
       }
     }
+    try {
+      selector.close();
+    } catch(final IOException ex) {
+      context.log.writeError(ex);
+    }
+  }
+
+  /**
+   * Accepts a new connection and registers it for receiving the login data.
+   * @throws IOException I/O exception
+   */
+  private void accept() throws IOException {
+    final SocketChannel ch = socket.accept();
+    if(ch == null) return;
+
+    if(stop.exists()) {
+      if(!stop.delete()) {
+        context.log.writeServer(ERROR_C + Util.info(FILE_NOT_DELETED_X, stop));
+      }
+      ch.close();
+      quit();
+      return;
+    }
+
+    // drop inactive connections
+    final long ka = context.mprop.num(MainProp.KEEPALIVE) * 1000L;
+    if(ka > 0) {
+      final long ms = System.currentTimeMillis();
+      for(final ClientListener cs : context.sessions) {
+        if(ms - cs.last > ka) cs.quit();
+      }
+    }
+    final ClientListener cl = new ClientListener(ch.socket(), context, this);
+    // start authentication timeout
+    final long to = context.mprop.num(MainProp.KEEPALIVE) * 1000L;
+    if(to > 0) {
+      cl.auth.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          cl.quitAuth();
+        }
+      }, to);
+      auth.add(cl);
+    }
+    try {
+      cl.greet();
+      ch.configureBlocking(false);
+      ch.register(selector, SelectionKey.OP_READ, cl);
+    } catch(final IOException ex) {
+      // connection has been closed by the client
+      remove(cl);
+      ch.close();
+    }
+  }
+
+  /**
+   * Registers an idle session. It will be processed again as soon as the client
+   * sends a new request.
+   * @param client client
+   */
+  public void listen(final ClientListener client) {
+    idle.add(client);
+    selector.wakeup();
   }
 
   /**
@@ -207,9 +315,11 @@ public final class BaseXServer extends Main implements Runnable {
       if(console) System.in.close();
       esocket.close();
       socket.close();
+      selector.wakeup();
     } catch(final IOException ex) {
       context.log.writeError(ex);
     }
+    workers.shutdown();
     console = false;
   }
 
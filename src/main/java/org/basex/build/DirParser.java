@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.regex.*;
 import java.util.zip.*;
 
@@ -12,6 +13,8 @@ import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.io.serial.*;
+import org.basex.query.value.node.*;
 import org.basex.util.*;
 import org.basex.util.list.*;
 
@@ -19,6 +22,10 @@ import org.basex.util.list.*;
  * This class recursively scans files and directories and parses all
  * relevant files.
  *
+ * If {@link Prop#PARSETHREADS} is greater than one, files are parsed in parallel
+ * into main memory instances, which are then passed on to the builder in the
+ * order of their input.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
@@ -42,6 +49,12 @@ public final class DirParser extends Parser {
   private final boolean rawParser;
   /** Database path for storing binary files. */
   private final IOFile rawPath;
+  /** Number of threads for parsing files. */
+  private final int threads;
+  /** Files that are parsed in the background, in the order of their input. */
+  private final LinkedList<ParseTask> tasks = new LinkedList<ParseTask>();
+  /** Thread pool for parsing files ({@code null} if files are parsed sequentially). */
+  private ExecutorService exec;
 
   /** Last source. */
   private IO lastSrc;
@@ -64,6 +77,7 @@ public final class DirParser extends Parser {
     archives = prop.is(Prop.ADDARCHIVES);
     addRaw = prop.is(Prop.ADDRAW);
     rawParser = prop.get(Prop.PARSER).toLowerCase(Locale.ENGLISH).equals(DataText.M_RAW);
+    threads = prop.num(Prop.PARSETHREADS);
 
     filter = !source.isDir() && !source.isArchive() ? null :
       Pattern.compile(IOFile.regex(pr.get(Prop.CREATEFILTER)));
@@ -76,7 +90,20 @@ public final class DirParser extends Parser {
   public void parse(final Builder build) throws IOException {
     build.meta.filesize = 0;
     build.meta.original = src.path();
-    parse(build, src);
+    if(threads < 2) {
+      parse(build, src);
+      return;
+    }
+
+    exec = Executors.newFixedThreadPool(threads);
+    try {
+      parse(build, src);
+      while(!tasks.isEmpty()) add(build);
+    } finally {
+      exec.shutdownNow();
+      exec = null;
+      tasks.clear();
+    }
   }
 
   /**
@@ -155,6 +182,10 @@ public final class DirParser extends Parser {
         }
       } else {
         // store input as XML
+        if(exec != null) {
+          parseParallel(b, targ);
+          return;
+        }
         boolean ok = true;
         IO in = src;
         if(skipCorrupt) {
@@ -186,6 +217,56 @@ public final class DirParser extends Parser {
     }
   }
 
+  /**
+   * Parses the current source in the background. If the maximum number of
+   * pending files is reached, the oldest file is added to the database.
+   * @param b builder instance
+   * @param targ target path
+   * @throws IOException I/O exception
+   */
+  private void parseParallel(final Builder b, final String targ) throws IOException {
+    // streams (e.g., archive entries) can only be consumed by the current thread
+    IO in = src;
+    if(in instanceof IOStream) {
+      in = new IOContent(src.read());
+      in.name(src.name());
+    }
+    final ParseTask task = new ParseTask(in, targ);
+    task.result = exec.submit(task);
+    tasks.add(task);
+    if(tasks.size() > threads << 1) add(b);
+  }
+
+  /**
+   * Adds the oldest file that has been parsed in the background.
+   * @param b builder instance
+   * @throws IOException I/O exception
+   */
+  private void add(final Builder b) throws IOException {
+    b.checkStop();
+    final ParseTask task = tasks.removeFirst();
+    final MemData data;
+    try {
+      data = task.result.get();
+    } catch(final InterruptedException ex) {
+      throw new BaseXException(ex);
+    } catch(final ExecutionException ex) {
+      final Throwable cause = ex.getCause();
+      if(!(cause instanceof IOException)) throw new BaseXException(ex);
+      if(!skipCorrupt) throw (IOException) cause;
+      Util.debug(cause);
+      skipped.add(task.input.path());
+      return;
+    }
+
+    // pass on parsed documents to the builder
+    final Serializer ser = new BuilderSerializer(b);
+    final IntList il = data.resources.docs();
+    final int is = il.size();
+    for(int i = 0; i < is; i++) ser.serialize(new DBNode(data, il.get(i)));
+    if(Prop.debug && (++c & 0x3FF) == 0) Util.err(";");
+  }
+
   @Override
   public String info() {
     final TokenBuilder tb = new TokenBuilder();
@@ -219,4 +300,29 @@ public final class DirParser extends Parser {
   public void close() throws IOException {
     if(parser != null) parser.close();
   }
+
+  /** File that is parsed in the background. */
+  private final class ParseTask implements Callable<MemData> {
+    /** Input. */
+    final IO input;
+    /** Target path. */
+    final String target;
+    /** Parsed file. */
+    Future<MemData> result;
+
+    /**
+     * Constructor.
+     * @param in input
+     * @param targ target path
+     */
+    ParseTask(final IO in, final String targ) {
+      input = in;
+      target = targ;
+    }
+
+    @Override
+    public MemData call() throws IOException {
+      return MemBuilder.build("", Parser.singleParser(input, prop, target));
+    }
+  }
 }
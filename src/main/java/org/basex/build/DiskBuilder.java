@@ -15,6 +15,7 @@ import org.basex.io.out.*;
 import org.basex.io.out.DataOutput;
 import org.basex.io.random.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * This class creates a database instance on disk.
@@ -40,6 +41,10 @@ public final class DiskBuilder extends Builder {
   private DataOutput vout;
   /** Output stream for temporary values. */
   private DataOutput sout;
+  /** Dictionary of texts ({@code null} if no dictionary is built). */
+  private Dictionary tdict;
+  /** Dictionary of attribute values ({@code null} if no dictionary is built). */
+  private Dictionary adict;
 
   /** Database context. */
   private final Context context;
@@ -65,6 +70,9 @@ public final class DiskBuilder extends Builder {
     md.filesize = file != null ? file.length() : 0;
     md.time = file != null ? file.timeStamp() : System.currentTimeMillis();
     md.dirty = true;
+    // tables are compressed after all values have been assigned
+    final boolean comp = md.comptable;
+    md.comptable = false;
 
     // calculate optimized output buffer sizes to reduce disk fragmentation
     final Runtime rt = Runtime.getRuntime();
@@ -84,6 +92,10 @@ public final class DiskBuilder extends Builder {
       xout = new DataOutput(md.dbfile(DATATXT), bs);
       vout = new DataOutput(md.dbfile(DATAATV), bs);
       sout = new DataOutput(md.dbfile(DATATMP), bs);
+      if(md.dictionary > 0) {
+        tdict = new Dictionary(md.dictionary);
+        adict = new Dictionary(md.dictionary);
+      }
 
       final Performance perf = Prop.debug ? new Performance() : null;
       Util.debug(tit() + DOTS);
@@ -101,13 +113,37 @@ public final class DiskBuilder extends Builder {
     ta.close();
     in.close();
     md.dbfile(DATATMP).delete();
+    if(comp) compress(md);
 
     // return database instance
-    final DiskData data = new DiskData(md, tags, atts, path, ns);
+    final DiskData data = new DiskData(md, tags, atts, path, ns,
+        tdict != null ? tdict.values : null, adict != null ? adict.values : null);
     data.finishUpdate();
     return data;
   }
 
+  /**
+   * Compresses the table of the specified database.
+   * @param md meta data
+   * @throws IOException I/O exception
+   */
+  private static void compress(final MetaData md) throws IOException {
+    md.comptable = true;
+    final DataInput in = new DataInput(md.dbfile(DATATBL));
+    final TableOutput out = new TableOutput(md, DATATMP);
+    try {
+      for(long l = (long) md.size << IO.NODEPOWER; l > 0; --l) out.write(in.read());
+    } finally {
+      out.close();
+      in.close();
+    }
+    for(final String fn : new String[] { DATATBL, DATATBL + 'i' }) {
+      final IOFile file = md.dbfile(fn);
+      if(!file.delete() || !md.dbfile(fn.replace(DATATBL, DATATMP)).rename(file))
+        throw new BuildException(FILE_NOT_STORED_X, file);
+    }
+  }
+
   @Override
   public void abort() {
     try {
@@ -195,11 +231,62 @@ public final class DiskBuilder extends Builder {
     final long v = Token.toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
 
+    // reference frequent values...
+    final Dictionary dict = text ? tdict : adict;
+    if(dict != null) {
+      final int id = dict.id(value);
+      if(id != 0) return id | IO.OFFDICT;
+    }
+
     // store text
     final DataOutput store = text ? xout : vout;
     final long off = store.size();
+    // bit 37 of the reference is reserved for dictionary ids
+    if(off >= (dict != null ? IO.OFFDICT : IO.OFFCOMP))
+      throw new BuildException(BuildText.LIMITRANGE, parser.detail());
     final byte[] val = COMP.get().pack(value);
     store.writeToken(val);
     return val == value ? off : off | IO.OFFCOMP;
   }
+
+  /** Dictionary of frequent values. */
+  private static final class Dictionary {
+    /** Maximum length of dictionary values. */
+    private static final int MAXLEN = 64;
+    /** Maximum number of values that are counted at the same time. */
+    private static final int MAXCOUNT = 1 << 18;
+    /** Dictionary values. */
+    final TokenSet values = new TokenSet();
+    /** Number of occurrences of values that are not yet in the dictionary. */
+    private TokenIntMap counts = new TokenIntMap();
+    /** Minimum number of occurrences. */
+    private final int min;
+
+    /**
+     * Constructor.
+     * @param m minimum number of occurrences
+     */
+    Dictionary(final int m) {
+      min = m;
+    }
+
+    /**
+     * Counts the specified value and returns its dictionary id. A value is added
+     * to the dictionary as soon as it has occurred the minimum number of times.
+     * @param value value
+     * @return id, or {@code 0} if the value is not (yet) in the dictionary
+     */
+    int id(final byte[] value) {
+      if(value.length > MAXLEN) return 0;
+      final int id = values.id(value);
+      if(id != 0) return id;
+
+      final int c = Math.max(0, counts.get(value)) + 1;
+      if(c >= min) return values.put(value);
+      // values that occur rarely are discarded at some point
+      if(counts.size() >= MAXCOUNT) counts = new TokenIntMap();
+      counts.put(value, c);
+      return 0;
+    }
+  }
 }
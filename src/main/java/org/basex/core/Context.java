@@ -4,6 +4,7 @@ import static org.basex.core.Text.*;
 
 import org.basex.data.*;
 import org.basex.io.random.*;
+import org.basex.query.*;
 import org.basex.query.util.pkg.*;
 import org.basex.server.*;
 import org.basex.util.*;
@@ -38,6 +39,8 @@ public final class Context {
   public final Users users;
   /** Package repository. */
   public final Repo repo;
+  /** Cached queries. */
+  public final QueryCache queries;
   /** Databases list. */
   public final Databases databases;
 
@@ -93,6 +96,7 @@ public final class Context {
     locks = ctx.locks;
     users = ctx.users;
     repo = ctx.repo;
+    queries = ctx.queries;
     log = ctx.log;
   }
 
@@ -111,6 +115,7 @@ public final class Context {
       new ProcLocking(this) : new DBLocking(mp);
     users = new Users(this);
     repo = new Repo(this);
+    queries = new QueryCache();
     log = new Log(this);
     user = users.get(ADMIN);
     listener = null;
@@ -248,6 +253,23 @@ public final class Context {
     if(pr.registered()) locks.downgrade(prepareLock(write, false));
   }
 
+  /**
+   * Suspends a process, which keeps its locks, but will not be counted as running
+   * transaction until it is resumed.
+   * @param pr process
+   */
+  public void suspend(final Proc pr) {
+    if(pr.registered()) locks.suspend(pr);
+  }
+
+  /**
+   * Resumes a suspended process.
+   * @param pr process
+   */
+  public void resume(final Proc pr) {
+    if(pr.registered()) locks.resume(pr);
+  }
+
   /**
    * Unlocks the process and stops the timeout.
    * @param pr process
@@ -257,6 +279,12 @@ public final class Context {
     pr.registered(false);
     locks.release(pr);
     pr.stopTimeout();
+    // acknowledge updates only after they have been flushed: client sessions defer
+    // their responses, which allows subsequent updates to join the pending flush
+    if(pr.updating) {
+      if(listener != null) listener.defer();
+      else dbs.sync();
+    }
   }
 
   /**
@@ -254,6 +254,22 @@ public final class DBLocking implements Locking {
       readLocked.put(thread, newReadObjects);
   }
 
+  @Override
+  public void suspend(final Proc pr) {
+    // allow another transaction to run
+    synchronized(queue) {
+      transactions--;
+      queue.notifyAll();
+    }
+  }
+
+  @Override
+  public void resume(final Proc pr) {
+    synchronized(queue) {
+      transactions++;
+    }
+  }
+
   /**
    * Gets or creates lock on object.
    * @param object to fetch lock for
@@ -73,6 +73,17 @@ public final class Datas {
     return false;
   }
 
+  /**
+   * Waits until the finished updates of all data references have been flushed.
+   */
+  public void sync() {
+    final Data[] data;
+    synchronized(this) {
+      data = list.toArray(new Data[list.size()]);
+    }
+    for(final Data d : data) d.sync();
+  }
+
   /**
    * Closes all data references.
    */
@@ -27,6 +27,20 @@ public interface Locking {
    */
   void downgrade(final StringList write);
 
+  /**
+   * Suspends a transaction. It keeps its locks, but it is not counted as running
+   * transaction until it is resumed.
+   * @param pr process
+   */
+  void suspend(final Proc pr);
+
+  /**
+   * Resumes a suspended transaction. The call does not block, as the transaction
+   * still holds its locks.
+   * @param pr process
+   */
+  void resume(final Proc pr);
+
   /**
    * Unlock all string locked by a transaction.
    * @param pr process
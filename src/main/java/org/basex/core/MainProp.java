@@ -3,6 +3,7 @@ package org.basex.core;
 import java.util.*;
 
 import org.basex.io.*;
+import org.basex.io.random.*;
 
 /**
  * This class assembles admin properties which are used all around the project.
@@ -32,6 +33,8 @@ public final class MainProp extends AProp {
   public static final Object[] LANGKEYS = { "LANGKEYS", false };
   /** Applied locking algorithm: local (database) vs. global (process) locking. */
   public static final Object[] GLOBALLOCK = { "GLOBALLOCK", false };
+  /** Size of the buffer pool, shared by all opened databases (in MB). */
+  public static final Object[] BUFFERPOOL = { "BUFFERPOOL", 32 };
 
   /** Comment: written to property file. */
   public static final Object[] C_CLIENT = { "Client/Server Architecture" };
@@ -48,6 +51,8 @@ public final class MainProp extends AProp {
   public static final Object[] USER = { "USER", "" };
   /** Default password. */
   public static final Object[] PASSWORD = { "PASSWORD", "" };
+  /** Client: compress data that is exchanged with the server. */
+  public static final Object[] COMPRESS = { "COMPRESS", false };
 
   /** Server: host, used for binding the server. Empty string for wildcard.*/
   public static final Object[] SERVERHOST = { "SERVERHOST", "" };
@@ -92,6 +97,7 @@ public final class MainProp extends AProp {
     Prop.language = get(LANG);
     Prop.langkeys = is(LANGKEYS);
     Prop.debug = is(DEBUG);
+    BufferPool.get().size(num(BUFFERPOOL));
     final String ph = get(PROXYHOST);
     final String pp = Integer.toString(num(PROXYPORT));
     AProp.setSystem("http.proxyHost", ph);
@@ -21,7 +21,7 @@ public abstract class Proc {
   /** Indicates if a process is currently registered. */
   private boolean registered;
   /** Stopped flag. */
-  private boolean stopped;
+  private volatile boolean stopped;
   /** Timeout thread. */
   private Thread timeout;
   /** Sub process. */
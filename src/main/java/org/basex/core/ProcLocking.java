@@ -81,6 +81,15 @@ final class ProcLocking implements Locking {
   public void downgrade(final StringList write) {
   }
 
+  @Override
+  public void suspend(final Proc pr) {
+    // readers are counted as long as they hold the global lock
+  }
+
+  @Override
+  public void resume(final Proc pr) {
+  }
+
   @Override
   public void release(final Proc pr) {
     synchronized(mutex) {
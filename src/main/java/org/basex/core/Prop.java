@@ -81,6 +81,14 @@ public final class Prop extends AProp {
   public static final Object[] MAINMEM = { "MAINMEM", false };
   /** Flag for opening a database after creating it. */
   public static final Object[] CREATEONLY = { "CREATEONLY", false };
+  /** Flag for compressing the table of new databases. */
+  public static final Object[] COMPRESSTABLE = { "COMPRESSTABLE", false };
+  /** Minimum number of occurrences of values that are stored in a dictionary. */
+  public static final Object[] DICTIONARY = { "DICTIONARY", 0 };
+  /** Flag for memory-mapping the table of opened databases. */
+  public static final Object[] MMAP = { "MMAP", false };
+  /** Number of table pages that will be read ahead during sequential scans. */
+  public static final Object[] PREFETCH = { "PREFETCH", 0 };
 
   // Parsing
 
@@ -100,6 +108,8 @@ public final class Prop extends AProp {
     "lines=true,separator=comma" };
   /** Cache new documents before adding them to a database. */
   public static final Object[] ADDCACHE = { "ADDCACHE", false };
+  /** Number of threads for parsing the files of a directory. */
+  public static final Object[] PARSETHREADS = { "PARSETHREADS", 1 };
   /** Define TagSoup HTML options. */
   public static final Object[] HTMLOPT = { "HTMLOPT",
     "html=false,omit-xml-declaration=false,method=xml,nons=false,nobogons=false," +
@@ -133,6 +143,11 @@ public final class Prop extends AProp {
   public static final Object[] INDEXSPLITSIZE = { "INDEXSPLITSIZE", 0 };
   /** Maximum number of fulltext index entries to keep in memory during index creation. */
   public static final Object[] FTINDEXSPLITSIZE = { "FTINDEXSPLITSIZE", 0 };
+  /** Main memory (in megabytes) that may be consumed by partial index structures
+   *  during index creation (0: estimated at runtime). */
+  public static final Object[] INDEXMEMORY = { "INDEXMEMORY", 0 };
+  /** Number of threads for creating indexes. */
+  public static final Object[] INDEXTHREADS = { "INDEXTHREADS", 1 };
 
   /** Maximum length of index entries. */
   public static final Object[] MAXLEN = { "MAXLEN", 96 };
@@ -174,6 +189,9 @@ public final class Prop extends AProp {
   public static final Object[] LSERROR = { "LSERROR", 0 };
   /** Number of query executions. */
   public static final Object[] RUNS = { "RUNS", 1 };
+  /** Maximum main memory (in megabytes) for the tuples of an order by clause
+   *  before they are written to temporary files (0: no limit). */
+  public static final Object[] SORTMEMORY = { "SORTMEMORY", 0 };
 
   // Serialize
 
@@ -199,6 +217,8 @@ public final class Prop extends AProp {
 
   /** Flushes the database after each update. */
   public static final Object[] AUTOFLUSH = { "AUTOFLUSH", true };
+  /** Time window (ms) in which the flushes of subsequent updates are combined. */
+  public static final Object[] FLUSHDELAY = { "FLUSHDELAY", 0 };
   /** Writes original files back after updates. */
   public static final Object[] WRITEBACK = { "WRITEBACK", false };
   /** Maximum number of index occurrences to print. */
@@ -1259,6 +1259,10 @@ public interface Text {
 
   /** Info on used main memory. */
   String USED_MEM = lang("used_mem");
+  /** Info on the buffer pool. */
+  String BUFFER_POOL = lang("buffer_pool");
+  /** Info on table read-ahead. */
+  String READ_AHEAD = lang("read_ahead");
   /** Memory information. */
   String TOTAL_MEM_C = lang("total_mem") + COLS;
   /** Memory information. */
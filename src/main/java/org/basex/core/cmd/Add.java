@@ -104,9 +104,12 @@ public final class Add extends ACreate {
       // skip update if fragment is empty
       if(tmp.meta.size > 1) {
         if(lock && !data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
-        data.insert(data.meta.size, -1, new DataClip(tmp));
-        context.update();
-        if(lock) data.finishUpdate();
+        try {
+          data.insert(data.meta.size, -1, new DataClip(tmp));
+          context.update();
+        } finally {
+          if(lock) data.finishUpdate();
+        }
       }
       // return info message
       return info(parser.info() + PATH_ADDED_X_X, name, perf);
@@ -31,20 +31,24 @@ public final class Delete extends ACreate {
     // start update
     if(!data.startUpdate()) return error(DB_PINNED_X, data.meta.name);
 
-    // delete all documents
-    final IntList docs = data.resources.docs(target);
-    final AtomicUpdateList atomics = new AtomicUpdateList(data);
-    for(int d = docs.size() - 1; d >= 0; d--)
-      atomics.addDelete(docs.get(d));
-    atomics.execute(false);
-    context.update();
-
-    // delete binaries
-    final TokenList bins = data.resources.binaries(target);
-    delete(data, target);
-
-    // finish update
-    data.finishUpdate();
+    final IntList docs;
+    final TokenList bins;
+    try {
+      // delete all documents
+      docs = data.resources.docs(target);
+      final AtomicUpdateList atomics = new AtomicUpdateList(data);
+      for(int d = docs.size() - 1; d >= 0; d--)
+        atomics.addDelete(docs.get(d));
+      atomics.execute(false);
+      context.update();
+
+      // delete binaries
+      bins = data.resources.binaries(target);
+      delete(data, target);
+    } finally {
+      // finish update
+      data.finishUpdate();
+    }
 
     // return info message
     return info(RES_DELETED_X_X, docs.size() + bins.size(), perf);
@@ -5,6 +5,7 @@ import static org.basex.core.Text.*;
 import java.io.*;
 
 import org.basex.core.*;
+import org.basex.io.random.*;
 import org.basex.util.*;
 
 /**
@@ -44,6 +45,8 @@ public final class Info extends AInfo {
     if(context.user.has(Perm.CREATE)) {
       Performance.gc(2);
       info(tb, USED_MEM, Performance.getMemory());
+      info(tb, BUFFER_POOL, BufferPool.get());
+      info(tb, READ_AHEAD, Prefetcher.info());
     }
     if(context.user.has(Perm.ADMIN)) {
       final AProp prop = context.mprop;
@@ -69,6 +69,8 @@ public final class InfoDB extends AInfo {
     info(tb, TIMESTAMP, DateTime.format(new Date(meta.time), DateTime.DATETIME));
     info(tb, ENCODING, meta.encoding);
     info(tb, WS_CHOPPING, Util.flag(meta.chop));
+    info(tb, Prop.COMPRESSTABLE[0], Util.flag(meta.comptable));
+    info(tb, Prop.DICTIONARY[0], meta.dictionary);
 
     if(index) {
       tb.add(NL).addExt(header, INDEXES);
@@ -109,6 +109,8 @@ public final class OptimizeAll extends ACreate {
 
     // adopt original meta information
     ctx.prop.set(Prop.CHOP, m.chop);
+    ctx.prop.set(Prop.COMPRESSTABLE, m.comptable);
+    ctx.prop.set(Prop.DICTIONARY, m.dictionary);
     // adopt original index options
     ctx.prop.set(Prop.UPDINDEX, m.updindex);
     ctx.prop.set(Prop.MAXCATS,  m.maxcats);
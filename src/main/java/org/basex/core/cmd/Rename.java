@@ -38,30 +38,33 @@ public final class Rename extends ACreate {
 
     boolean ok = true;
     int c = 0;
-    final IntList docs = data.resources.docs(src);
-    final int ds = docs.size();
-    for(int i = 0; i < ds; i++) {
-      final int pre = docs.get(i);
-      final String target = target(data, pre, src, trg);
-      if(target.isEmpty()) {
-        ok = !info(NAME_INVALID_X, target);
-      } else {
-        data.update(pre, Data.DOC, token(target));
-        c++;
+    try {
+      final IntList docs = data.resources.docs(src);
+      final int ds = docs.size();
+      for(int i = 0; i < ds; i++) {
+        final int pre = docs.get(i);
+        final String target = target(data, pre, src, trg);
+        if(target.isEmpty()) {
+          ok = !info(NAME_INVALID_X, target);
+        } else {
+          data.update(pre, Data.DOC, token(target));
+          c++;
+        }
       }
-    }
 
-    final IOFile file = data.meta.binary(src);
-    if(file != null && file.exists()) {
-      final IOFile target = data.meta.binary(trg);
-      final IOFile trgdir = target.dir();
-      if(!trgdir.exists() && !trgdir.md() || !file.rename(target)) {
-        ok = !info(NAME_INVALID_X, trg);
+      final IOFile file = data.meta.binary(src);
+      if(file != null && file.exists()) {
+        final IOFile target = data.meta.binary(trg);
+        final IOFile trgdir = target.dir();
+        if(!trgdir.exists() && !trgdir.md() || !file.rename(target)) {
+          ok = !info(NAME_INVALID_X, trg);
+        }
+        c++;
       }
-      c++;
+    } finally {
+      // finish update
+      data.finishUpdate();
     }
-    // finish update
-    data.finishUpdate();
 
     // return info message
     return info(RES_RENAMED_X_X, c, perf) && ok;
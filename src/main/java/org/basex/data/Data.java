@@ -53,6 +53,12 @@ import org.basex.util.list.*;
  * - Byte  1- 2:  NAME: Namespace Flag (bit: 15), Name (bits: 14-0)
  * - Byte  3- 7:  TEXT: Attribute value reference
  * - Byte    11:  NURI: Namespace (bits: 7-3)
+ * TEXT REFERENCES (40 bits):
+ * - Bit     39:  Inlined integer (bits: 30-0)
+ * - Bit     38:  Compressed text
+ * - Bit     37:  Dictionary value (id: bits 30-0); only if a dictionary exists,
+ *                otherwise part of the offset
+ * - Bits  36-0:  Offset in text or attribute value file
  * </pre>
  *
  * As all methods of this class are optimized for performance, no checks are
@@ -137,6 +143,18 @@ public abstract class Data {
    */
   public abstract void finishUpdate();
 
+  /**
+   * Waits until all finished updates have been flushed to disk.
+   */
+  public abstract void sync();
+
+  /**
+   * Enables or disables concurrent reads of the table and the text files while an
+   * update operation is running. The database must not be modified meanwhile.
+   * @param on on/off
+   */
+  public abstract void concurrent(final boolean on);
+
   /**
    * Returns the indexed pre references for the specified token.
    * @param token index token reference
@@ -429,6 +447,18 @@ public abstract class Data {
    */
   public abstract byte[] text(int pre, boolean text);
 
+  /**
+   * Returns a view on a text (text, comment, pi) or attribute value.
+   * The view is only valid until the next value is requested by the same thread.
+   * @param pre pre value
+   * @param text text/attribute flag
+   * @param view view to be assigned
+   * @return view
+   */
+  public TokenView text(final int pre, final boolean text, final TokenView view) {
+    return view.set(text(pre, text));
+  }
+
   /**
    * Returns a text (text, comment, pi) or attribute value as integer value.
    * @param pre pre value
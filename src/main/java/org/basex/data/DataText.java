@@ -14,6 +14,9 @@ public interface DataText {
   /** Database version; if it's modified, old database instances can't
    * be parsed anymore. */
   String STORAGE = "7.1";
+  /** Database version of instances with value dictionaries or compressed tables,
+   * which can't be parsed by versions that only support {@link #STORAGE}. */
+  String DSTORAGE = "7.7";
   /** Index version; if it's modified, new indexes can't be parsed anymore
    * by older versions. */
   String ISTORAGE = "7.1";
@@ -38,6 +41,10 @@ public interface DataText {
   String DBCHOP = "CHOPPED";
   /** Path indexing. */
   String DBPTHIDX = "PTHINDEX";
+  /** Compressed table. */
+  String DBCMPTBL = "COMPRESSTABLE";
+  /** Minimum number of occurrences of dictionary values. */
+  String DBDICT = "DICTIONARY";
   /** Automatic index update. */
   String DBUPDIDX = "UPDINDEX";
   /** Text indexing. */
@@ -88,6 +95,10 @@ public interface DataText {
   String DBPATH = "PATH";
   /** Namespace. */
   String DBNS = "NS";
+  /** Dictionary of texts. */
+  String DBTXTDIC = "TXTDIC";
+  /** Dictionary of attribute values. */
+  String DBATVDIC = "ATVDIC";
 
   // DATABASE FILES ===========================================================
 
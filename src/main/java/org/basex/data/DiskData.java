@@ -4,6 +4,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.build.*;
 import org.basex.core.*;
@@ -38,17 +39,47 @@ public final class DiskData extends Data {
       return new Compress();
     }
   };
+  /** Views on texts that are converted to numbers. */
+  private static final ThreadLocal<TokenView> VIEW = new ThreadLocal<TokenView>() {
+    @Override
+    protected TokenView initialValue() {
+      return new TokenView();
+    }
+  };
+  /** Views on compressed texts. */
+  private static final ThreadLocal<TokenView> PACKED = new ThreadLocal<TokenView>() {
+    @Override
+    protected TokenView initialValue() {
+      return new TokenView();
+    }
+  };
+  /** Timer for delayed flushes. */
+  private static final Timer FLUSHER = new Timer(true);
 
   /** Texts access file. */
   private DataAccess texts;
   /** Values access file. */
   private DataAccess values;
+  /** Dictionary of texts ({@code null} if not available). */
+  private TokenSet txtdict;
+  /** Dictionary of attribute values ({@code null} if not available). */
+  private TokenSet atvdict;
   /** Texts buffered for subsequent index updates. */
   private TokenObjMap<IntList> txts;
   /** Attribute values buffered for subsequent index updates. */
   private TokenObjMap<IntList> atvs;
   /** Closed flag. */
   private boolean closed;
+  /** Update flag. */
+  private boolean updating;
+  /** Indicates if a delayed flush has been scheduled. */
+  private boolean scheduled;
+  /** Indicates if a delayed flush is due. */
+  private boolean due;
+  /** Number of finished updates. */
+  private long finished;
+  /** Number of finished updates that have been flushed. */
+  private long flushed;
 
   /**
    * Default constructor, called from {@link Open#open}.
@@ -74,6 +105,8 @@ public final class DiskData extends Data {
         else if(k.equals(DBPATH)) paths = new PathSummary(this, in);
         else if(k.equals(DBNS))   nspaces = new Namespaces(in);
         else if(k.equals(DBDOCS)) resources.read(in);
+        else if(k.equals(DBTXTDIC)) txtdict = new TokenSet(in);
+        else if(k.equals(DBATVDIC)) atvdict = new TokenSet(in);
       }
     } finally {
       in.close();
@@ -99,10 +132,13 @@ public final class DiskData extends Data {
    * @param at attributes
    * @param ps path summary
    * @param n namespaces
+   * @param td dictionary of texts (can be {@code null})
+   * @param ad dictionary of attribute values (can be {@code null})
    * @throws IOException I/O Exception
    */
   public DiskData(final MetaData md, final Names nm, final Names at,
-      final PathSummary ps, final Namespaces n) throws IOException {
+      final PathSummary ps, final Namespaces n, final TokenSet td, final TokenSet ad)
+      throws IOException {
 
     meta = md;
     tagindex = nm;
@@ -110,6 +146,8 @@ public final class DiskData extends Data {
     paths = ps;
     paths.data(this);
     nspaces = n;
+    txtdict = td;
+    atvdict = ad;
     if(meta.updindex) idmap = new IdPreMap(meta.lastid);
     init();
   }
@@ -142,6 +180,14 @@ public final class DiskData extends Data {
       nspaces.write(out);
       out.writeToken(token(DBDOCS));
       resources.write(out);
+      if(txtdict != null) {
+        out.writeToken(token(DBTXTDIC));
+        txtdict.write(out);
+      }
+      if(atvdict != null) {
+        out.writeToken(token(DBATVDIC));
+        atvdict.write(out);
+      }
       out.write(0);
       out.close();
       if(idmap != null) idmap.write(meta.dbfile(DATAIDP));
@@ -166,6 +212,8 @@ public final class DiskData extends Data {
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    flushed = finished;
+    notifyAll();
   }
 
   @Override
@@ -197,16 +245,73 @@ public final class DiskData extends Data {
   }
 
   @Override
-  public boolean startUpdate() {
+  public synchronized boolean startUpdate() {
     final IOFile uf = updateFile();
-    return (uf.exists() || uf.touch()) && table.lock(true);
+    updating = (uf.exists() || uf.touch()) && table.lock(true);
+    return updating;
   }
 
   @Override
   public synchronized void finishUpdate() {
+    updating = false;
     // skip all flush operations if auto flush is off, or file has already been closed
     if(!meta.prop.is(Prop.AUTOFLUSH) || closed) return;
 
+    finished++;
+    // combine flush with the flushes of updates that follow within the time window
+    final int delay = meta.prop.num(Prop.FLUSHDELAY);
+    if(delay > 0 && !due) {
+      if(!scheduled) {
+        scheduled = true;
+        FLUSHER.schedule(new TimerTask() {
+          @Override
+          public void run() {
+            delayedFlush();
+          }
+        }, delay);
+      }
+      return;
+    }
+    flush();
+  }
+
+  @Override
+  public synchronized void sync() {
+    final long f = finished;
+    try {
+      while(flushed < f && !closed) wait();
+    } catch(final InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void concurrent(final boolean on) {
+    if(on) {
+      // buffered texts can only be read by a single thread
+      texts.flush();
+      values.flush();
+    }
+    table.concurrent(on);
+  }
+
+  /**
+   * Performs a delayed flush. If an update is running, the flush will be performed
+   * as soon as it has been finished.
+   */
+  private synchronized void delayedFlush() {
+    scheduled = false;
+    if(closed) return;
+    if(updating) due = true;
+    else flush();
+  }
+
+  /**
+   * Flushes all data structures to disk, releases the exclusive lock and
+   * notifies all threads waiting for the flush.
+   */
+  private void flush() {
+    due = false;
     try {
       write();
       table.flush();
@@ -219,6 +324,8 @@ public final class DiskData extends Data {
     } finally {
       table.lock(false);
     }
+    flushed = finished;
+    notifyAll();
   }
 
   /**
@@ -232,29 +339,40 @@ public final class DiskData extends Data {
   @Override
   public byte[] text(final int pre, final boolean text) {
     final long o = textOff(pre);
-    return num(o) ? token((int) o) : txt(o, text);
+    return num(o) ? token((int) o) : dic(o, text) ? dict(o, text) : txt(o, text);
+  }
+
+  @Override
+  public TokenView text(final int pre, final boolean text, final TokenView view) {
+    final long o = textOff(pre);
+    return num(o) ? view.set(token((int) o)) : dic(o, text) ? view.set(dict(o, text)) :
+      txt(o, text, view);
   }
 
   @Override
   public long textItr(final int pre, final boolean text) {
     final long o = textOff(pre);
-    return num(o) ? o & IO.OFFNUM - 1 : toLong(txt(o, text));
+    return num(o) ? o & IO.OFFNUM - 1 : dic(o, text) ? toLong(dict(o, text)) :
+      txt(o, text, VIEW.get()).toLong();
   }
 
   @Override
   public double textDbl(final int pre, final boolean text) {
     final long o = textOff(pre);
-    return num(o) ? o & IO.OFFNUM - 1 : toDouble(txt(o, text));
+    return num(o) ? o & IO.OFFNUM - 1 : dic(o, text) ? toDouble(dict(o, text)) :
+      txt(o, text, VIEW.get()).toDouble();
   }
 
   @Override
   public int textLen(final int pre, final boolean text) {
     final long o = textOff(pre);
     if(num(o)) return numDigits((int) o);
+    if(dic(o, text)) return dict(o, text).length;
     final DataAccess da = text ? texts : values;
-    final int l = da.readNum(o & IO.OFFCOMP - 1);
+    final long p = o & IO.OFFCOMP - 1;
+    final int l = da.num(p);
     // compressed: next number contains number of compressed bytes
-    return cpr(o) ? da.readNum() : l;
+    return cpr(o) ? da.num(p + Num.length(l)) : l;
   }
 
   /**
@@ -264,10 +382,69 @@ public final class DiskData extends Data {
    * @return text
    */
   private byte[] txt(final long o, final boolean text) {
-    final byte[] txt = (text ? texts : values).readToken(o & IO.OFFCOMP - 1);
+    final byte[] txt = (text ? texts : values).token(o & IO.OFFCOMP - 1);
     return cpr(o) ? COMP.get().unpack(txt) : txt;
   }
 
+  /**
+   * Returns a view on a text (text, comment, pi) or attribute value.
+   * @param o text offset
+   * @param text text or attribute flag
+   * @param view view to be assigned
+   * @return view
+   */
+  private TokenView txt(final long o, final boolean text, final TokenView view) {
+    final DataAccess da = text ? texts : values;
+    final long p = o & IO.OFFCOMP - 1;
+    return cpr(o) ? COMP.get().unpack(da.token(p, PACKED.get()), view) :
+      da.token(p, view);
+  }
+
+  /**
+   * Returns a dictionary value.
+   * @param o text offset
+   * @param text text or attribute flag
+   * @return value
+   */
+  private byte[] dict(final long o, final boolean text) {
+    return (text ? txtdict : atvdict).key((int) (o & IO.OFFDICT - 1));
+  }
+
+  /**
+   * Returns the dictionary id of the specified value.
+   * @param value value
+   * @param text text or attribute flag
+   * @return id, or {@code 0} if the value is not found in the dictionary
+   */
+  private int dictId(final byte[] value, final boolean text) {
+    final TokenSet dict = text ? txtdict : atvdict;
+    return dict != null ? dict.id(value) : 0;
+  }
+
+  /**
+   * Returns true if the specified value references a dictionary value. If no
+   * dictionary exists, the flag is part of the offset.
+   * @param o offset
+   * @param text text or attribute flag
+   * @return result of check
+   */
+  private boolean dic(final long o, final boolean text) {
+    return (o & (IO.OFFNUM | IO.OFFDICT)) == IO.OFFDICT &&
+        (text ? txtdict : atvdict) != null;
+  }
+
+  /**
+   * Checks if the specified offset can be referenced in the table.
+   * @param off offset in the text or attribute value file
+   * @param text text or attribute flag
+   * @return offset
+   */
+  private long offset(final long off, final boolean text) {
+    if(off >= ((text ? txtdict : atvdict) != null ? IO.OFFDICT : IO.OFFCOMP))
+      throw Util.notexpected(Util.info(BuildText.LIMITRANGE, meta.name));
+    return off;
+  }
+
   /**
    * Returns true if the specified value contains a number.
    * @param o offset
@@ -292,8 +469,10 @@ public final class DiskData extends Data {
   protected void delete(final int pre, final boolean text) {
     // old entry (offset or value)
     final long old = textOff(pre);
-    // fill unused space with zero-bytes
-    if(!num(old)) (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    // fill unused space with zero-bytes (dictionary values are shared)
+    if(!num(old) && !dic(old, text)) {
+      (text ? texts : values).free(old & IO.OFFCOMP - 1, 0);
+    }
   }
 
   @Override
@@ -318,19 +497,24 @@ public final class DiskData extends Data {
     final long v = toSimpleInt(value);
     // flag for inlining numeric value
     final boolean vn = v != Integer.MIN_VALUE;
-    // text to be stored (null if value will be inlined)
-    final byte[] vl = vn ? null : COMP.get().pack(value);
+    // dictionary id (0 if value will be stored or inlined)
+    final int di = vn ? 0 : dictId(value, text);
+    // text to be stored (null if value will be inlined or referenced)
+    final byte[] vl = vn || di != 0 ? null : COMP.get().pack(value);
+
+    // reject new entries that could not be referenced
+    if(vl != null) offset(len, text);
 
     // old entry (offset or value)
     final long old = textOff(pre);
     // find text store offset
     final long off;
-    if(num(old)) {
-      // numeric entry: append new entry at the end
+    if(num(old) || dic(old, text)) {
+      // numeric or dictionary entry: append new entry at the end
       off = len;
     } else {
       // text size (0 if value will be inlined)
-      final int l = vn ? 0 : vl.length + Num.length(vl.length);
+      final int l = vl == null ? 0 : vl.length + Num.length(vl.length);
       off = store.free(old & IO.OFFCOMP - 1, l);
     }
 
@@ -338,6 +522,9 @@ public final class DiskData extends Data {
     if(vn) {
       // inline integer value
       textOff(pre, v | IO.OFFNUM);
+    } else if(di != 0) {
+      // reference dictionary value
+      textOff(pre, di | IO.OFFDICT);
     } else {
       store.writeToken(off, vl);
       textOff(pre, vl == value ? off : off | IO.OFFCOMP);
@@ -384,9 +571,12 @@ public final class DiskData extends Data {
     // inline integer value...
     final long v = toSimpleInt(value);
     if(v != Integer.MIN_VALUE) return v | IO.OFFNUM;
+    // reference dictionary value...
+    final int di = dictId(value, kind != ATTR);
+    if(di != 0) return di | IO.OFFDICT;
 
     // store text
-    final long off = store.length();
+    final long off = offset(store.length(), kind != ATTR);
     final byte[] val = COMP.get().pack(value);
     store.writeToken(off, val);
     return val == value ? off : off | IO.OFFCOMP;
@@ -88,6 +88,12 @@ public final class MemData extends Data {
   @Override
   public void finishUpdate() { }
 
+  @Override
+  public void concurrent(final boolean on) { }
+
+  @Override
+  public void sync() { }
+
   @Override
   public byte[] text(final int pre, final boolean text) {
     return ((MemValues) (text ? txtindex : atvindex)).key((int) textOff(pre));
@@ -45,6 +45,10 @@ public final class MetaData {
 
   /** Flag for whitespace chopping. */
   public volatile boolean chop;
+  /** Flag for compressed table blocks. */
+  public volatile boolean comptable;
+  /** Minimum number of occurrences of dictionary values ({@code 0}: no dictionary). */
+  public volatile int dictionary;
   /** Flag for activated automatic index update. */
   public volatile boolean updindex;
   /** Indicates if a text index exists. */
@@ -125,6 +129,8 @@ public final class MetaData {
     prop = pr;
     name = db;
     chop = prop.is(Prop.CHOP);
+    comptable = prop.is(Prop.COMPRESSTABLE);
+    dictionary = prop.num(Prop.DICTIONARY);
     createtext = prop.is(Prop.TEXTINDEX);
     createattr = prop.is(Prop.ATTRINDEX);
     createftxt = prop.is(Prop.FTINDEX);
@@ -280,6 +286,9 @@ public final class MetaData {
    */
   public void read(final DataInput in) throws IOException {
     String storage = "", istorage = "";
+    // tables of databases without compression flag are uncompressed
+    comptable = false;
+    dictionary = 0;
     while(true) {
       final String k = string(in.readToken());
       if(k.isEmpty()) break;
@@ -298,11 +307,13 @@ public final class MetaData {
         else if(k.equals(DBSCTYPE))   scoring    = toInt(v);
         else if(k.equals(DBMAXLEN))   maxlen     = toInt(v);
         else if(k.equals(DBMAXCATS))  maxcats    = toInt(v);
+        else if(k.equals(DBDICT))     dictionary = toInt(v);
         else if(k.equals(DBLASTID))   lastid     = toInt(v);
         else if(k.equals(DBTIME))     time       = toLong(v);
         else if(k.equals(DBFSIZE))    filesize   = toLong(v);
         else if(k.equals(DBFTDC))     diacritics = toBool(v);
         else if(k.equals(DBCHOP))     chop       = toBool(v);
+        else if(k.equals(DBCMPTBL))   comptable  = toBool(v);
         else if(k.equals(DBUPDIDX))   updindex   = toBool(v);
         else if(k.equals(DBTXTIDX))   textindex  = toBool(v);
         else if(k.equals(DBATVIDX))   attrindex  = toBool(v);
@@ -320,8 +331,8 @@ public final class MetaData {
     }
 
     // check version of database storage
-    if(!storage.equals(STORAGE) && new Version(storage).compareTo(new Version(
-        STORAGE)) > 0) throw new BuildException(H_DB_FORMAT, storage);
+    if(!storage.equals(DSTORAGE) && new Version(storage).compareTo(new Version(
+        DSTORAGE)) > 0) throw new BuildException(H_DB_FORMAT, storage);
     // check version of database indexes
     oldindex = !istorage.equals(ISTORAGE) &&
         new Version(istorage).compareTo(new Version(ISTORAGE)) > 0;
@@ -336,7 +347,7 @@ public final class MetaData {
    * @throws IOException I/O Exception
    */
   void write(final DataOutput out) throws IOException {
-    writeInfo(out, DBSTR,      STORAGE);
+    writeInfo(out, DBSTR,      dictionary > 0 || comptable ? DSTORAGE : STORAGE);
     writeInfo(out, DBFNAME,    original);
     writeInfo(out, DBTIME,     time);
     writeInfo(out, IDBSTR,     ISTORAGE);
@@ -345,6 +356,8 @@ public final class MetaData {
     writeInfo(out, DBENC,      encoding);
     writeInfo(out, DBSIZE,     size);
     writeInfo(out, DBCHOP,     chop);
+    writeInfo(out, DBCMPTBL,   comptable);
+    writeInfo(out, DBDICT,     dictionary);
     writeInfo(out, DBUPDIDX,   updindex);
     writeInfo(out, DBTXTIDX,   textindex);
     writeInfo(out, DBATVIDX,   attrindex);
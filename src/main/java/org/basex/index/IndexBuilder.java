@@ -3,6 +3,9 @@ package org.basex.index;
 import static org.basex.core.Text.*;
 
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -22,6 +25,10 @@ public abstract class IndexBuilder extends Proc {
   protected final int size;
   /** Number of index operations to perform before writing a partial index to disk. */
   protected final int splitSize;
+  /** Memory budget for partial index structures in bytes (0: estimated at runtime). */
+  protected final long budget;
+  /** Number of threads for creating the index. */
+  protected final int threads;
 
   /** Runtime for memory consumption. */
   private final Runtime rt = Runtime.getRuntime();
@@ -36,6 +43,8 @@ public abstract class IndexBuilder extends Proc {
   protected int splits;
   /** Threshold for freeing memory when estimating main memory consumption. */
   private int gcCount;
+  /** Number of processed nodes (only used for parallel builds). */
+  private final AtomicInteger processed = new AtomicInteger();
 
   /**
    * Builds the index structure and returns an index instance.
@@ -52,6 +61,77 @@ public abstract class IndexBuilder extends Proc {
     if(Prop.debug && (pre & 0x1FFFFF) == 0) Util.err(".");
   }
 
+  /**
+   * Updates the progress of a parallel build and checks if the command was interrupted.
+   * @param n number of nodes that have been processed since the last call
+   */
+  protected final void check(final int n) {
+    pre = processed.addAndGet(n);
+    check();
+  }
+
+  /**
+   * Returns the number of threads that will be used for building the index.
+   * @param min minimum number of nodes per thread
+   * @return number of threads
+   */
+  protected final int threads(final int min) {
+    return Math.min(threads, Math.max(1, size / min));
+  }
+
+  /**
+   * Partitions the table and indexes the partitions in parallel.
+   * The memory budget is shared by all threads. Each thread reads the table and the
+   * texts via its own cursor; the database is not modified during the build.
+   * @param ts number of threads
+   * @throws IOException I/O exception
+   */
+  protected final void parallel(final int ts) throws IOException {
+    final long max = (budget > 0 ? budget : rt.maxMemory() >> 1) / ts;
+    final ExecutorService exec = Executors.newFixedThreadPool(ts);
+    data.concurrent(true);
+    try {
+      final ArrayList<Future<Object>> results = new ArrayList<Future<Object>>(ts);
+      for(int t = 0; t < ts; t++) {
+        final int start = (int) ((long) size * t / ts);
+        final int end = (int) ((long) size * (t + 1) / ts);
+        results.add(exec.submit(new Callable<Object>() {
+          @Override
+          public Object call() throws IOException {
+            index(start, end, max);
+            return null;
+          }
+        }));
+      }
+      for(final Future<Object> f : results) {
+        try {
+          f.get();
+        } catch(final InterruptedException ex) {
+          throw new BaseXException(ex);
+        } catch(final ExecutionException ex) {
+          final Throwable cause = ex.getCause();
+          if(cause instanceof IOException) throw (IOException) cause;
+          if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+          throw new BaseXException(ex);
+        }
+      }
+    } finally {
+      exec.shutdownNow();
+      data.concurrent(false);
+    }
+  }
+
+  /**
+   * Indexes the specified partition of the table in a parallel build.
+   * All index structures must be written to disk as partial indexes.
+   * @param start first pre value
+   * @param end pre value after the last node
+   * @param max memory budget in bytes
+   * @throws IOException I/O exception
+   */
+  protected abstract void index(final int start, final int end, final long max)
+      throws IOException;
+
   /**
    * Decides whether in-memory temporary index structures are so large
    * that we must flush them to disk before continuing.
@@ -110,6 +190,8 @@ public abstract class IndexBuilder extends Proc {
     data = d;
     size = data.meta.size;
     splitSize = max;
+    budget = (long) d.meta.prop.num(Prop.INDEXMEMORY) << 20;
+    threads = Math.max(1, d.meta.prop.num(Prop.INDEXTHREADS));
     if(rt.totalMemory() - rt.freeMemory() >= maxMem) Performance.gc(1);
   }
 
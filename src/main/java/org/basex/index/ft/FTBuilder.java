@@ -17,18 +17,23 @@ import org.basex.util.list.*;
 /**
  * This class contains common methods for full-text index builders.
  *
+ * <p>If {@link Prop#INDEXTHREADS} is greater than one, the table is partitioned,
+ * and the texts of the partitions are tokenized and indexed in parallel, each
+ * thread using its own lexer. The partial indexes are merged afterwards.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class FTBuilder extends IndexBuilder {
-  /** Value trees. */
-  private final FTIndexTrees tree;
-  /** Word parser. */
-  private final FTLexer lex;
-  /** Current lexer position. */
-  int pos;
-  /** Number of indexed tokens. */
-  private long ntok;
+  /** Estimated memory consumption of a new index entry (without the token itself). */
+  private static final int KEYSIZE = 96;
+  /** Estimated memory consumption of an additional pre/pos pair. */
+  private static final int POSSIZE = 8;
+  /** Minimum number of nodes per thread. */
+  private static final int MINNODES = 1 << 14;
+
+  /** Full-text options. */
+  private final FTOpt fto;
 
   /**
    * Constructor.
@@ -37,10 +42,9 @@ public final class FTBuilder extends IndexBuilder {
    */
   public FTBuilder(final Data d) throws IOException {
     super(d, d.meta.prop.num(Prop.FTINDEXSPLITSIZE));
-    tree = new FTIndexTrees(d.meta.maxlen);
 
     final Prop prop = d.meta.prop;
-    final FTOpt fto = new FTOpt();
+    fto = new FTOpt();
     fto.set(FTFlag.DC, prop.is(Prop.DIACRITICS));
     fto.set(FTFlag.CS, prop.is(Prop.CASESENS));
     fto.set(FTFlag.ST, prop.is(Prop.STEMMING));
@@ -51,8 +55,6 @@ public final class FTBuilder extends IndexBuilder {
       throw new BaseXException(NO_TOKENIZER_X, fto.ln);
     if(prop.is(Prop.STEMMING) && !Stemmer.supportFor(fto.ln))
       throw new BaseXException(NO_STEMMER_X, fto.ln);
-
-    lex = new FTLexer(fto);
   }
 
   /**
@@ -66,33 +68,19 @@ public final class FTBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0xFFFF) == 0) check();
-
-      final int k = data.kind(pre);
-      if(k != Data.TEXT) continue;
-
-      pos = -1;
-      final StopWords sw = lex.ftOpt().sw;
-      lex.init(data.text(pre, true));
-      while(lex.hasNext()) {
-        final byte[] tok = lex.nextToken();
-        ++pos;
-        // skip too long and stopword tokens
-        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
-          // check if main memory is exhausted
-          if((ntok++ & 0x0FFF) == 0 && split()) {
-            writeIndex(true);
-            finishSplit();
-          }
-          tree.index(tok, pre, pos, splits);
-          count++;
-        }
-      }
+    final int ts = threads(MINNODES);
+    if(ts > 1) {
+      // parallel build: all partial indexes are written to disk
+      parallel(ts);
+    } else {
+      index(0, size, budget, false);
     }
 
-    // finalize partial or all index structures
-    write(splits > 0);
+    // merge partial index structures
+    if(splits > 1) {
+      Performance.gc(1);
+      merge();
+    }
 
     data.meta.ftxtindex = true;
     finishIndex(perf);
@@ -104,15 +92,77 @@ public final class FTBuilder extends IndexBuilder {
     return new FTIndex(data);
   }
 
+  @Override
+  protected void index(final int start, final int end, final long max)
+      throws IOException {
+    index(start, end, max, true);
+  }
+
   /**
-   * Writes the index data to disk.
-   * @param partial write partial index
+   * Extracts and indexes the words of the specified range of nodes. Partial indexes
+   * are written to disk if the memory budget is exhausted.
+   * @param start first pre value
+   * @param end pre value after the last node
+   * @param max memory budget in bytes (0: estimate free memory)
+   * @param partial always write partial indexes
    * @throws IOException I/O exception
    */
-  private void write(final boolean partial) throws IOException {
-    writeIndex(partial);
-    if(!partial) return;
+  private void index(final int start, final int end, final long max,
+      final boolean partial) throws IOException {
+
+    // each thread uses its own lexer and index trees; in parallel builds, the table
+    // and the texts are read via thread-local cursors (see IndexBuilder#parallel)
+    final FTLexer lex = new FTLexer(fto);
+    final StopWords sw = fto.sw;
+    final FTIndexTrees tree = new FTIndexTrees(data.meta.maxlen);
+    final boolean par = end - start != size;
+    // number of partial indexes written by this thread
+    int cf = 0;
+    long ntok = 0, cnt = 0, mem = 0;
+    for(int p = start; p < end; ++p) {
+      if((p & 0xFFFF) == 0) {
+        if(par) {
+          check(0x10000);
+        } else {
+          pre = p;
+          check();
+        }
+      }
+      if(data.kind(p) != Data.TEXT) continue;
+
+      int pos = -1;
+      lex.init(data.text(p, true));
+      while(lex.hasNext()) {
+        final byte[] tok = lex.nextToken();
+        ++pos;
+        // skip too long and stopword tokens
+        if(tok.length <= data.meta.maxlen && (sw.isEmpty() || !sw.contains(tok))) {
+          // check if memory budget is exhausted
+          if((ntok++ & 0x0FFF) == 0 &&
+              (splitSize > 0 ? cnt >= splitSize : max > 0 ? mem >= max : split())) {
+            writeIndex(tree, cf++, true);
+            cnt = 0;
+            mem = 0;
+            if(max == 0) finishSplit();
+          }
+          mem += tree.index(tok, p, pos, cf) ? KEYSIZE + tok.length : POSSIZE;
+          cnt++;
+        }
+      }
+    }
+    synchronized(this) {
+      count += cnt;
+    }
+
+    // write remaining index structures
+    writeIndex(tree, cf, partial || cf > 0);
+  }
 
+  /**
+   * Merges the partial index structures.
+   * @throws IOException I/O exception
+   */
+  private void merge() throws IOException {
     // merges temporary index files
     final DataOutput outX = new DataOutput(data.meta.dbfile(DATAFTX + 'x'));
     final DataOutput outY = new DataOutput(data.meta.dbfile(DATAFTX + 'y'));
@@ -154,7 +204,8 @@ public final class FTBuilder extends IndexBuilder {
       // merge and write data size
       outY.write4(merge(outZ, il, v));
     }
-    writeInd(outX, ind, ind.get(ind.size() - 2) + 1, (int) outY.size());
+    writeInd(outX, ind, ind.isEmpty() ? 1 : ind.get(ind.size() - 2) + 1,
+        (int) outY.size());
 
     outX.close();
     outY.close();
@@ -183,12 +234,22 @@ public final class FTBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index to disk.
+   * Writes the specified index trees to disk.
+   * @param tree index trees
+   * @param cf number of partial indexes that have been written from the trees
    * @param partial partial flag
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
-    final String name = DATAFTX + (partial ? splits : "");
+  private void writeIndex(final FTIndexTrees tree, final int cf, final boolean partial)
+      throws IOException {
+
+    // increase split counter
+    final int split;
+    synchronized(this) {
+      split = splits++;
+    }
+
+    final String name = DATAFTX + (partial ? split : "");
     final DataOutput outX = new DataOutput(data.meta.dbfile(name + 'x'));
     final DataOutput outY = new DataOutput(data.meta.dbfile(name + 'y'));
     final DataOutput outZ = new DataOutput(data.meta.dbfile(name + 'z'));
@@ -198,7 +259,7 @@ public final class FTBuilder extends IndexBuilder {
     int tr = 0;
     int j = 0;
     tree.init();
-    while(tree.more(splits)) {
+    while(tree.more(cf)) {
       final FTIndexTree t = tree.nextTree();
       t.next();
       final byte[] key = t.nextTok();
@@ -226,9 +287,6 @@ public final class FTBuilder extends IndexBuilder {
     outY.close();
     outZ.close();
     tree.initFT();
-
-    // increase split counter
-    splits++;
   }
 
   /**
@@ -242,13 +300,22 @@ public final class FTBuilder extends IndexBuilder {
   private static int merge(final DataOutput out, final IntList il, final FTList[] v)
       throws IOException {
 
+    // order lists by their pre values: partial indexes of parallel builds
+    // are not necessarily written in the order of the table partitions
+    final int is = il.size();
+    if(is > 1) {
+      final int[] first = new int[is];
+      for(int j = 0; j < is; ++j) first[j] = v[il.get(j)].prv[0];
+      il.sort(first, true);
+    }
+
     int s = 0;
     final TokenBuilder tbp = new TokenBuilder();
     final TokenBuilder tbo = new TokenBuilder();
     tbp.add(new byte[4]);
     tbo.add(new byte[4]);
     // merge full-text data of all sorted lists with the same token
-    for(int j = 0; j < il.size(); ++j) {
+    for(int j = 0; j < is; ++j) {
       final int m = il.get(j);
       for(final int p : v[m].prv) tbp.add(Num.num(p));
       for(final int p : v[m].pov) tbo.add(Num.num(p));
@@ -32,8 +32,9 @@ final class FTIndexTree extends IndexTree {
    * @param pre pre value for the token
    * @param pos pos value of the token
    * @param cf current file id
+   * @return {@code true} if a new index entry was created
    */
-  void index(final byte[] tok, final int pre, final int pos, final int cf) {
+  boolean index(final byte[] tok, final int pre, final int pos, final int cf) {
     final int os = keys.size();
     final int n = index(tok, pre, cf == 0);
     if(os == keys.size()) {
@@ -41,11 +42,12 @@ final class FTIndexTree extends IndexTree {
       if(poss.size() > i && poss.get(i) != null) {
         poss.set(i, Num.add(poss.get(i), pos));
         numpre.set(i, numpre.get(i) + 1);
-        return;
+        return false;
       }
     }
     poss.add(Num.newNum(pos));
     numpre.add(1);
+    return true;
   }
 
   /**
@@ -28,11 +28,12 @@ final class FTIndexTrees {
    * @param pre pre value for the token
    * @param pos pos value of the token
    * @param cf current file id
+   * @return {@code true} if a new index entry was created
    */
-  void index(final byte[] tok, final int pre, final int pos, final int cf) {
+  boolean index(final byte[] tok, final int pre, final int pos, final int cf) {
     final int tl = tok.length;
     if(trees[tl] == null) trees[tl] = new FTIndexTree();
-    trees[tl].index(tok, pre, pos, cf);
+    return trees[tl].index(tok, pre, pos, cf);
   }
 
   /**
@@ -317,6 +317,7 @@ public class DiskValues implements Index {
   private IndexIterator idRange(final StringRange tok) {
     // check if min and max are positive integers with the same number of digits
     final IntList pres = new IntList();
+    final TokenView tv = new TokenView();
     synchronized(monitor) {
       final int i = get(tok.min);
       final int s = size.get();
@@ -326,7 +327,7 @@ public class DiskValues implements Index {
         final int pre = pre(id);
 
         // value is too large: skip traversal
-        final int d = diff(data.text(pre, text), tok.max);
+        final int d = data.text(pre, text, tv).diff(tok.max);
         if(d > 0 || !tok.mxi && d == 0) break;
         // add pre values
         for(int p = 0; p < ps; ++p) {
@@ -5,6 +5,7 @@ import static org.basex.data.DataText.*;
 import static org.basex.util.Token.*;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.core.*;
 import org.basex.data.*;
@@ -31,12 +32,22 @@ import org.basex.util.list.*;
  * </li>
  * </ul>
  *
+ * <p>If {@link Prop#INDEXTHREADS} is greater than one, the table is partitioned,
+ * and the partitions are indexed in parallel. Partial indexes are written to disk
+ * whenever the memory budget ({@link Prop#INDEXMEMORY}) is exhausted. Finally, all
+ * partial indexes are merged.</p>
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class ValueIndexBuilder extends IndexBuilder {
-  /** Temporary value tree. */
-  private IndexTree index = new IndexTree();
+  /** Estimated memory consumption of a new index key (without the key itself). */
+  private static final int KEYSIZE = 80;
+  /** Estimated memory consumption of an additional id. */
+  private static final int IDSIZE = 4;
+  /** Minimum number of nodes per thread. */
+  private static final int MINNODES = 1 << 16;
+
   /** Index type (attributes/texts). */
   private final boolean text;
 
@@ -58,29 +69,17 @@ public final class ValueIndexBuilder extends IndexBuilder {
     final Performance perf = Prop.debug ? new Performance() : null;
     Util.debug(det());
 
-    final int k = text ? Data.TEXT : Data.ATTR;
-
-    for(pre = 0; pre < size; ++pre) {
-      if((pre & 0x0FFF) == 0) {
-        check();
-        // check if main memory is exhausted
-        if(split()) {
-          writeIndex(true);
-          index = new IndexTree();
-          finishSplit();
-        }
-      }
-      // skip too long values
-      if(data.kind(pre) == k && data.textLen(pre, text) <= data.meta.maxlen) {
-        index.index(data.text(pre, text), data.meta.updindex ? data.id(pre) : pre);
-        count++;
-      }
+    final int ts = threads(MINNODES);
+    if(ts > 1) {
+      // parallel build: all partial indexes are written to disk
+      parallel(ts);
+    } else {
+      final IndexTree index = tree(0, size, budget);
+      writeIndex(index, splits > 0);
     }
 
-    writeIndex(splits > 0);
     // merge partial index structures
     if(splits > 1) {
-      index = null;
       Performance.gc(1);
       merge();
     }
@@ -93,6 +92,60 @@ public final class ValueIndexBuilder extends IndexBuilder {
         new UpdatableDiskValues(data, text) : new DiskValues(data, text);
   }
 
+  @Override
+  protected void index(final int start, final int end, final long max)
+      throws IOException {
+    writeIndex(tree(start, end, max), true);
+  }
+
+  /**
+   * Indexes the values of the specified range of nodes. Partial indexes are
+   * written to disk if the memory budget is exhausted.
+   * @param start first pre value
+   * @param end pre value after the last node
+   * @param max memory budget in bytes (0: estimate free memory)
+   * @return index tree with the remaining values
+   * @throws IOException I/O exception
+   */
+  private IndexTree tree(final int start, final int end, final long max)
+      throws IOException {
+
+    final int k = text ? Data.TEXT : Data.ATTR;
+    final boolean par = end - start != size;
+    IndexTree index = new IndexTree();
+    long cnt = 0, mem = 0;
+    for(int p = start; p < end; ++p) {
+      if((p & 0x0FFF) == 0) {
+        if(par) {
+          check(0x1000);
+        } else {
+          pre = p;
+          check();
+        }
+        // check if memory budget is exhausted
+        if(splitSize > 0 ? cnt >= splitSize : max > 0 ? mem >= max : split()) {
+          writeIndex(index, true);
+          index = new IndexTree();
+          cnt = 0;
+          mem = 0;
+          if(max == 0) finishSplit();
+        }
+      }
+      // skip too long values
+      if(data.kind(p) == k && data.textLen(p, text) <= data.meta.maxlen) {
+        final byte[] key = data.text(p, text);
+        final int is = index.size();
+        index.index(key, data.meta.updindex ? data.id(p) : p);
+        mem += index.size() == is ? IDSIZE : KEYSIZE + key.length;
+        cnt++;
+      }
+    }
+    synchronized(this) {
+      count += cnt;
+    }
+    return index;
+  }
+
   /**
    * Merges cached index files.
    * @throws IOException I/O exception
@@ -103,46 +156,41 @@ public final class ValueIndexBuilder extends IndexBuilder {
     final DataOutput outR = new DataOutput(data.meta.dbfile(f + 'r'));
     outL.write4(0);
 
-    // initialize cached index iterators
-    final IntList ml = new IntList();
+    // initialize cached index iterators, ordered by their current keys
+    final MinHeap<byte[], ValueIndexMerger> heap =
+        new MinHeap<byte[], ValueIndexMerger>(splits, new Comparator<byte[]>() {
+          @Override
+          public int compare(final byte[] k1, final byte[] k2) {
+            return diff(k1, k2);
+          }
+        });
+    for(int i = 0; i < splits; ++i) {
+      final ValueIndexMerger vm = new ValueIndexMerger(data, text, i);
+      if(vm.values.length != 0) heap.insert(vm.key, vm);
+    }
+    final ArrayList<ValueIndexMerger> ml = new ArrayList<ValueIndexMerger>();
     final IntList il = new IntList();
-    final ValueIndexMerger[] vm = new ValueIndexMerger[splits];
-    for(int i = 0; i < splits; ++i) vm[i] = new ValueIndexMerger(data, text, i);
     int sz = 0;
 
     // parse through all values
-    while(true) {
+    while(!heap.isEmpty()) {
       checkStop();
 
-      // find first index which is not completely parsed yet
-      int min = -1;
-      while(++min < splits && vm[min].values.length == 0);
-      if(min == splits) break;
-
-      // find index entry with smallest key
-      ml.reset();
-      for(int i = min; i < splits; ++i) {
-        if(vm[i].values.length == 0) continue;
-        final int d = diff(vm[min].key, vm[i].key);
-        if(d < 0) continue;
-        if(d > 0) {
-          min = i;
-          ml.reset();
-        }
-        ml.add(i);
-      }
-
-      // parse through all values, cache and sort id values
-      final int ms = ml.size();
-      for(int m = 0; m < ms; ++m) {
-        final ValueIndexMerger t = vm[ml.get(m)];
+      // cache id values of all index entries with the smallest key
+      final byte[] key = heap.minValue().key;
+      do {
+        final ValueIndexMerger t = heap.removeMin();
         final int vl = t.values.length;
         for(int l = 4, v; l < vl; l += Num.length(v)) {
           v = Num.get(t.values, l);
           il.add(v);
         }
         t.next();
-      }
+        if(t.values.length != 0) ml.add(t);
+      } while(!heap.isEmpty() && eq(heap.minValue().key, key));
+      for(final ValueIndexMerger t : ml) heap.insert(t.key, t);
+      ml.clear();
+
       // write final structure to disk
       write(outL, outR, il);
       ++sz;
@@ -159,13 +207,22 @@ public final class ValueIndexBuilder extends IndexBuilder {
   }
 
   /**
-   * Writes the current index tree to disk.
+   * Writes the specified index tree to disk.
+   * @param index index tree
    * @param partial partial flag
    * @throws IOException I/O exception
    */
-  private void writeIndex(final boolean partial) throws IOException {
+  private void writeIndex(final IndexTree index, final boolean partial)
+      throws IOException {
+
+    // increase split counter
+    final int split;
+    synchronized(this) {
+      split = splits++;
+    }
+
     // write id arrays and references
-    final String name = (text ? DATATXT : DATAATV) + (partial ? splits : "");
+    final String name = (text ? DATATXT : DATAATV) + (partial ? split : "");
     final DataOutput outL = new DataOutput(data.meta.dbfile(name + 'l'));
     final DataOutput outR = new DataOutput(data.meta.dbfile(name + 'r'));
     outL.write4(index.size());
@@ -199,8 +256,6 @@ public final class ValueIndexBuilder extends IndexBuilder {
       while(index.more()) outT.writeToken(index.keys.get(index.next()));
       outT.close();
     }
-    // increase split counter
-    splits++;
   }
 
   /**
@@ -67,8 +67,10 @@ public abstract class IO {
   public static final String[] TXTSUFFIXES = {
     ".txt", ".text", ".ini", ".conf", ".md", ".log" };
 
+  /** Disk block/page size power (12). */
+  public static final int BLOCKPOWER = 12;
   /** Disk block/page size (4096). */
-  public static final int BLOCKSIZE = 1 << 12;
+  public static final int BLOCKSIZE = 1 << BLOCKPOWER;
   /** Table node size power (4). */
   public static final int NODEPOWER = 4;
   /** Table node size power (16). */
@@ -82,6 +84,8 @@ public abstract class IO {
   public static final long OFFNUM = 0x8000000000L;
   /** Offset for compressing texts (see bit layout in {@link Data} class). */
   public static final long OFFCOMP = 0x4000000000L;
+  /** Offset for referencing dictionary values (see bit layout in {@link Data} class). */
+  public static final long OFFDICT = 0x2000000000L;
 
   /** File path. The path uses forward slashes, no matter which OS is used. */
   String path;
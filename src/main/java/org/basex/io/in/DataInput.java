@@ -137,7 +137,7 @@ public final class DataInput extends BufferInput {
    * @return read value
    * @throws IOException I/O Exception
    */
-  long read8() throws IOException {
+  public long read8() throws IOException {
     return ((long) read() << 56) + ((long) (read() & 255) << 48)
         + ((long) (read() & 255) << 40) + ((long) (read() & 255) << 32)
         + ((long) (read() & 255) << 24) + ((read() & 255) << 16)
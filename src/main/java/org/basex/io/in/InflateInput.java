@@ -0,0 +1,119 @@
+package org.basex.io.in;
+
+import java.io.*;
+import java.util.zip.*;
+
+import org.basex.io.out.*;
+
+/**
+ * This class decompresses the blocks of an input stream that have been compressed
+ * by {@link DeflateOutput}. Blocks with sizes that exceed the limits of
+ * {@link DeflateOutput} are rejected.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class InflateInput extends InputStream {
+  /** Input stream. */
+  private final InputStream input;
+  /** Inflater. */
+  private final Inflater inflater = new Inflater();
+  /** Buffer with decompressed bytes. */
+  private byte[] buffer = new byte[0];
+  /** Buffer with compressed bytes. */
+  private byte[] data = new byte[0];
+  /** Number of decompressed bytes. */
+  private int size;
+  /** Current buffer position. */
+  private int pos;
+
+  /**
+   * Constructor.
+   * @param in input stream to be wrapped
+   */
+  public InflateInput(final InputStream in) {
+    input = in;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return pos < size || inflate() ? buffer[pos++] & 0xFF : -1;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if(len == 0) return 0;
+    if(pos == size && !inflate()) return -1;
+    final int n = Math.min(len, size - pos);
+    System.arraycopy(buffer, pos, b, off, n);
+    pos += n;
+    return n;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return size - pos + input.available();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      input.close();
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Reads and decompresses the next block.
+   * @return {@code false} if the end of the stream has been reached
+   * @throws IOException I/O exception
+   */
+  private boolean inflate() throws IOException {
+    final int b = input.read();
+    if(b == -1) return false;
+    final int s = b << 24 | readInt(3);
+    final int c = readInt(4);
+    if(s <= 0 || s > DeflateOutput.MAX || c <= 0 || c > DeflateOutput.MAXCOMP)
+      throw new IOException("Invalid size of compressed block: " + s + '/' + c);
+    if(s > buffer.length) buffer = new byte[s];
+    if(c > data.length) data = new byte[c];
+    for(int o = 0; o < c;) {
+      final int r = input.read(data, o, c - o);
+      if(r == -1) throw new EOFException();
+      o += r;
+    }
+    inflater.reset();
+    inflater.setInput(data, 0, c);
+    try {
+      for(int o = 0; o < s;) {
+        final int r = inflater.inflate(buffer, o, s - o);
+        if(r == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new IOException("Compressed block is incomplete.");
+        }
+        o += r;
+      }
+    } catch(final DataFormatException ex) {
+      throw new IOException(ex.getMessage());
+    }
+    size = s;
+    pos = 0;
+    return true;
+  }
+
+  /**
+   * Reads an integer value.
+   * @param n number of bytes to read
+   * @return value
+   * @throws IOException I/O exception
+   */
+  private int readInt(final int n) throws IOException {
+    int v = 0;
+    for(int i = 0; i < n; i++) {
+      final int b = input.read();
+      if(b == -1) throw new EOFException();
+      v = v << 8 | b;
+    }
+    return v;
+  }
+}
@@ -0,0 +1,106 @@
+package org.basex.io.out;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * This class compresses the bytes of an output stream. Bytes are buffered and
+ * deflated when the buffer is full or when the stream is flushed. Each compressed
+ * block is sent as {@code {raw length}{compressed length}{data}}, with both lengths
+ * being represented as four bytes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class DeflateOutput extends OutputStream {
+  /** Maximum size of an uncompressed block. */
+  public static final int MAX = 1 << 16;
+  /** Maximum size of a compressed block (incl. overhead of incompressible data). */
+  public static final int MAXCOMP = MAX + (MAX >>> 8) + 64;
+
+  /** Output stream. */
+  private final OutputStream os;
+  /** Deflater. */
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  /** Buffer with uncompressed bytes. */
+  private final byte[] buffer = new byte[MAX];
+  /** Buffer with compressed bytes. */
+  private byte[] data = new byte[1 << 12];
+  /** Number of buffered bytes. */
+  private int size;
+
+  /**
+   * Constructor.
+   * @param out output stream to be wrapped
+   */
+  public DeflateOutput(final OutputStream out) {
+    os = out;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if(size == buffer.length) deflate();
+    buffer[size++] = (byte) b;
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    for(int o = off, l = len; l > 0;) {
+      if(size == buffer.length) deflate();
+      final int n = Math.min(l, buffer.length - size);
+      System.arraycopy(b, o, buffer, size, n);
+      size += n;
+      o += n;
+      l -= n;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    deflate();
+    os.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+      os.close();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Compresses and sends the buffered bytes.
+   * @throws IOException I/O exception
+   */
+  private void deflate() throws IOException {
+    if(size == 0) return;
+    deflater.reset();
+    deflater.setInput(buffer, 0, size);
+    deflater.finish();
+    int c = 0;
+    while(!deflater.finished()) {
+      if(c == data.length) data = Arrays.copyOf(data, c << 1);
+      c += deflater.deflate(data, c, data.length - c);
+    }
+    writeInt(size);
+    writeInt(c);
+    os.write(data, 0, c);
+    size = 0;
+  }
+
+  /**
+   * Writes an integer value.
+   * @param v value
+   * @throws IOException I/O exception
+   */
+  private void writeInt(final int v) throws IOException {
+    os.write(v >>> 24);
+    os.write(v >>> 16);
+    os.write(v >>> 8);
+    os.write(v);
+  }
+}
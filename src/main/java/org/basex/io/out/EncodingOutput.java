@@ -9,6 +9,9 @@ import java.io.*;
  * <li>{@code 0x00} and {@code 0xFF} are prefixed with {@code 0xFF}</li>
  * <li>{@code 0x00} is sent to indicate the end of a stream</li>
  * </ul>
+ * The wrapped stream is expected to be buffered. It will not be flushed by this
+ * class, as the end of the stream and the rest of the response still need to be
+ * sent by the caller.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -31,11 +34,6 @@ public final class EncodingOutput extends OutputStream {
     os.write(b);
   }
 
-  @Override
-  public void flush() throws IOException {
-    os.flush();
-  }
-
   @Override
   public void close() throws IOException {
     os.close();
@@ -53,7 +53,9 @@ public class PrintOutput extends OutputStream {
       new PrintOutput(
           out instanceof ByteArrayOutputStream ||
           out instanceof BufferedOutputStream ||
-          out instanceof BufferOutput ? out : new BufferOutput(out));
+          out instanceof BufferOutput ||
+          out instanceof DeflateOutput ||
+          out instanceof EncodingOutput ? out : new BufferOutput(out));
   }
 
   @Override
@@ -1,13 +1,17 @@
 package org.basex.io.out;
 
 import java.io.*;
+import java.util.*;
 
 import org.basex.data.*;
 import org.basex.io.*;
+import org.basex.util.*;
 import org.basex.util.list.*;
 
 /**
  * This class allows a blockwise output of the database table.
+ * If {@link MetaData#comptable} is set, the blocks will be compressed, and
+ * a slot directory will be appended to the index file.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
@@ -20,6 +24,10 @@ public final class TableOutput extends OutputStream {
   private final IntList fpres = new IntList();
   /** Index entries. */
   private final IntList pages = new IntList();
+  /** Slot sizes of compressed blocks ({@code null} if blocks are not compressed). */
+  private final IntList slots;
+  /** Buffer for compressed blocks. */
+  private final byte[] packed;
 
   /** The underlying output stream. */
   private final OutputStream os;
@@ -44,6 +52,8 @@ public final class TableOutput extends OutputStream {
     os = new FileOutputStream(md.dbfile(fn).file());
     meta = md;
     file = fn;
+    slots = md.comptable ? new IntList() : null;
+    packed = md.comptable ? new byte[2 + LZ4.max(IO.BLOCKSIZE)] : null;
   }
 
   @Override
@@ -55,7 +65,17 @@ public final class TableOutput extends OutputStream {
   @Override
   public void flush() throws IOException {
     if(pos == 0) return;
-    os.write(buffer);
+    if(slots != null) {
+      // unused bytes of the last block are compressed as well
+      Arrays.fill(buffer, pos, IO.BLOCKSIZE, (byte) 0);
+      final int len = LZ4.compress(buffer, IO.BLOCKSIZE, packed, 2);
+      packed[0] = (byte) (len >>> 8);
+      packed[1] = (byte) len;
+      os.write(packed, 0, len + 2);
+      slots.add(len + 2);
+    } else {
+      os.write(buffer);
+    }
     fpres.add(fpre);
     pages.add(pages.size());
     fpre += pos >>> IO.NODEPOWER;
@@ -75,6 +95,15 @@ public final class TableOutput extends OutputStream {
       out.writeNum(empty ? 0 : pages.size());
       out.writeNums(fpres.toArray());
       out.writeNums(pages.toArray());
+      if(slots != null) {
+        // empty page map, followed by slot offsets and sizes
+        out.writeNum(0);
+        final int sl = slots.size();
+        final long[] offsets = new long[sl];
+        for(int s = 1; s < sl; s++) offsets[s] = offsets[s - 1] + slots.get(s - 1);
+        out.writeLongs(offsets);
+        out.writeNums(slots.toArray());
+      }
     } finally {
       out.close();
     }
@@ -15,4 +15,17 @@ final class Buffer {
   long pos = -1;
   /** Dirty flag. */
   boolean dirty;
+
+  /** Buffer manager of the file this buffer is assigned to ({@code null} if unused). */
+  Buffers owner;
+  /** Next buffer in the hash bucket of the buffer pool. */
+  Buffer link;
+  /** Previous buffer in the eviction queue. */
+  Buffer prev;
+  /** Next buffer in the eviction queue. */
+  Buffer next;
+  /** Flag for buffers that are stored in the queue of frequently used buffers. */
+  boolean hot;
+  /** Flag for buffers the contents of which are still being read by their owner. */
+  volatile boolean filling;
 }
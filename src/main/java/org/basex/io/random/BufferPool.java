@@ -0,0 +1,394 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class provides a buffer pool, which is shared by all files that are accessed
+ * via {@link DataAccess} and {@link TableDiskAccess}. Its size is specified via
+ * {@link MainProp#BUFFERPOOL}.
+ *
+ * Buffers are evicted by a simplified 2Q strategy: blocks that are requested for the
+ * first time are placed in a FIFO queue, and only blocks that are requested again
+ * are moved to the LRU queue of frequently used blocks. This way, sequential scans
+ * will not displace the frequently accessed blocks of other files.
+ *
+ * Files that are read without locking copy blocks from the pool, and they add the
+ * blocks they had to read from disk.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPool {
+  /** Singleton instance. */
+  private static final BufferPool INSTANCE = new BufferPool();
+
+  /** FIFO queue of blocks that have been requested once. */
+  private final Queue recent = new Queue();
+  /** LRU queue of frequently requested blocks. */
+  private final Queue frequent = new Queue();
+  /** Keys of blocks that have recently been evicted from the FIFO queue. */
+  private final LinkedHashSet<Long> ghosts = new LinkedHashSet<Long>();
+  /** Hash buckets. */
+  private Buffer[] buckets = new Buffer[1 << 4];
+
+  /** Maximum number of buffers. */
+  private int capacity;
+  /** Number of allocated buffers. */
+  private int size;
+  /** Id counter. */
+  private int ids;
+  /** Number of cache hits. */
+  private long hits;
+  /** Number of cache misses. */
+  private long misses;
+
+  /**
+   * Constructor.
+   */
+  private BufferPool() {
+    size((Integer) MainProp.BUFFERPOOL[1]);
+  }
+
+  /**
+   * Returns the singleton instance.
+   * @return instance
+   */
+  public static BufferPool get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Assigns the size of the buffer pool. If the pool is shrunk,
+   * unused buffers will be evicted.
+   * @param mb size in megabytes
+   */
+  public synchronized void size(final int mb) {
+    capacity = Math.max(1, (int) ((long) Math.max(0, mb) << 20 >>> IO.BLOCKPOWER));
+    while(size > capacity) {
+      final Buffer b = victim();
+      if(b == null) break;
+      evict(b);
+      --size;
+    }
+  }
+
+  /**
+   * Returns the number of cache hits.
+   * @return hits
+   */
+  public synchronized long hits() {
+    return hits;
+  }
+
+  /**
+   * Returns the number of cache misses.
+   * @return misses
+   */
+  public synchronized long misses() {
+    return misses;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return Util.info("% buffers, % hits, % misses", size, hits, misses);
+  }
+
+  // PACKAGE METHODS ==========================================================
+
+  /**
+   * Returns a new id for a buffer manager.
+   * @return id
+   */
+  synchronized int id() {
+    return ids++;
+  }
+
+  /**
+   * Assigns a buffer for the specified position as current buffer of the specified
+   * buffer manager.
+   * @param owner buffer manager
+   * @param pos buffer position
+   * @return {@code true} if a new buffer has been assigned, the contents of which
+   * need to be read by the caller
+   */
+  synchronized boolean cursor(final Buffers owner, final long pos) {
+    final int h = hash(owner, pos);
+    for(Buffer b = buckets[h]; b != null; b = b.link) {
+      if(b.owner == owner && b.pos == pos) {
+        // 2Q: only blocks in the queue of frequently used blocks are reordered
+        if(b.hot) frequent.touch(b);
+        owner.current = b;
+        ++hits;
+        return false;
+      }
+    }
+    ++misses;
+    final Buffer b = assign(owner, pos);
+    b.filling = true;
+    owner.current = b;
+    return true;
+  }
+
+  /**
+   * Copies the contents of the buffer for the specified position to the specified
+   * array. The current buffer of the buffer manager will not be changed, and buffers
+   * that are still being filled by the buffer manager will be ignored.
+   * @param owner buffer manager
+   * @param pos buffer position
+   * @param data target array
+   * @return {@code true} if the buffer was found
+   */
+  synchronized boolean copy(final Buffers owner, final long pos, final byte[] data) {
+    for(Buffer b = buckets[hash(owner, pos)]; b != null; b = b.link) {
+      if(b.owner == owner && b.pos == pos && !b.filling) {
+        if(b.hot) frequent.touch(b);
+        System.arraycopy(b.data, 0, data, 0, data.length);
+        ++hits;
+        return true;
+      }
+    }
+    ++misses;
+    return false;
+  }
+
+  /**
+   * Adds a buffer with the specified contents, unless the position is already
+   * buffered. The current buffer of the buffer manager will not be changed.
+   * @param owner buffer manager
+   * @param pos buffer position
+   * @param data buffer contents
+   */
+  synchronized void add(final Buffers owner, final long pos, final byte[] data) {
+    for(Buffer b = buckets[hash(owner, pos)]; b != null; b = b.link) {
+      if(b.owner == owner && b.pos == pos) return;
+    }
+    System.arraycopy(data, 0, assign(owner, pos).data, 0, data.length);
+  }
+
+  /**
+   * Writes all dirty buffers of the specified buffer manager.
+   * @param owner buffer manager
+   * @throws IOException I/O exception
+   */
+  synchronized void flush(final Buffers owner) throws IOException {
+    for(final Buffer bucket : buckets) {
+      for(Buffer b = bucket; b != null; b = b.link) {
+        if(b.owner == owner && b.dirty) owner.write(b);
+      }
+    }
+  }
+
+  /**
+   * Releases all buffers of the specified buffer manager.
+   * The current buffer will be detached from the pool, but remains accessible.
+   * @param owner buffer manager
+   */
+  synchronized void release(final Buffers owner) {
+    final int bl = buckets.length;
+    for(int i = 0; i < bl; i++) {
+      Buffer prev = null;
+      for(Buffer b = buckets[i], next; b != null; b = next) {
+        next = b.link;
+        if(b.owner == owner) {
+          if(prev == null) buckets[i] = b.link;
+          else prev.link = b.link;
+          (b.hot ? frequent : recent).remove(b);
+          b.link = null;
+          if(b != owner.current) {
+            b.owner = null;
+            b.pos = -1;
+          }
+          --size;
+        } else {
+          prev = b;
+        }
+      }
+    }
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Assigns a buffer to the specified position.
+   * @param owner buffer manager
+   * @param pos buffer position
+   * @return buffer
+   */
+  private Buffer assign(final Buffers owner, final long pos) {
+    // choose buffer: allocate new one or evict existing one
+    Buffer b = size < capacity ? null : victim();
+    if(b == null) {
+      b = new Buffer();
+      if(++size > buckets.length >>> 1) rehash();
+    } else {
+      evict(b);
+    }
+
+    // blocks that have recently been evicted are considered to be frequently used
+    b.owner = owner;
+    b.pos = pos;
+    b.hot = ghosts.remove(key(owner, pos));
+    (b.hot ? frequent : recent).add(b);
+    final int h = hash(owner, pos);
+    b.link = buckets[h];
+    buckets[h] = b;
+    return b;
+  }
+
+  /**
+   * Chooses a buffer to be evicted. The current buffers of all files are skipped.
+   * @return buffer, or {@code null} if all buffers are in use
+   */
+  private Buffer victim() {
+    Buffer b = recent.size > capacity >>> 2 ? recent.oldest() : null;
+    if(b == null) b = frequent.oldest();
+    if(b == null) b = recent.oldest();
+    return b;
+  }
+
+  /**
+   * Evicts the specified buffer. Dirty buffers are written back to their file.
+   * @param b buffer
+   */
+  private void evict(final Buffer b) {
+    final Buffers owner = b.owner;
+    if(b.dirty) {
+      try {
+        owner.write(b);
+      } catch(final IOException ex) {
+        Util.stack(ex);
+      }
+    }
+
+    // remove buffer from hash bucket
+    final int h = hash(owner, b.pos);
+    if(buckets[h] == b) {
+      buckets[h] = b.link;
+    } else {
+      Buffer p = buckets[h];
+      while(p.link != b) p = p.link;
+      p.link = b.link;
+    }
+    b.link = null;
+
+    if(b.hot) {
+      frequent.remove(b);
+    } else {
+      recent.remove(b);
+      // remember evicted block
+      ghosts.add(key(owner, b.pos));
+      final Iterator<Long> it = ghosts.iterator();
+      for(int g = ghosts.size() - (capacity >>> 1); g > 0; g--) {
+        it.next();
+        it.remove();
+      }
+    }
+    b.owner = null;
+    b.pos = -1;
+  }
+
+  /**
+   * Doubles the number of hash buckets.
+   */
+  private void rehash() {
+    final Buffer[] old = buckets;
+    buckets = new Buffer[old.length << 1];
+    for(Buffer b : old) {
+      while(b != null) {
+        final Buffer n = b.link;
+        final int h = hash(b.owner, b.pos);
+        b.link = buckets[h];
+        buckets[h] = b;
+        b = n;
+      }
+    }
+  }
+
+  /**
+   * Returns the hash bucket for the specified buffer.
+   * @param owner buffer manager
+   * @param pos buffer position
+   * @return hash bucket
+   */
+  private int hash(final Buffers owner, final long pos) {
+    final long k = key(owner, pos);
+    final int h = (int) (k ^ k >>> 32) * 0x9E3779B9;
+    return (h ^ h >>> 16) & buckets.length - 1;
+  }
+
+  /**
+   * Returns a key for the specified buffer.
+   * @param owner buffer manager
+   * @param pos buffer position
+   * @return key
+   */
+  private static long key(final Buffers owner, final long pos) {
+    return pos * 31 + owner.id;
+  }
+
+  /**
+   * Doubly linked queue of buffers. New buffers are added as head, old buffers
+   * are found at the tail.
+   */
+  private static final class Queue {
+    /** Sentinel. */
+    private final Buffer sentinel = new Buffer();
+    /** Number of entries. */
+    private int size;
+
+    /** Constructor. */
+    Queue() {
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+    }
+
+    /**
+     * Adds a buffer as new head.
+     * @param b buffer
+     */
+    void add(final Buffer b) {
+      b.next = sentinel.next;
+      b.prev = sentinel;
+      sentinel.next.prev = b;
+      sentinel.next = b;
+      ++size;
+    }
+
+    /**
+     * Removes a buffer.
+     * @param b buffer
+     */
+    void remove(final Buffer b) {
+      b.prev.next = b.next;
+      b.next.prev = b.prev;
+      b.prev = null;
+      b.next = null;
+      --size;
+    }
+
+    /**
+     * Moves a buffer to the head of the queue.
+     * @param b buffer
+     */
+    void touch(final Buffer b) {
+      remove(b);
+      add(b);
+    }
+
+    /**
+     * Returns the oldest buffer that is not the current buffer of its file.
+     * @return buffer or {@code null}
+     */
+    Buffer oldest() {
+      for(Buffer b = sentinel.prev; b != sentinel; b = b.prev) {
+        if(b.owner.current != b) return b;
+      }
+      return null;
+    }
+  }
+}
@@ -1,32 +1,42 @@
 package org.basex.io.random;
 
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
 /**
- * This class provides a simple, clock-based buffer management.
+ * This class manages the buffers of a single file. The buffers are requested
+ * from the process-wide {@link BufferPool}. The current buffer of a file will
+ * never be evicted by the pool.
+ *
+ * Blocks are read and written at the file offsets that result from their positions.
+ * Subclasses may store blocks in a different representation.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
-final class Buffers {
-  /** Number of buffers (must be 1 << n). */
-  private static final int BUFFERS = 1 << 4;
-  /** Buffers. */
-  private final Buffer[] buf = new Buffer[BUFFERS];
-  /** Current buffer offset. */
-  private int off;
+class Buffers {
+  /** Buffer pool. */
+  final BufferPool pool = BufferPool.get();
+  /** Unique id (used for hashing). */
+  final int id = pool.id();
+  /** File channel. */
+  final FileChannel channel;
+  /** Power for computing file offsets from buffer positions. */
+  private final int power;
+  /** Current buffer (assigned by the buffer pool). */
+  Buffer current;
 
   /**
    * Constructor.
+   * @param file file to which buffers will be written back
+   * @param pw power for computing file offsets from buffer positions
+   * ({@code 0} if buffer positions represent file offsets)
    */
-  Buffers() {
-    for(int b = 0; b < BUFFERS; ++b) buf[b] = new Buffer();
-  }
-
-  /**
-   * Returns all buffers.
-   * @return buffers
-   */
-  Buffer[] all() {
-    return buf;
+  Buffers(final RandomAccessFile file, final int pw) {
+    channel = file.getChannel();
+    power = pw;
   }
 
   /**
@@ -34,20 +44,77 @@ final class Buffers {
    * @return current buffer
    */
   Buffer current() {
-    return buf[off];
+    return current;
   }
 
   /**
-   * Chooses a buffer and sets the offset.
+   * Chooses a buffer for the specified position.
+   * If a new buffer is returned, its contents need to be read by the caller, which
+   * then resets the {@link Buffer#filling} flag.
    * @param p buffer pointer
-   * @return true if cursor has changed
+   * @return true if a new buffer has been assigned
    */
   boolean cursor(final long p) {
-    final int o = off;
-    do {
-      if(buf[off].pos == p) return false;
-    } while((off = off + 1 & BUFFERS - 1) != o);
-    off = o + 1 & BUFFERS - 1;
-    return true;
+    final Buffer c = current;
+    return (c == null || c.pos != p) && pool.cursor(this, p);
+  }
+
+  /**
+   * Writes all dirty buffers of this file.
+   * @throws IOException I/O exception
+   */
+  void flush() throws IOException {
+    pool.flush(this);
+  }
+
+  /**
+   * Returns all buffers of this file to the pool. Dirty buffers will be discarded.
+   * The contents of the current buffer remain accessible.
+   */
+  void close() {
+    pool.release(this);
+  }
+
+  /**
+   * Copies a block from the buffer pool without assigning it as current buffer.
+   * If the block is not buffered yet, it is read and added to the pool.
+   * This method can be called by multiple threads.
+   * @param p buffer position
+   * @param data target array
+   * @throws IOException I/O exception
+   */
+  void load(final long p, final byte[] data) throws IOException {
+    if(pool.copy(this, p, data)) return;
+    read(p, data);
+    pool.add(this, p, data);
+  }
+
+  /**
+   * Reads a block from disk. This method can be called by multiple threads.
+   * @param p buffer position
+   * @param data target array
+   * @throws IOException I/O exception
+   */
+  void read(final long p, final byte[] data) throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(data);
+    final long off = p << power;
+    while(bb.hasRemaining()) {
+      if(channel.read(bb, off + bb.position()) == -1) {
+        Arrays.fill(data, bb.position(), data.length, (byte) 0);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Writes the specified buffer to disk and resets the dirty flag.
+   * @param bf buffer to write
+   * @throws IOException I/O exception
+   */
+  void write(final Buffer bf) throws IOException {
+    final ByteBuffer bb = ByteBuffer.wrap(bf.data);
+    final long off = bf.pos << power;
+    while(bb.hasRemaining()) channel.write(bb, off + bb.position());
+    bf.dirty = false;
   }
 }
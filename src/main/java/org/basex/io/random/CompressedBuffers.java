@@ -0,0 +1,114 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.util.*;
+
+/**
+ * This class manages the buffers of a table file with compressed blocks.
+ * The buffers contain the uncompressed blocks. On disk, each block is stored in
+ * a slot of variable size, which starts with the two-byte length of the compressed
+ * data. If a block does not fit into its slot anymore, it will be moved to the end
+ * of the file; the old slot will only be reclaimed if the database is optimized.
+ *
+ * The slot directory (file offset and size of each slot) is stored in the
+ * index file of the table.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+final class CompressedBuffers extends Buffers {
+  /** Ratio of additional space that is reserved when a slot is moved. */
+  private static final int SLACK = 8;
+  /** Buffer for compressing blocks. */
+  private final byte[] packed = new byte[2 + LZ4.max(IO.BLOCKSIZE)];
+  /** File offsets of the slots, indexed by block ({@code -1}: no slot assigned). */
+  private long[] offsets;
+  /** Sizes of the slots. */
+  private int[] sizes;
+  /** End of the last slot. */
+  private long end;
+  /** Indicates if the slot directory has been changed. */
+  boolean dirty;
+
+  /**
+   * Constructor.
+   * @param file file storing the blocks
+   * @param in input stream, pointing to the slot directory
+   * @throws IOException I/O exception
+   */
+  CompressedBuffers(final RandomAccessFile file, final DataInput in)
+      throws IOException {
+    super(file, IO.BLOCKPOWER);
+    offsets = in.readLongs(in.readNum());
+    sizes = in.readNums();
+    for(int b = 0; b < offsets.length; b++) {
+      if(offsets[b] >= 0) end = Math.max(end, offsets[b] + sizes[b]);
+    }
+  }
+
+  /**
+   * Writes the slot directory.
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  synchronized void write(final DataOutput out) throws IOException {
+    out.writeLongs(offsets);
+    out.writeNums(sizes);
+    dirty = false;
+  }
+
+  @Override
+  void read(final long p, final byte[] data) throws IOException {
+    final long off;
+    final int size;
+    synchronized(this) {
+      if(p >= offsets.length || offsets[(int) p] < 0) {
+        Arrays.fill(data, (byte) 0);
+        return;
+      }
+      off = offsets[(int) p];
+      size = sizes[(int) p];
+    }
+    final byte[] slot = new byte[size];
+    final ByteBuffer bb = ByteBuffer.wrap(slot);
+    while(bb.hasRemaining() && channel.read(bb, off + bb.position()) != -1);
+    final int len = (slot[0] & 0xFF) << 8 | slot[1] & 0xFF;
+    LZ4.decompress(slot, 2, len, data);
+  }
+
+  @Override
+  synchronized void write(final Buffer bf) throws IOException {
+    final int b = (int) bf.pos;
+    if(b >= offsets.length) {
+      final int os = offsets.length;
+      final int ns = Math.max(b + 1, os << 1);
+      offsets = Arrays.copyOf(offsets, ns);
+      sizes = Arrays.copyOf(sizes, ns);
+      Arrays.fill(offsets, os, ns, -1);
+    }
+
+    final int len = LZ4.compress(bf.data, IO.BLOCKSIZE, packed, 2);
+    packed[0] = (byte) (len >>> 8);
+    packed[1] = (byte) len;
+    final int size = len + 2;
+    long off = offsets[b];
+    if(off < 0 || size > sizes[b]) {
+      // assign new slot at the end of the file
+      off = end;
+      offsets[b] = off;
+      sizes[b] = size + size / SLACK;
+      end += sizes[b];
+      dirty = true;
+    }
+
+    final ByteBuffer bb = ByteBuffer.wrap(packed, 0, size);
+    while(bb.hasRemaining()) channel.write(bb, off + bb.position());
+    bf.dirty = false;
+  }
+}
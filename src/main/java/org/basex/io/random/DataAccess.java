@@ -8,12 +8,17 @@ import org.basex.util.*;
 /**
  * This class allows positional read and write access to a database file.
  *
+ * The methods {@link #token(long)}, {@link #token(long, TokenView)} and
+ * {@link #num(long)} can be called by concurrent
+ * readers: as long as the file has not been modified since the last flush, they
+ * are performed without locking and without changing the file cursor.
+ *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public final class DataAccess {
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** Reference to the data input stream. */
   private final RandomAccessFile file;
   /** File length. */
@@ -22,6 +27,17 @@ public final class DataAccess {
   private boolean changed;
   /** Offset. */
   private int off;
+  /** Thread-local readers. */
+  private final ThreadLocal<Reader> readers = new ThreadLocal<Reader>() {
+    @Override
+    protected Reader initialValue() {
+      return new Reader();
+    }
+  };
+  /** Indicates if data must be read via the buffers (file was modified or closed). */
+  private volatile boolean buffered;
+  /** Version of the file contents (incremented whenever the file has been flushed). */
+  private volatile int version;
 
   /**
    * Constructor, initializing the file reader.
@@ -31,6 +47,7 @@ public final class DataAccess {
   public DataAccess(final IOFile f) throws IOException {
     file = new RandomAccessFile(f.file(), "rw");
     len = file.length();
+    bm = new Buffers(file, 0);
     cursor(0);
   }
 
@@ -39,11 +56,15 @@ public final class DataAccess {
    */
   public synchronized void flush() {
     try {
-      for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
+      bm.flush();
       if(changed) {
         file.setLength(len);
         changed = false;
       }
+      if(buffered) {
+        ++version;
+        buffered = false;
+      }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
@@ -54,6 +75,8 @@ public final class DataAccess {
    */
   public synchronized void close() {
     flush();
+    buffered = true;
+    bm.close();
     try {
       file.close();
     } catch(final IOException ex) {
@@ -74,6 +97,7 @@ public final class DataAccess {
    * @param l file length
    */
   synchronized void length(final long l) {
+    if(!buffered) buffered = true;
     changed |= l != len;
     len = l;
   }
@@ -159,6 +183,55 @@ public final class DataAccess {
     return readNum();
   }
 
+  /**
+   * Reads a {@link Num} value from the specified position without changing
+   * the file cursor. Can be called by concurrent readers.
+   * @param p position
+   * @return read num
+   */
+  public int num(final long p) {
+    if(buffered) return readNum(p);
+    final Reader r = readers.get();
+    r.pos = p;
+    return r.readNum();
+  }
+
+  /**
+   * Reads a token from the specified position without changing the file cursor.
+   * Can be called by concurrent readers.
+   * @param p position
+   * @return token
+   */
+  public byte[] token(final long p) {
+    if(buffered) return readToken(p);
+    final Reader r = readers.get();
+    r.pos = p;
+    return r.readBytes(r.readNum());
+  }
+
+  /**
+   * Returns a view on the token at the specified position without changing the
+   * file cursor. If possible, the view references the block in which the token is
+   * stored. Can be called by concurrent readers.
+   * @param p position
+   * @param view view to be assigned
+   * @return view
+   */
+  public TokenView token(final long p, final TokenView view) {
+    if(buffered) {
+      synchronized(this) {
+        cursor(p);
+        final int l = readNum();
+        final byte[] b = view.buffer(l);
+        read(b, l);
+        return view.set(b, 0, l);
+      }
+    }
+    final Reader r = readers.get();
+    r.pos = p;
+    return r.readView(r.readNum(), view);
+  }
+
   /**
    * Reads a token from disk.
    * @param p text position
@@ -195,9 +268,19 @@ public final class DataAccess {
    * @return byte array
    */
   public synchronized byte[] readBytes(final int n) {
+    final byte[] b = new byte[n];
+    read(b, n);
+    return b;
+  }
+
+  /**
+   * Reads a number of bytes into the specified array.
+   * @param b target array
+   * @param n length
+   */
+  private void read(final byte[] b, final int n) {
     int l = n;
     int ll = IO.BLOCKSIZE - off;
-    final byte[] b = new byte[l];
 
     System.arraycopy(buffer(false).data, off, b, 0, Math.min(l, ll));
     if(l > ll) {
@@ -210,7 +293,6 @@ public final class DataAccess {
       System.arraycopy(buffer(true).data, 0, b, ll, l);
     }
     off += l;
-    return b;
   }
 
   /**
@@ -224,14 +306,13 @@ public final class DataAccess {
 
     final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
-      bf.pos = b;
       file.seek(bf.pos);
       if(bf.pos < file.length())
         file.readFully(bf.data, 0, (int) Math.min(len - bf.pos, IO.BLOCKSIZE));
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    bf.filling = false;
   }
 
   /**
@@ -345,6 +426,7 @@ public final class DataAccess {
       final Buffer bf = buffer(off == IO.BLOCKSIZE);
       final int l = Math.min(last - o, IO.BLOCKSIZE - off);
       System.arraycopy(buf, o, bf.data, off, l);
+      if(!buffered) buffered = true;
       bf.dirty = true;
       off += l;
       o += l;
@@ -413,17 +495,6 @@ public final class DataAccess {
 
   // PRIVATE METHODS ==========================================================
 
-  /**
-   * Writes the specified block to disk.
-   * @param bf buffer to write
-   * @throws IOException I/O exception
-   */
-  private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos);
-    file.write(bf.data);
-    bf.dirty = false;
-  }
-
   /**
    * Reads the next byte.
    * @return next byte
@@ -439,6 +510,7 @@ public final class DataAccess {
    */
   private void write(final int b) {
     final Buffer bf = buffer(off == IO.BLOCKSIZE);
+    if(!buffered) buffered = true;
     bf.dirty = true;
     bf.data[off++] = (byte) b;
     final long nl = bf.pos + off;
@@ -456,4 +528,108 @@ public final class DataAccess {
     }
     return bm.current();
   }
+
+  /**
+   * Thread-local reader, which copies the blocks of the unmodified file from the
+   * buffer pool.
+   */
+  private final class Reader {
+    /** Block data. */
+    private final byte[] data = new byte[IO.BLOCKSIZE];
+    /** Disk offset of the current block. */
+    private long block = -1;
+    /** File version. */
+    private int vrs = -1;
+    /** Read position. */
+    long pos;
+
+    /**
+     * Reads the next compressed number and returns it as integer.
+     * @return next integer
+     */
+    int readNum() {
+      final int v = read();
+      switch(v & 0xC0) {
+      case 0:
+        return v;
+      case 0x40:
+        return (v - 0x40 << 8) + read();
+      case 0x80:
+        return (v - 0x80 << 24) + (read() << 16) + (read() << 8) + read();
+      default:
+        return (read() << 24) + (read() << 16) + (read() << 8) + read();
+      }
+    }
+
+    /**
+     * Reads a number of bytes.
+     * @param n length
+     * @return byte array
+     */
+    byte[] readBytes(final int n) {
+      return read(new byte[n], n);
+    }
+
+    /**
+     * Returns a view on the specified number of bytes. The view references the
+     * current block if it contains all bytes.
+     * @param n length
+     * @param view view to be assigned
+     * @return view
+     */
+    TokenView readView(final int n, final TokenView view) {
+      final int o = offset();
+      if(o + n <= IO.BLOCKSIZE) {
+        pos += n;
+        return view.set(data, o, n);
+      }
+      return view.set(read(view.buffer(n), n), 0, n);
+    }
+
+    /**
+     * Reads a number of bytes into the specified array.
+     * @param b target array
+     * @param n length
+     * @return target array
+     */
+    private byte[] read(final byte[] b, final int n) {
+      for(int i = 0; i < n;) {
+        final int o = offset();
+        final int l = Math.min(n - i, IO.BLOCKSIZE - o);
+        System.arraycopy(data, o, b, i, l);
+        i += l;
+        pos += l;
+      }
+      return b;
+    }
+
+    /**
+     * Reads the next byte.
+     * @return next byte
+     */
+    private int read() {
+      final int o = offset();
+      ++pos;
+      return data[o] & 0xFF;
+    }
+
+    /**
+     * Returns the offset of the read position in the current block.
+     * Reads the required block if necessary.
+     * @return offset
+     */
+    private int offset() {
+      final long b = pos & -IO.BLOCKSIZE;
+      if(b != block || vrs != version) {
+        vrs = version;
+        block = b;
+        try {
+          bm.load(b, data);
+        } catch(final IOException ex) {
+          Util.stack(ex);
+        }
+      }
+      return (int) (pos - b);
+    }
+  }
 }
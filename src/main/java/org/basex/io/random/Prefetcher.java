@@ -0,0 +1,184 @@
+package org.basex.io.random;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * This class reads blocks of a table file in the background. It is used by
+ * {@link TableDiskAccess} when sequential page accesses are detected; the number
+ * of pages to be read ahead is specified via {@link Prop#PREFETCH}.
+ *
+ * Blocks that have been read ahead are added to the {@link BufferPool} and kept until
+ * they are requested by a reader. If the table is memory-mapped, blocks are only read to warm the page cache of the
+ * operating system.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Prefetcher {
+  /** Number of background threads. */
+  private static final int THREADS = 2;
+  /** Background threads, which are shared by all tables. */
+  private static final ExecutorService EXEC = Executors.newFixedThreadPool(THREADS,
+    new ThreadFactory() {
+      @Override
+      public Thread newThread(final Runnable r) {
+        final Thread t = new Thread(r, Util.name(Prefetcher.class));
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  /** Number of blocks that have been requested. */
+  private static final AtomicLong REQUESTED = new AtomicLong();
+  /** Number of blocks that have been read. */
+  private static final AtomicLong READ = new AtomicLong();
+  /** Number of blocks that have been consumed by readers. */
+  private static final AtomicLong USED = new AtomicLong();
+
+  /** Number of pages to be read ahead. */
+  final int depth;
+  /** Buffer manager, which is used for reading blocks. */
+  private final Buffers bm;
+  /** Blocks that have been read ahead, indexed by their block position. */
+  private final ConcurrentHashMap<Integer, Block> cache =
+    new ConcurrentHashMap<Integer, Block>();
+
+  /**
+   * Constructor.
+   * @param b buffer manager
+   * @param d number of pages to be read ahead
+   */
+  Prefetcher(final Buffers b, final int d) {
+    bm = b;
+    depth = d;
+  }
+
+  /**
+   * Returns the number of blocks that have been requested.
+   * @return number of blocks
+   */
+  public static long requested() {
+    return REQUESTED.get();
+  }
+
+  /**
+   * Returns the number of blocks that have been read in the background.
+   * @return number of blocks
+   */
+  public static long read() {
+    return READ.get();
+  }
+
+  /**
+   * Returns the number of prefetched blocks that have been consumed by readers.
+   * @return number of blocks
+   */
+  public static long used() {
+    return USED.get();
+  }
+
+  /**
+   * Returns information on all prefetched blocks.
+   * @return info string
+   */
+  public static String info() {
+    return Util.info("% pages requested, % read, % used",
+        REQUESTED.get(), READ.get(), USED.get());
+  }
+
+  // PACKAGE METHODS ==========================================================
+
+  /**
+   * Schedules the specified blocks to be read in the background.
+   * @param blocks block positions
+   * @param vrs version of the table
+   * @param keep keep the read blocks (if {@code false}, the blocks will only be
+   * read to warm the page cache)
+   */
+  void request(final int[] blocks, final int vrs, final boolean keep) {
+    REQUESTED.addAndGet(blocks.length);
+    EXEC.execute(new Runnable() {
+      @Override
+      public void run() {
+        load(blocks, vrs, keep);
+      }
+    });
+  }
+
+  /**
+   * Returns and removes a prefetched block.
+   * @param block block position
+   * @param vrs version of the table
+   * @return block data, or {@code null} if the block is not available
+   */
+  byte[] take(final int block, final int vrs) {
+    if(cache.isEmpty()) return null;
+    final Block b = cache.remove(block);
+    if(b == null || b.vrs != vrs) return null;
+    USED.incrementAndGet();
+    return b.data;
+  }
+
+  /**
+   * Discards all prefetched blocks.
+   */
+  void clear() {
+    cache.clear();
+  }
+
+  // PRIVATE METHODS ==========================================================
+
+  /**
+   * Reads the specified blocks.
+   * @param blocks block positions
+   * @param vrs version of the table
+   * @param keep keep the read blocks
+   */
+  private void load(final int[] blocks, final int vrs, final boolean keep) {
+    byte[] data = null;
+    for(final int b : blocks) {
+      if(data == null) data = new byte[IO.BLOCKSIZE];
+      try {
+        if(keep) bm.load(b, data);
+        else bm.read(b, data);
+      } catch(final ClosedChannelException ex) {
+        // table has been closed
+        return;
+      } catch(final IOException ex) {
+        Util.debug(ex);
+        return;
+      }
+      READ.incrementAndGet();
+      if(!keep) continue;
+
+      // blocks that are not consumed by any reader are discarded at some point
+      if(cache.size() >= depth << 4) cache.clear();
+      cache.put(b, new Block(data, vrs));
+      data = null;
+    }
+  }
+
+  /** Prefetched block. */
+  private static final class Block {
+    /** Block data. */
+    final byte[] data;
+    /** Version of the table. */
+    final int vrs;
+
+    /**
+     * Constructor.
+     * @param d data
+     * @param v version of the table
+     */
+    Block(final byte[] d, final int v) {
+      data = d;
+      vrs = v;
+    }
+  }
+}
@@ -45,6 +45,13 @@ public abstract class TableAccess {
    */
   public abstract boolean lock(final boolean excl);
 
+  /**
+   * Enables or disables concurrent reads while an exclusive lock is held.
+   * The table must not be modified as long as concurrent reads are enabled.
+   * @param on on/off
+   */
+  public abstract void concurrent(final boolean on);
+
   /**
    * Reads a byte value and returns it as an integer value.
    * @param p pre value
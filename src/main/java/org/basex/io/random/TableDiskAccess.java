@@ -3,7 +3,9 @@ package org.basex.io.random;
 import static org.basex.data.DataText.*;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.channels.*;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.*;
 
 import org.basex.core.*;
@@ -16,21 +18,51 @@ import org.basex.util.*;
 /**
  * This class stores the table on disk and reads it block-wise.
  *
- * NOTE: this class is not thread-safe.
+ * As long as no exclusive lock is held, read operations will be performed without
+ * locking: each thread keeps its own cursor and copies blocks from the
+ * {@link BufferPool}; blocks that are not buffered yet are read via positional reads
+ * and added to the pool. If {@link Prop#MMAP} is enabled, the table file will be
+ * memory-mapped in this state, and all read operations will directly access the
+ * mapped file regions without using the pool.
+ * If {@link Prop#PREFETCH} is assigned a positive value, sequential page accesses
+ * will trigger a {@link Prefetcher}, which reads the next pages in the background.
+ * If {@link MetaData#comptable} is set, all blocks are stored in compressed form,
+ * and the pool contains the decompressed blocks.
+ * If an exclusive lock is held, all operations will be performed on the shared
+ * buffers, and the class is not thread-safe, unless concurrent reads have been
+ * enabled via {@link #concurrent}.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  * @author Tim Petrowsky
  */
 public final class TableDiskAccess extends TableAccess {
+  /** Size of a single mapped file region (power of two; larger than the block size). */
+  private static final int MAPPOWER = 30;
   /** Buffer manager. */
-  private final Buffers bm = new Buffers();
+  private final Buffers bm;
   /** File storing all blocks. */
   private final RandomAccessFile file;
   /** Bitmap storing free (=0) and occupied (=1) pages. */
   private final BitArray freePages;
   /** File lock. */
   private FileLock fl;
+  /** Memory-mapped file regions ({@code null} if blocks are read via buffers). */
+  private MappedByteBuffer[] mapped;
+  /** Prefetcher ({@code null} if pages are not read ahead). */
+  private final Prefetcher prefetcher;
+  /** Thread-local readers. */
+  private final ThreadLocal<Reader> readers = new ThreadLocal<Reader>() {
+    @Override
+    protected Reader initialValue() {
+      return new Reader();
+    }
+  };
+  /** Indicates if the table can be read without locking (no exclusive lock is held,
+   * or concurrent reads are enabled). */
+  private volatile boolean shared;
+  /** Version of the table (incremented whenever the shared state is entered). */
+  private volatile int version;
 
   /** FirstPre values (sorted ascending; length: {@link #blocks}). */
   private int[] fpres;
@@ -75,13 +107,17 @@ public final class TableDiskAccess extends TableAccess {
     } else {
       freePages = new BitArray(in.readLongs(psize), blocks);
     }
-    in.close();
 
     // initialize data file
     file = new RandomAccessFile(meta.dbfile(DATATBL).file(), "rw");
+    bm = md.comptable ? new CompressedBuffers(file, in) : new Buffers(file, IO.BLOCKPOWER);
+    in.close();
+    final int depth = meta.prop.num(Prop.PREFETCH);
+    prefetcher = depth > 0 ? new Prefetcher(bm, depth) : null;
     if(lock) exclusiveLock();
     else sharedLock();
     if(fl == null) throw new BaseXException(Text.DB_PINNED_X, md.name);
+    if(!lock) share();
   }
 
   /**
@@ -112,8 +148,9 @@ public final class TableDiskAccess extends TableAccess {
 
   @Override
   public synchronized void flush() throws IOException {
-    for(final Buffer b : bm.all()) if(b.dirty) writeBlock(b);
-    if(!dirty) return;
+    bm.flush();
+    final CompressedBuffers cb = meta.comptable ? (CompressedBuffers) bm : null;
+    if(!dirty && (cb == null || !cb.dirty)) return;
 
     final DataOutput out = new DataOutput(meta.dbfile(DATATBL + 'i'));
     out.writeNum(blocks);
@@ -126,13 +163,17 @@ public final class TableDiskAccess extends TableAccess {
     for(int a = 0; a < blocks; a++) out.writeNum(pages[a]);
 
     out.writeLongs(freePages.toArray());
+    if(cb != null) cb.write(out);
     out.close();
     dirty = false;
   }
 
   @Override
   public synchronized void close() throws IOException {
+    shared = false;
     flush();
+    unmap();
+    bm.close();
     file.close();
   }
 
@@ -140,10 +181,17 @@ public final class TableDiskAccess extends TableAccess {
   public boolean lock(final boolean lock) {
     try {
       if(lock) {
-        if(exclusiveLock()) return true;
+        if(exclusiveLock()) {
+          shared = false;
+          unmap();
+          return true;
+        }
         if(sharedLock()) return false;
       } else {
-        if(sharedLock()) return true;
+        if(sharedLock()) {
+          share();
+          return true;
+        }
       }
     } catch(final IOException ex) {
       Util.stack(ex);
@@ -152,6 +200,18 @@ public final class TableDiskAccess extends TableAccess {
         " lock could not be acquired.");
   }
 
+  @Override
+  public synchronized void concurrent(final boolean on) {
+    // no exclusive lock: readers are already independent
+    if(fl == null || fl.isShared()) return;
+    if(on) {
+      // dirty buffers remain in the pool and are copied by the readers
+      if(prefetcher != null) prefetcher.clear();
+      ++version;
+    }
+    shared = on;
+  }
+
   /**
    * Acquires an exclusive lock on the file.
    * @return success flag
@@ -185,33 +245,45 @@ public final class TableDiskAccess extends TableAccess {
   }
 
   @Override
-  public synchronized int read1(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return b[o] & 0xFF;
+  public int read1(final int pre, final int off) {
+    if(shared) return readers.get().read1(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return b[o] & 0xFF;
+    }
   }
 
   @Override
-  public synchronized int read2(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+  public int read2(final int pre, final int off) {
+    if(shared) return readers.get().read2(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized int read4(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
-      ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+  public int read4(final int pre, final int off) {
+    if(shared) return readers.get().read4(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
   }
 
   @Override
-  public synchronized long read5(final int pre, final int off) {
-    final int o = off + cursor(pre);
-    final byte[] b = bm.current().data;
-    return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
-      ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+  public long read5(final int pre, final int off) {
+    if(shared) return readers.get().read5(pre, off);
+    synchronized(this) {
+      final int o = off + cursor(pre);
+      final byte[] b = bm.current().data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    }
   }
 
   @Override
@@ -470,32 +542,43 @@ public final class TableDiskAccess extends TableAccess {
    * @return offset of the entry in the block
    */
   private int cursor(final int pre) {
-    int fp = fpre;
-    int np = npre;
-    if(pre < fp || pre >= np) {
-      final int last = used - 1;
-      int l = 0;
-      int h = last;
-      int m = page;
-      while(l <= h) {
-        if(pre < fp) h = m - 1;
-        else if(pre >= np) l = m + 1;
-        else break;
-        m = h + l >>> 1;
-        fp = fpres[m];
-        np = m == last ? meta.size : fpres[m + 1];
-      }
-      if(l > h) Util.notexpected(
-          "Data Access out of bounds:" +
-          "\n- pre value: " + pre +
-          "\n- #used blocks: " + used +
-          "\n- #total locks: " + blocks +
-          "\n- access: " + m + " (" + l + " > " + h + ']');
-      readPage(m);
-    }
+    if(pre < fpre || pre >= npre) readPage(page(pre, page, fpre, npre));
     return pre - fpre << IO.NODEPOWER;
   }
 
+  /**
+   * Returns the index of the page containing the specified pre value.
+   * The search starts from the specified page.
+   * @param pre pre value
+   * @param pg index of the start page (may be {@code -1})
+   * @param fpr first pre value of the start page
+   * @param npr first pre value of the next page
+   * @return page index
+   */
+  private int page(final int pre, final int pg, final int fpr, final int npr) {
+    int fp = fpr;
+    int np = npr;
+    final int last = used - 1;
+    int l = 0;
+    int h = last;
+    int m = pg;
+    while(l <= h) {
+      if(pre < fp) h = m - 1;
+      else if(pre >= np) l = m + 1;
+      else break;
+      m = h + l >>> 1;
+      fp = fpres[m];
+      np = m == last ? meta.size : fpres[m + 1];
+    }
+    if(l > h) Util.notexpected(
+        "Data Access out of bounds:" +
+        "\n- pre value: " + pre +
+        "\n- #used blocks: " + used +
+        "\n- #total locks: " + blocks +
+        "\n- access: " + m + " (" + l + " > " + h + ']');
+    return m;
+  }
+
   /**
    * Updates the page pointers.
    * @param p page index
@@ -524,17 +607,15 @@ public final class TableDiskAccess extends TableAccess {
 
     final Buffer bf = bm.current();
     try {
-      if(bf.dirty) writeBlock(bf);
-      bf.pos = b;
       if(b >= blocks) {
         blocks = b + 1;
       } else {
-        file.seek(bf.pos * IO.BLOCKSIZE);
-        file.readFully(bf.data);
+        bm.read(b, bf.data);
       }
     } catch(final IOException ex) {
       Util.stack(ex);
     }
+    bf.filling = false;
   }
 
   /**
@@ -548,17 +629,6 @@ public final class TableDiskAccess extends TableAccess {
     ++page;
   }
 
-  /**
-   * Writes the specified block to disk and resets the dirty flag.
-   * @param bf buffer to write
-   * @throws IOException I/O exception
-   */
-  private void writeBlock(final Buffer bf) throws IOException {
-    file.seek(bf.pos * IO.BLOCKSIZE);
-    file.write(bf.data);
-    bf.dirty = false;
-  }
-
   /**
    * Updates the firstPre index entries.
    * @param nr number of entries to move
@@ -601,6 +671,48 @@ public final class TableDiskAccess extends TableAccess {
     return len;
   }
 
+  /**
+   * Enters the shared state, in which the table can be read without locking.
+   */
+  private void share() {
+    if(shared) return;
+    map();
+    if(prefetcher != null) prefetcher.clear();
+    ++version;
+    shared = true;
+  }
+
+  /**
+   * Memory-maps the table file if this has been requested by the user.
+   * All buffered blocks will be written first.
+   */
+  private void map() {
+    if(mapped != null || meta.comptable || !meta.prop.is(Prop.MMAP)) return;
+    try {
+      bm.flush();
+      final FileChannel fc = file.getChannel();
+      final long len = fc.size();
+      final int regions = (int) (len + (1L << MAPPOWER) - 1 >>> MAPPOWER);
+      final MappedByteBuffer[] mb = new MappedByteBuffer[regions];
+      for(int r = 0; r < regions; r++) {
+        final long start = (long) r << MAPPOWER;
+        mb[r] = fc.map(MapMode.READ_ONLY, start, Math.min(len - start, 1L << MAPPOWER));
+      }
+      mapped = mb;
+    } catch(final IOException ex) {
+      // fall back to block-wise access
+      Util.debug(ex);
+    }
+  }
+
+  /**
+   * Switches back to block-wise access. The mapped regions will be released by the
+   * garbage collector.
+   */
+  private void unmap() {
+    mapped = null;
+  }
+
   /**
    * Calculate the occupied space in a block.
    * @param i index of the block
@@ -609,4 +721,155 @@ public final class TableDiskAccess extends TableAccess {
   private int occSpace(final int i) {
     return (i + 1 < used ? fpres[i + 1] : meta.size) - fpres[i];
   }
+
+  /**
+   * Thread-local reader, which is used if no exclusive lock is held.
+   * It keeps a copy of the current page, which is taken from the buffer pool,
+   * or it accesses the memory-mapped file regions.
+   */
+  private final class Reader {
+    /** Block data ({@code null} if memory-mapped regions are accessed). */
+    private byte[] data;
+    /** Memory-mapped region of the current block. */
+    private ByteBuffer region;
+    /** Offset of the current block in the mapped region. */
+    private int offset;
+    /** Page index. */
+    private int pg = -1;
+    /** Pre value of the first entry in the current block. */
+    private int fp = -1;
+    /** First pre value of the next block. */
+    private int np = -1;
+    /** Table version. */
+    private int vrs = -1;
+    /** Index of the last page that has been requested by the prefetcher. */
+    private int ahead = -1;
+
+    /**
+     * Reads a byte value and returns it as an integer value.
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    int read1(final int pre, final int off) {
+      final int o = off + cursor(pre);
+      if(data == null) return region.get(o) & 0xFF;
+      return data[o] & 0xFF;
+    }
+
+    /**
+     * Reads a short value and returns it as an integer value.
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    int read2(final int pre, final int off) {
+      final int o = off + cursor(pre);
+      if(data == null) return region.getShort(o) & 0xFFFF;
+      final byte[] b = data;
+      return ((b[o] & 0xFF) << 8) + (b[o + 1] & 0xFF);
+    }
+
+    /**
+     * Reads an integer value.
+     * @param pre pre value
+     * @param off offset
+     * @return integer value
+     */
+    int read4(final int pre, final int off) {
+      final int o = off + cursor(pre);
+      if(data == null) return region.getInt(o);
+      final byte[] b = data;
+      return ((b[o] & 0xFF) << 24) + ((b[o + 1] & 0xFF) << 16) +
+        ((b[o + 2] & 0xFF) << 8) + (b[o + 3] & 0xFF);
+    }
+
+    /**
+     * Reads a 5-byte value and returns it as a long value.
+     * @param pre pre value
+     * @param off offset
+     * @return long value
+     */
+    long read5(final int pre, final int off) {
+      final int o = off + cursor(pre);
+      if(data == null) {
+        return ((long) (region.get(o) & 0xFF) << 32) + (region.getInt(o + 1) & 0xFFFFFFFFL);
+      }
+      final byte[] b = data;
+      return ((long) (b[o] & 0xFF) << 32) + ((long) (b[o + 1] & 0xFF) << 24) +
+        ((b[o + 2] & 0xFF) << 16) + ((b[o + 3] & 0xFF) << 8) + (b[o + 4] & 0xFF);
+    }
+
+    /**
+     * Searches for the block containing the entry for the specified pre value.
+     * Reads the block and returns the offset of the entry in the block data
+     * or the mapped region.
+     * @param pre pre of the entry to search for
+     * @return offset of the entry
+     */
+    private int cursor(final int pre) {
+      if(vrs != version) {
+        vrs = version;
+        pg = -1;
+        fp = -1;
+        np = -1;
+        ahead = -1;
+      }
+      if(pre < fp || pre >= np) {
+        final int prev = pg;
+        pg = page(pre, pg, fp, np);
+        fp = fpres[pg];
+        np = pg + 1 >= used ? meta.size : fpres[pg + 1];
+
+        final MappedByteBuffer[] mb = mapped;
+        if(prefetcher != null) prefetch(prev, mb == null);
+
+        if(mb != null) {
+          final long pos = (long) pages[pg] << IO.BLOCKPOWER;
+          data = null;
+          region = mb[(int) (pos >>> MAPPOWER)];
+          offset = (int) (pos & (1 << MAPPOWER) - 1);
+        } else {
+          offset = 0;
+          final byte[] d = prefetcher != null ? prefetcher.take(pages[pg], vrs) : null;
+          if(d != null) {
+            data = d;
+            return pre - fp << IO.NODEPOWER;
+          }
+          if(data == null) data = new byte[IO.BLOCKSIZE];
+          try {
+            bm.load(pages[pg], data);
+          } catch(final IOException ex) {
+            Util.stack(ex);
+          }
+        }
+      }
+      return offset + (pre - fp << IO.NODEPOWER);
+    }
+
+    /**
+     * Requests the next pages from the prefetcher if the current page directly
+     * follows the previous one. New pages are requested as soon as half of the
+     * pages that have been read ahead are consumed.
+     * @param prev index of the previous page
+     * @param keep keep the read blocks
+     */
+    private void prefetch(final int prev, final boolean keep) {
+      if(pg != prev + 1 || prev == -1) {
+        // random access: reset window
+        ahead = pg;
+        return;
+      }
+      final int depth = prefetcher.depth;
+      if(ahead - pg > depth >>> 1) return;
+
+      final int start = Math.max(ahead, pg) + 1;
+      final int end = Math.min(pg + depth, used - 1);
+      if(start > end) return;
+      final int[] bl = new int[end - start + 1];
+      for(int p = start; p <= end; p++) bl[p - start] = pages[p];
+      prefetcher.request(bl, vrs, keep);
+      ahead = end;
+    }
+  }
 }
@@ -40,6 +40,9 @@ public final class TableMemAccess extends TableAccess {
     return true;
   }
 
+  @Override
+  public void concurrent(final boolean on) { }
+
   @Override
   public int read1(final int p, final int o) {
     return (int) ((o < 8 ? buf1 : buf2)[p] >> ((o < 8 ? 7 : 15) - o << 3) & 0xFF);
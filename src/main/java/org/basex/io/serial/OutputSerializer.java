@@ -242,10 +242,23 @@ public abstract class OutputSerializer extends Serializer {
 
   @Override
   protected void attribute(final byte[] n, final byte[] v) throws IOException {
+    attribute(n, v, 0, v.length);
+  }
+
+  /**
+   * Serializes an attribute, the value of which is a slice of the specified array.
+   * @param n name
+   * @param v array
+   * @param s start offset of the value
+   * @param e end offset of the value
+   * @throws IOException I/O exception
+   */
+  protected final void attribute(final byte[] n, final byte[] v, final int s,
+      final int e) throws IOException {
     print(' ');
     print(n);
     print(ATT1);
-    for(int k = 0; k < v.length; k += cl(v, k)) {
+    for(int k = s; k < e; k += cl(v, k)) {
       final int ch = cp(v, k);
       if(!format) {
         printChar(ch);
@@ -262,12 +275,24 @@ public abstract class OutputSerializer extends Serializer {
 
   @Override
   protected void finishText(final byte[] b) throws IOException {
+    text(b, 0, b.length);
+  }
+
+  /**
+   * Serializes a text, which is a slice of the specified array.
+   * @param b array
+   * @param s start offset of the text
+   * @param e end offset of the text
+   * @throws IOException I/O exception
+   */
+  protected final void text(final byte[] b, final int s, final int e)
+      throws IOException {
     if(cdata.isEmpty() || tags.isEmpty() || !cdata.contains(tags.peek())) {
-      for(int k = 0; k < b.length; k += cl(b, k)) code(cp(b, k));
+      for(int k = s; k < e; k += cl(b, k)) code(cp(b, k));
     } else {
       print(CDATA_O);
       int c = 0;
-      for(int k = 0; k < b.length; k += cl(b, k)) {
+      for(int k = s; k < e; k += cl(b, k)) {
         final int ch = cp(b, k);
         if(ch == ']') {
           ++c;
@@ -43,6 +43,8 @@ public abstract class Serializer {
 
   /** Indicates if an element is currently being opened. */
   private boolean opening;
+  /** Reusable view on texts and attribute values of database nodes. */
+  private final TokenView view = new TokenView();
 
   /**
    * Returns an XML serializer.
@@ -271,6 +273,19 @@ public abstract class Serializer {
   protected abstract void attribute(final byte[] name, final byte[] value)
       throws IOException;
 
+  /**
+   * Serializes an attribute of a database node. The view is only valid until this
+   * method returns; by default, the viewed bytes are copied and passed on to
+   * {@link #attribute(byte[], byte[])}.
+   * @param name name
+   * @param value view on the value
+   * @throws IOException I/O exception
+   */
+  protected void attribute(final byte[] name, final TokenView value)
+      throws IOException {
+    attribute(name, value.toArray());
+  }
+
   /**
    * Starts an element.
    * @param name tag name
@@ -303,6 +318,17 @@ public abstract class Serializer {
    */
   protected abstract void finishText(final byte[] value) throws IOException;
 
+  /**
+   * Serializes a text of a database node. The view is only valid until this method
+   * returns; by default, the viewed bytes are copied and passed on to
+   * {@link #finishText(byte[])}.
+   * @param value view on the text bytes
+   * @throws IOException I/O exception
+   */
+  protected void finishText(final TokenView value) throws IOException {
+    finishText(value.toArray());
+  }
+
   /**
    * Serializes a comment.
    * @param value value
@@ -364,11 +390,11 @@ public abstract class Serializer {
       } else if(k == Data.TEXT) {
         final FTPos ftd = ft != null ? ft.get(data, p) : null;
         if(ftd != null) text(data.text(p++, true), ftd);
-        else text(data.text(p++, true));
+        else text(data.text(p++, true, view));
       } else if(k == Data.COMM) {
         comment(data.text(p++, true));
       } else if(k == Data.ATTR) {
-        attribute(data.name(p, k), data.text(p++, false));
+        attribute(data.name(p, k), data.text(p++, false, view));
       } else if(k == Data.PI) {
         pi(data.name(p, k), data.atom(p++));
       } else {
@@ -401,7 +427,9 @@ public abstract class Serializer {
 
         // serialize attributes
         final int as = p + data.attSize(p, k);
-        while(++p != as) attribute(data.name(p, Data.ATTR), data.text(p, false));
+        while(++p != as) {
+          attribute(data.name(p, Data.ATTR), data.text(p, false, view));
+        }
         pars.set(l++, r);
       }
     }
@@ -442,6 +470,16 @@ public abstract class Serializer {
     finishText(value);
   }
 
+  /**
+   * Serializes a text of a database node.
+   * @param value view on the text bytes
+   * @throws IOException I/O exception
+   */
+  private void text(final TokenView value) throws IOException {
+    finishElement();
+    finishText(value);
+  }
+
   /**
    * Serializes a processing instruction.
    * @param name name
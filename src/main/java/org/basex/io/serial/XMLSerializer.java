@@ -6,6 +6,7 @@ import static org.basex.query.util.Err.*;
 import java.io.*;
 
 import org.basex.query.value.item.*;
+import org.basex.util.*;
 
 /**
  * This class serializes data as XML.
@@ -42,6 +43,17 @@ public class XMLSerializer extends OutputSerializer {
     super.finishText(v);
   }
 
+  @Override
+  protected void finishText(final TokenView v) throws IOException {
+    if(tags.isEmpty()) check();
+    text(v.array(), v.start(), v.start() + v.size());
+  }
+
+  @Override
+  protected void attribute(final byte[] n, final TokenView v) throws IOException {
+    attribute(n, v.array(), v.start(), v.start() + v.size());
+  }
+
   @Override
   protected void atomic(final Item i) throws IOException {
     if(tags.isEmpty()) check();
@@ -51,6 +51,16 @@ public class MainModule extends StaticScope {
     declType = type;
   }
 
+  /**
+   * Creates an uncompiled copy of this module.
+   * @param ctx query context
+   * @return copy
+   */
+  MainModule copy(final QueryContext ctx) {
+    final VarScope scp = new VarScope();
+    return new MainModule(expr.copy(ctx, scp), scp, declType, xqdoc(), info);
+  }
+
   @Override
   public void compile(final QueryContext ctx) throws QueryException {
     if(compiled) return;
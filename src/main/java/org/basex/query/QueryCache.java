@@ -0,0 +1,110 @@
+package org.basex.query;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.util.*;
+
+/**
+ * Bounded cache for parsed queries, which is shared by all sessions of a database
+ * context. Cached queries have been parsed, but not compiled: each execution adopts a
+ * copy of the parsed query, binds its external variables and compiles it.
+ * Entries are discarded in least-recently-used order, and they are invalidated if the
+ * time stamp of one of the parsed module files changes.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author agent
+ */
+public final class QueryCache {
+  /** Maximum number of cached queries. */
+  private static final int MAX = 256;
+
+  /** Cached queries, indexed by the query string and the options used for parsing. */
+  private final LinkedHashMap<String, Query> queries =
+      new LinkedHashMap<String, Query>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Entry<String, Query> eldest) {
+      return size() > MAX;
+    }
+  };
+
+  /**
+   * Parses the specified main module, or adopts a copy of a cached instance.
+   * Queries with pre-defined bindings, namespaces, modules or full-text files are
+   * always parsed.
+   * @param query query string
+   * @param ctx query context
+   * @return {@code true} if a cached instance was adopted
+   * @throws QueryException query exception
+   */
+  public boolean parse(final String query, final QueryContext ctx) throws QueryException {
+    final Prop prop = ctx.context.prop;
+    if(!ctx.cacheable || !prop.get(Prop.BINDINGS).trim().isEmpty() ||
+        ctx.stop != null || ctx.thes != null || !ctx.modDeclared.isEmpty()) {
+      ctx.parseMain(query, null);
+      return false;
+    }
+
+    // the parsed query depends on the base URI, some options and the user permissions
+    final String key = new StringBuilder(query).append('\0').
+        append(Token.string(ctx.sc.baseURI().string())).append('\0').append(prop.get(Prop.QUERYPATH)).
+        append('\0').append(prop.is(Prop.XQUERY3)).append('\0').
+        append(prop.get(Prop.SERIALIZER)).append('\0').
+        append(ctx.context.user.has(Perm.ADMIN)).toString();
+
+    Query cached;
+    synchronized(queries) {
+      cached = queries.get(key);
+    }
+    if(cached != null && cached.valid()) {
+      ctx.adopt(cached.ctx);
+      return true;
+    }
+
+    // a context item declared by the query replaces the bound one
+    final MainModule ctxItem = ctx.ctxItem;
+    ctx.ctxItem = null;
+    ctx.parseMain(query, null);
+    if(ctx.cacheable) {
+      final QueryContext qc = new QueryContext(ctx.context);
+      qc.adopt(ctx);
+      cached = new Query(qc, ctx.modTimes);
+      synchronized(queries) {
+        queries.put(key, cached);
+      }
+    }
+    if(ctx.ctxItem == null) ctx.ctxItem = ctxItem;
+    return false;
+  }
+
+  /** Cached query. */
+  private static final class Query {
+    /** Parsed query. */
+    final QueryContext ctx;
+    /** Time stamps of the parsed module files. */
+    final HashMap<String, Long> times;
+
+    /**
+     * Constructor.
+     * @param qc parsed query
+     * @param ts time stamps of the module files
+     */
+    Query(final QueryContext qc, final HashMap<String, Long> ts) {
+      ctx = qc;
+      times = ts;
+    }
+
+    /**
+     * Checks if none of the module files has been modified.
+     * @return result of check
+     */
+    boolean valid() {
+      for(final Entry<String, Long> e : times.entrySet()) {
+        if(new IOFile(e.getKey()).timeStamp() != e.getValue()) return false;
+      }
+      return true;
+    }
+  }
+}
@@ -53,9 +53,11 @@ public final class QueryContext extends Proc {
   public final StaticFuncs funcs = new StaticFuncs();
   /** Externally bound variables. */
   public final HashMap<QNm, Expr> bindings = new HashMap<QNm, Expr>();
+  /** Namespaces that have been dynamically added by element constructors. */
+  public final Atts ns = new Atts();
 
   /** Query resources. */
-  public final QueryResources resource = new QueryResources(this);
+  public final QueryResources resource;
   /** Database context. */
   public final Context context;
 
@@ -70,6 +72,9 @@ public final class QueryContext extends Proc {
   public final StringList dbOptions = new StringList();
   /** Global options (will be set after query execution). */
   public final HashMap<String, Object> globalOpt = new HashMap<String, Object>();
+  /** Hash lookups of general comparisons, which are local to this evaluation. */
+  public final IdentityHashMap<Expr, Object> lookups =
+      new IdentityHashMap<Expr, Object>();
 
   /** Current context value. */
   public Value value;
@@ -112,6 +117,8 @@ public final class QueryContext extends Proc {
 
   /** Compilation flag: current node has leaves. */
   public boolean leaf;
+  /** Indicates if the parsed query can be cached and reused by other executions. */
+  public boolean cacheable = true;
 
   /** Number of successive tail calls. */
   public int tailCalls;
@@ -124,6 +131,8 @@ public final class QueryContext extends Proc {
   final TokenMap modDeclared = new TokenMap();
   /** Parsed modules, containing the file path and module uri. */
   final TokenMap modParsed = new TokenMap();
+  /** Time stamps of the parsed module files. */
+  final HashMap<String, Long> modTimes = new HashMap<String, Long>();
   /** Stack of module files that are currently parsed. */
   final TokenList modStack = new TokenList();
 
@@ -152,7 +161,7 @@ public final class QueryContext extends Proc {
   private boolean closed;
 
   /** The evaluation stack. */
-  public final QueryStack stack = new QueryStack();
+  public final QueryStack stack;
 
   /**
    * Constructor.
@@ -165,6 +174,38 @@ public final class QueryContext extends Proc {
     sc = new StaticContext(ctx.prop.is(Prop.XQUERY3));
     maxCalls = ctx.prop.num(Prop.TAILCALLS);
     modules = new ModuleLoader(ctx);
+    resource = new QueryResources(this);
+    stack = new QueryStack();
+  }
+
+  /**
+   * Constructor, creating a context for evaluating expressions in a separate thread.
+   * The static context and the query resources are shared with the parent context;
+   * the focus and the variables of the current stack frame are copied.
+   * @param parent parent context
+   */
+  public QueryContext(final QueryContext parent) {
+    context = parent.context;
+    nodes = parent.nodes;
+    inf = false;
+    sc = parent.sc;
+    maxCalls = parent.maxCalls;
+    modules = parent.modules;
+    resource = parent.resource;
+    stack = new QueryStack(parent.stack);
+    value = parent.value;
+    pos = parent.pos;
+    size = parent.size;
+    collations = parent.collations;
+    for(int n = 0; n < parent.ns.size(); n++) ns.add(parent.ns.name(n), parent.ns.value(n));
+    stop = parent.stop;
+    thes = parent.thes;
+    ftOpt = parent.ftOpt;
+    http = parent.http;
+    date = parent.date;
+    dtm = parent.dtm;
+    time = parent.time;
+    zone = parent.zone;
   }
 
   /**
@@ -191,6 +232,35 @@ public final class QueryContext extends Proc {
     return new QueryParser(qu, path, this).parseLibrary(true);
   }
 
+  /**
+   * Adopts a copy of the specified query, which has been parsed, but not compiled yet.
+   * The static context is shared, whereas functions, variables and the main module
+   * are copied, as they will be rewritten by the compiler.
+   * @param qc parsed query
+   */
+  void adopt(final QueryContext qc) {
+    sc = qc.sc;
+    // all declarations must exist before references to them are copied
+    funcs.declareCopies(qc.funcs, this);
+    vars.declareCopies(qc.vars);
+    funcs.copyBodies(qc.funcs, this);
+    vars.copyExprs(qc.vars, this);
+    if(qc.root != null) root = qc.root.copy(this);
+    if(qc.ctxItem != null) ctxItem = qc.ctxItem.copy(this);
+
+    // options of the prolog; the initial values of database options may have changed
+    dbOptions.add(qc.dbOptions);
+    for(final String key : qc.globalOpt.keySet()) globalOpt.put(key, context.prop.get(key));
+    readLocks.add(qc.readLocks);
+    writeLocks.add(qc.writeLocks);
+    if(qc.serProp != null) {
+      serProp = new SerializerProp();
+      for(final String key : qc.serProp) serProp.setObject(key, qc.serProp.get(key));
+    }
+    if(qc.ftOpt != null) ftOpt().copy(qc.ftOpt);
+    if(qc.updates != null) updating(qc.updating);
+  }
+
   /**
    * Sets the main module (root expression).
    * @param rt main module
@@ -421,6 +491,19 @@ public final class QueryContext extends Proc {
     return info.toString();
   }
 
+  /**
+   * Returns the namespace URI for the specified prefix, if it is either
+   * found in the dynamic, static or predefined namespaces.
+   * @param pref prefix of the namespace
+   * @return namespace URI or {@code null}
+   */
+  public byte[] nsURI(final byte[] pref) {
+    for(int n = ns.size() - 1; n >= 0; n--) {
+      if(eq(ns.name(n), pref)) return ns.value(n);
+    }
+    return sc.ns.uri(pref);
+  }
+
   /**
    * Returns JDBC connections.
    * @return jdbc connections
@@ -41,6 +41,19 @@ public final class QueryInfo {
    */
   public String toString(final QueryProcessor qp, final PrintOutput out,
       final long hits, final boolean detailed) {
+    return toString(qp, out.size(), hits, detailed);
+  }
+
+  /**
+   * Returns detailed query information.
+   * @param qp query processor
+   * @param printed number of printed bytes
+   * @param hits number of returned hits
+   * @param detailed return detailed query info
+   * @return query string
+   */
+  public String toString(final QueryProcessor qp, final long printed,
+      final long hits, final boolean detailed) {
 
     final TokenBuilder tb = new TokenBuilder();
     final long total = pars + cmpl + evlt + srlz;
@@ -54,7 +67,7 @@ public final class QueryInfo {
       tb.add(TOTAL_TIME_CC).add(Performance.getTime(total, runs)).add(NL).add(NL);
       tb.add(HITS_X_CC + hits).add(' ').add(hits == 1 ? ITEM : ITEMS).add(NL);
       tb.add(UPDATED_CC + up).add(' ').add(up == 1 ? ITEM : ITEMS).add(NL);
-      tb.add(PRINTED_CC).add(Performance.format(out.size())).add(NL);
+      tb.add(PRINTED_CC).add(Performance.format(printed)).add(NL);
       tb.add(READ_LOCKING_CC);
       if(readLocked == null) tb.add("global");
       else if(readLocked.isEmpty()) tb.add("none");
@@ -553,6 +553,7 @@ public class QueryParser extends InputParser {
       if(!decl.add("S " + key)) error(OUTDUPL, key);
       if(key.equals(SerializerProp.S_PARAMETER_DOCUMENT[0].toString())) {
         final IO io = IO.get(string(resolvedUri(val).string()));
+        ctx.cacheable = false;
         try {
           final ANode node = new DBNode(io, ctx.context.prop).children().next();
           // check parameters and add values to properties
@@ -760,8 +761,11 @@ public class QueryParser extends InputParser {
     // check built-in modules
     for(final byte[] u : Function.URIS.values()) if(eq(uri, u)) return;
 
-    // resolve module uri
-    if(ctx.modules.addImport(uri, info(), this)) return;
+    // resolve module uri (repository and Java modules are not cached)
+    if(ctx.modules.addImport(uri, info(), this)) {
+      ctx.cacheable = false;
+      return;
+    }
 
     error(NOMODULE, uri);
   }
@@ -799,9 +803,11 @@ public class QueryParser extends InputParser {
     }
     ctx.modParsed.put(p, uri);
 
-    // read module
+    // read module; cached queries will be invalidated if a module file changes
     String qu = null;
     try {
+      if(io instanceof IOFile) ctx.modTimes.put(io.path(), io.timeStamp());
+      else ctx.cacheable = false;
       qu = string(io.read());
     } catch(final IOException ex) {
       error(NOMODULEFILE, ctx.context.user.has(Perm.ADMIN) ? io.path() : io.name());
@@ -1765,6 +1771,10 @@ public class QueryParser extends InputParser {
         final Object obj = ctx.context.prop.get(key);
         if(obj == null) error(BASX_OPTIONS, key);
         el.add(new DBPragma(name, v));
+      } else if(eq(name.uri(), BASEXURI) && eq(name.local(), token(PARALLEL))) {
+        // parallel evaluation of FLWOR expressions
+        if(v.length != 0 && toInt(v) < 1) error(BASX_PRAGMA, name, v);
+        el.add(new ParallelPragma(name, v));
       }
       pos += 2;
     } while(wsConsumeWs(PRAGMA));
@@ -2140,6 +2150,7 @@ public class QueryParser extends InputParser {
       final long card = ex instanceof Int ? ((Int) ex).itr() : -1;
       if(card < 0 || card > Integer.MAX_VALUE) error(FUNCUNKNOWN, name);
       final Expr lit = Functions.getLiteral(name, (int) card, ctx, info());
+      if(lit instanceof FuncItem) ctx.cacheable = false;
       return lit != null ? lit : FuncLit.unknown(name, card, ctx, info());
     }
 
@@ -2315,6 +2326,7 @@ public class QueryParser extends InputParser {
           final int card = args.length + holes.length;
           final Expr lit = Functions.getLiteral(name, card, ctx, ii),
               f = lit != null ? lit : FuncLit.unknown(name, card, ctx, ii);
+          if(lit instanceof FuncItem) ctx.cacheable = false;
           ret = new PartFunc(ii, f, args, holes);
         } else {
           final TypedFunc f = Functions.get(name, args, false, ctx, ii);
@@ -2379,7 +2391,7 @@ public class QueryParser extends InputParser {
    */
   private Expr dirElement() throws QueryException {
     // cache namespace information
-    final int s = ctx.sc.ns.size();
+    final int s = ctx.ns.size();
     final byte[] nse = ctx.sc.nsElem;
     final int npos = names.size();
 
@@ -2461,7 +2473,7 @@ public class QueryParser extends InputParser {
             if(eq(pref, XML, XMLNS)) error(BINDXML, pref);
             if(eq(uri, XMLURI)) error(BINDXMLURI, uri, XML);
             if(eq(uri, XMLNSURI)) error(BINDXMLURI, uri, XMLNS);
-            ctx.sc.ns.add(pref, uri);
+            ctx.ns.add(pref, uri);
           } else {
             if(eq(uri, XMLURI)) error(XMLNSDEF, uri);
             ctx.sc.nsElem = uri;
@@ -2508,7 +2520,7 @@ public class QueryParser extends InputParser {
       }
     }
 
-    ctx.sc.ns.size(s);
+    ctx.ns.size(s);
     ctx.sc.nsElem = nse;
     return new CElem(info(), tag, ns, cont.finish());
   }
@@ -3403,6 +3415,7 @@ public class QueryParser extends InputParser {
               final String fn = string(stringLiteral());
               // optional: resolve URI reference
               final IO fl = ctx.stop != null ? ctx.stop.get(fn) : ctx.sc.io(fn);
+              ctx.cacheable = false;
               if(!opt.sw.read(fl, except)) error(NOSTOPFILE, fl);
             } else if(!union && !except) {
               error(FTSTOP);
@@ -3440,6 +3453,7 @@ public class QueryParser extends InputParser {
     final String fn = string(stringLiteral());
     // optional: resolve URI reference
     final IO fl = ctx.thes != null ? ctx.thes.get(fn) : ctx.sc.io(fn);
+    ctx.cacheable = false;
     final byte[] rel = wsConsumeWs(RELATIONSHIP) ? stringLiteral() : EMPTY;
     final Expr[] range = ftRange(true);
     long min = 0;
@@ -4004,7 +4018,7 @@ public class QueryParser extends InputParser {
       if(name.hasURI()) return true;
 
       if(name.hasPrefix()) {
-        name.uri(ctx.sc.ns.uri(name.prefix()));
+        name.uri(ctx.nsURI(name.prefix()));
         if(check && !name.hasURI()) error(NOURI, name.string());
       } else if(nsElem) {
         name.uri(ctx.sc.nsElem);
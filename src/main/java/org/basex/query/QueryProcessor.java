@@ -54,7 +54,7 @@ public final class QueryProcessor extends Proc {
   public void parse() throws QueryException {
     if(parsed) return;
     parsed = true;
-    ctx.parseMain(query, null);
+    ctx.context.queries.parse(query, ctx);
     updating = ctx.updating;
   }
 
@@ -175,6 +175,7 @@ public final class QueryProcessor extends Proc {
   public QueryProcessor namespace(final String prefix, final String uri)
       throws QueryException {
     ctx.sc.namespace(prefix, uri);
+    ctx.cacheable = false;
     return this;
   }
 
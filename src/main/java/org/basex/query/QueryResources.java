@@ -4,12 +4,17 @@ import static org.basex.query.util.Err.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.regex.*;
 
+import org.basex.build.*;
 import org.basex.core.*;
 import org.basex.core.cmd.*;
 import org.basex.data.*;
+import org.basex.data.atomic.*;
 import org.basex.io.*;
+import org.basex.query.iter.*;
 import org.basex.query.value.*;
+import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
 import org.basex.query.value.type.*;
@@ -40,6 +45,12 @@ public final class QueryResources {
   /** Number of collections. */
   private int colls;
 
+  /** Directories whose files are parsed lazily, indexed by their paths. */
+  private final HashMap<String, DirColl> dirs = new HashMap<String, DirColl>();
+
+  /** Temporary resources. */
+  private final ArrayList<Closeable> temp = new ArrayList<Closeable>();
+
   /**
    * Constructor.
    * @param qc query context
@@ -76,6 +87,16 @@ public final class QueryResources {
   void close() {
     for(int d = 0; d < datas; d++) Close.close(data[d], ctx.context);
     datas = 0;
+    synchronized(temp) {
+      for(final Closeable c : temp) {
+        try {
+          c.close();
+        } catch(final IOException ex) {
+          Util.debug(ex);
+        }
+      }
+      temp.clear();
+    }
   }
 
   /**
@@ -85,7 +106,8 @@ public final class QueryResources {
    * @return database instance
    * @throws QueryException query exception
    */
-  public Data data(final String name, final InputInfo info) throws QueryException {
+  public synchronized Data data(final String name, final InputInfo info)
+      throws QueryException {
     // check if a database with the same name has already been opened
     for(int d = 0; d < datas; ++d) {
       final String n = data[d].meta.name;
@@ -110,7 +132,8 @@ public final class QueryResources {
    * @return document
    * @throws QueryException query exception
    */
-  public DBNode doc(final QueryInput qi, final InputInfo info) throws QueryException {
+  public synchronized DBNode doc(final QueryInput qi, final InputInfo info)
+      throws QueryException {
     // check currently opened databases
     for(int d = 0; d < datas; ++d) {
       final Data dt = data[d];
@@ -136,7 +159,7 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final InputInfo info) throws QueryException {
+  public synchronized Value collection(final InputInfo info) throws QueryException {
     if(colls == 0) NODEFCOLL.thrw(info);
     return coll[0];
   }
@@ -149,35 +172,20 @@ public final class QueryResources {
    * @return collection
    * @throws QueryException query exception
    */
-  public Value collection(final String input, final InputInfo info)
+  public synchronized Value collection(final String input, final InputInfo info)
       throws QueryException {
 
-    // merge input with base directory
-    final IO base = ctx.sc.baseIO();
-    final String in = base != null ? base.merge(input).path() : null;
-
     // check currently opened collections
-    if(in != null) {
-      final String[] names = { in, input };
-      for(int c = 0; c < colls; c++) {
-        final String n = collName[c];
-        if(Prop.CASE ? Token.eq(n, names) : Token.eqic(n, names)) return coll[c];
-      }
-    }
+    final Value cl = openedColl(input);
+    if(cl != null) return cl;
+
+    // check directories that are currently parsed
+    final DirColl dc = dirColl(input, false);
+    if(dc != null) return dc.value(info);
 
     // check currently opened databases
     final QueryInput qi = new QueryInput(input);
-    Data dt = null;
-    for(int i = 0; i < datas; ++i) {
-      // return database instance with the same name or file path
-      final Data d = data[i];
-      final String n = d.meta.name;
-      if(Prop.CASE ? n.equals(qi.db) : n.equalsIgnoreCase(qi.db) ||
-          IO.get(d.meta.original).eq(qi.input)) {
-        dt = d;
-        break;
-      }
-    }
+    Data dt = openedData(qi);
 
     // open new database, or create new instance
     if(dt == null) dt = open(qi);
@@ -185,6 +193,46 @@ public final class QueryResources {
     return DBNodeSeq.get(dt.resources.docs(qi.path), dt, true, qi.path.isEmpty());
   }
 
+  /**
+   * Evaluates {@code fn:collection()} iteratively. If the input points to a directory
+   * that has not been opened as database, its files will only be parsed when the
+   * iterator requests the next document. Otherwise, the result of
+   * {@link #collection(String, InputInfo)} is returned.
+   * @param input collection path
+   * @param info input info
+   * @return collection iterator
+   * @throws QueryException query exception
+   */
+  public Iter collectionIter(final String input, final InputInfo info)
+      throws QueryException {
+
+    final DirColl dc;
+    synchronized(this) {
+      dc = dirColl(input, true);
+    }
+    if(dc == null) return collection(input, info).iter();
+
+    return new Iter() {
+      /** Position of the next document. */
+      private int p;
+
+      @Override
+      public Item next() throws QueryException {
+        return dc.get(p++, info);
+      }
+    };
+  }
+
+  /**
+   * Checks if the specified collection path addresses a directory whose files will be
+   * parsed lazily by {@link #collectionIter(String, InputInfo)}.
+   * @param input collection path
+   * @return result of check
+   */
+  public synchronized boolean lazy(final String input) {
+    return directory(input) != null;
+  }
+
   /**
    * Adds a document with the specified path. Only called from the test APIs.
    * @param name document identifier (may be {@code null})
@@ -226,6 +274,75 @@ public final class QueryResources {
 
   // PRIVATE METHODS ====================================================================
 
+  /**
+   * Returns a collection that has already been opened, or {@code null}.
+   * @param input collection path
+   * @return collection
+   */
+  private Value openedColl(final String input) {
+    // merge input with base directory
+    final IO base = ctx.sc.baseIO();
+    final String[] names = base != null ?
+        new String[] { base.merge(input).path(), input, IO.get(input).path() } :
+        new String[] { input, IO.get(input).path() };
+    for(int c = 0; c < colls; c++) {
+      final String n = collName[c];
+      if(Prop.CASE ? Token.eq(n, names) : Token.eqic(n, names)) return coll[c];
+    }
+    return null;
+  }
+
+  /**
+   * Returns an opened database with the same name or file path, or {@code null}.
+   * @param qi query input
+   * @return data reference
+   */
+  private Data openedData(final QueryInput qi) {
+    for(int i = 0; i < datas; ++i) {
+      final Data d = data[i];
+      final String n = d.meta.name;
+      if(Prop.CASE ? n.equals(qi.db) : n.equalsIgnoreCase(qi.db) ||
+          IO.get(d.meta.original).eq(qi.input)) return d;
+    }
+    return null;
+  }
+
+  /**
+   * Returns a directory collection whose files are parsed lazily, or {@code null}.
+   * @param input collection path
+   * @param create create a new collection if none exists yet
+   * @return directory collection
+   */
+  private DirColl dirColl(final String input, final boolean create) {
+    final IOFile dir = directory(input);
+    if(dir == null) return null;
+    DirColl dc = dirs.get(dir.path());
+    if(dc == null && create) {
+      dc = new DirColl(dir);
+      dirs.put(dir.path(), dc);
+    }
+    return dc;
+  }
+
+  /**
+   * Returns the directory addressed by the specified collection path, or {@code null}
+   * if the collection has already been opened, or if it refers to a database.
+   * @param input collection path
+   * @return directory
+   */
+  private IOFile directory(final String input) {
+    if(ctx.context.prop.is(Prop.FORCECREATE) || openedColl(input) != null) return null;
+    final QueryInput qi = new QueryInput(input);
+    if(openedData(qi) != null || qi.db != null && ctx.context.mprop.dbexists(qi.db))
+      return null;
+
+    // resolve path relative to base uri
+    IO io = qi.input;
+    final IO base = ctx.sc.baseIO();
+    if(!io.exists() && base != null) io = IO.get(base.merge(input).path());
+    return io instanceof IOFile && io.isDir() ? (IOFile) io : null;
+  }
+
   /**
    * Tries to open the addressed database, or returns {@code null}.
    * @param input query input
@@ -318,6 +435,14 @@ public final class QueryResources {
     data[datas++] = d;
   }
 
+  /**
+   * Adds a temporary resource, which will be closed when the query is closed.
+   * @param res resource to be added
+   */
+  public void addTemp(final Closeable res) {
+    synchronized(temp) { temp.add(res); }
+  }
+
   /**
    * Removes and closes a database if it has not been added by the global context.
    * @param name name of database to be removed
@@ -347,4 +472,102 @@ public final class QueryResources {
     coll[colls] = nodes;
     collName[colls++] = name;
   }
+
+  /**
+   * Collection of the files of a directory, which are parsed one by one when the
+   * next document is requested. All documents are appended to a single main memory
+   * instance, so that they have a stable document order, and they are kept until the
+   * query is closed, so that repeated calls will return the same nodes.
+   */
+  private final class DirColl {
+    /** Files and directories to be parsed. */
+    private final LinkedList<IOFile> files = new LinkedList<IOFile>();
+    /** Parsed documents. */
+    private final ArrayList<DBNode> docs = new ArrayList<DBNode>();
+    /** Properties. */
+    private final Prop prop = ctx.context.prop;
+    /** File pattern. */
+    private final Pattern filter =
+        Pattern.compile(IOFile.regex(prop.get(Prop.CREATEFILTER)));
+    /** Path of the root directory, ending with a slash. */
+    private final String root;
+    /** Main memory instance, containing all parsed documents. */
+    private final MemData data;
+
+    /**
+     * Constructor.
+     * @param dir directory
+     */
+    DirColl(final IOFile dir) {
+      files.add(dir);
+      final String path = dir.path();
+      root = path.endsWith("/") ? path : path + '/';
+      data = new MemData(prop);
+      data.meta.name = dir.dbname();
+      data.meta.original = path;
+    }
+
+    /**
+     * Returns the document at the specified position, or {@code null}.
+     * @param p position
+     * @param info input info
+     * @return document node
+     * @throws QueryException query exception
+     */
+    synchronized DBNode get(final int p, final InputInfo info) throws QueryException {
+      while(p >= docs.size()) {
+        if(files.isEmpty()) return null;
+        ctx.checkStop();
+        final IOFile file = files.removeFirst();
+        if(file.isDir()) {
+          files.addAll(0, Arrays.asList(file.children()));
+        } else {
+          final Data dt = parse(file, info);
+          if(dt == null || dt.meta.size == 0) continue;
+          // append documents to the main memory instance
+          int pre = data.meta.size;
+          data.insert(pre, -1, new DataClip(dt));
+          for(final int size = data.meta.size; pre < size; pre += data.size(pre, Data.DOC)) {
+            docs.add(new DBNode(data, pre, Data.DOC));
+          }
+        }
+      }
+      return docs.get(p);
+    }
+
+    /**
+     * Parses all remaining files and returns the collection.
+     * @param info input info
+     * @return collection
+     * @throws QueryException query exception
+     */
+    synchronized Value value(final InputInfo info) throws QueryException {
+      int p = docs.size();
+      while(get(p, info) != null) p++;
+      return Seq.get(docs.toArray(new DBNode[p]), p, NodeType.DOC);
+    }
+
+    /**
+     * Parses the specified file, or returns {@code null} if it is skipped.
+     * @param file file
+     * @param info input info
+     * @return data reference
+     * @throws QueryException query exception
+     */
+    private Data parse(final IOFile file, final InputInfo info) throws QueryException {
+      final String nm = Prop.CASE ? file.name() : file.name().toLowerCase(Locale.ENGLISH);
+      final boolean arc = prop.is(Prop.ADDARCHIVES) &&
+          (file.isArchive() || nm.endsWith(IO.GZSUFFIX));
+      if(!arc && !filter.matcher(nm).matches()) return null;
+      try {
+        // archives may contain several documents; paths are chosen as in DirParser
+        return MemBuilder.build("", arc ? new DirParser(file, prop, null) :
+          Parser.singleParser(file, prop, file.dirPath().substring(root.length())));
+      } catch(final IOException ex) {
+        if(!prop.is(Prop.SKIPCORRUPT)) throw IOERR.thrw(info, ex);
+        Util.debug(ex);
+        return null;
+      }
+    }
+  }
 }
@@ -14,12 +14,31 @@ public class QueryStack {
   /** Initial stack size. */
   private static final int INIT = 1 << 5;
   /** The stack. */
-  private Value[] stack = new Value[INIT];
+  private Value[] stack;
   /** The frame pointer, marking the start of the current stack frame. */
   private int fp;
   /** The stack limit, marking the end of the current stack frame. */
   private int sl;
 
+  /**
+   * Constructor.
+   */
+  public QueryStack() {
+    stack = new Value[INIT];
+  }
+
+  /**
+   * Constructor, copying the bindings of the current stack frame of the specified stack.
+   * @param st stack
+   */
+  public QueryStack(final QueryStack st) {
+    sl = st.sl - st.fp;
+    int len = INIT;
+    while(sl > len) len *= 2;
+    stack = new Value[len];
+    System.arraycopy(st.stack, st.fp, stack, 0, sl);
+  }
+
   /**
    * Enters a new stack frame.
    * @param size size of this frame
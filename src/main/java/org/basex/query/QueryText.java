@@ -215,6 +215,8 @@ public interface QueryText {
   /** Parser token. */
   String PARAGRAPHS = "paragraphs";
   /** Parser token. */
+  String PARALLEL = "parallel";
+  /** Parser token. */
   String PHRASE = "phrase";
   /** Parser token. */
   String PRESERVE = "preserve";
@@ -689,6 +691,8 @@ public interface QueryText {
   /** Query Plan. */
   byte[] RET = token("Return");
   /** Query Plan. */
+  byte[] AGGR = token("Aggregate");
+  /** Query Plan. */
   byte[] DIR = token("dir");
   /** Query Plan. */
   byte[] PRE = token("pre");
@@ -769,6 +773,14 @@ public interface QueryText {
   /** Optimization info. */
   String OPTWHERE2 = "rewriting where clause(s)";
   /** Optimization info. */
+  String OPTHASHJOIN = "rewriting % to hash join";
+  /** Optimization info. */
+  String OPTPARALLEL = "evaluating % in parallel";
+  /** Optimization info. */
+  String OPTTOPK = "sorting the first % tuples of %";
+  /** Optimization info. */
+  String OPTAGGR = "aggregating %";
+  /** Optimization info. */
   String OPTPRED = "rewriting % to predicate(s)";
   /** Optimization info. */
   String OPTCAST = "removing redundant % cast.";
@@ -783,6 +795,8 @@ public interface QueryText {
   /** Optimization info. */
   String OPTATVINDEX = "applying attribute index";
   /** Optimization info. */
+  String OPTINTERSECT = "intersecting % index results";
+  /** Optimization info. */
   String OPTFTXINDEX = "applying full-text index";
   /** Optimization info. */
   String OPTRNGINDEX = "applying range index";
@@ -82,6 +82,14 @@ public abstract class StaticScope extends ExprInfo implements Scope {
     return map;
   }
 
+  /**
+   * Returns the unparsed documentation of this scope.
+   * @return documentation, or {@code null}
+   */
+  protected final String xqdoc() {
+    return doc == null ? null : Token.string(doc);
+  }
+
   /**
    * Adds a key and a value to the specified map.
    * @param key key
@@ -44,7 +44,7 @@ public final class CElem extends CName {
   public CElem compile(final QueryContext ctx, final VarScope scp) throws QueryException {
     final int s = prepare(ctx);
     super.compile(ctx, scp);
-    ctx.sc.ns.size(s);
+    ctx.ns.size(s);
     return this;
   }
 
@@ -69,12 +69,12 @@ public final class CElem extends CName {
       // analyze element namespace unless it is "xml"
       if(!eq(cp, XML)) {
         // request namespace for the specified uri
-        final byte[] uri = ctx.sc.ns.uri(cp);
+        final byte[] uri = ctx.nsURI(cp);
 
         // check if element has a namespace
         if(nm.hasURI()) {
           // add to statically known namespaces
-          if(!comp && (uri == null || !eq(uri, cu))) ctx.sc.ns.add(cp, cu);
+          if(!comp && (uri == null || !eq(uri, cu))) ctx.ns.add(cp, cu);
           // add to in-scope namespaces
           if(!ns.contains(cp)) ns.add(cp, cu);
         } else {
@@ -121,7 +121,7 @@ public final class CElem extends CName {
       }
 
       // add inherited namespaces
-      final Atts stack = ctx.sc.ns.stack();
+      final Atts stack = ctx.ns;
       for(int a = stack.size() - 1; a >= 0; a--) {
         final byte[] pref = stack.name(a);
         if(!ns.contains(pref)) ns.add(pref, stack.value(a));
@@ -142,7 +142,7 @@ public final class CElem extends CName {
       return node.optimize();
 
     } finally {
-      ctx.sc.ns.size(s);
+      ctx.ns.size(s);
     }
   }
 
@@ -224,7 +224,7 @@ public final class CElem extends CName {
    * @return old stack position
    */
   private int prepare(final QueryContext ctx) {
-    final NSContext ns = ctx.sc.ns;
+    final Atts ns = ctx.ns;
     final int s = ns.size();
     for(int n = 0; n < nspaces.size(); n++) ns.add(nspaces.name(n), nspaces.value(n));
     return s;
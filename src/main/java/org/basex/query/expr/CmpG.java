@@ -2,7 +2,11 @@ package org.basex.query.expr;
 
 import static org.basex.query.QueryText.*;
 
+import java.util.ArrayList;
+
+import org.basex.data.*;
 import org.basex.index.*;
+import org.basex.index.stats.*;
 import org.basex.index.query.*;
 import org.basex.query.*;
 import org.basex.query.expr.CmpV.OpV;
@@ -26,6 +30,16 @@ import org.basex.util.hash.*;
  * @author Christian Gruen
  */
 public final class CmpG extends Cmp {
+  /** Minimum number of items of a value for which a hash lookup will be created. */
+  private static final int HASHSIZE = 32;
+  /** Views on texts of database nodes. */
+  private static final ThreadLocal<TokenView> VIEW = new ThreadLocal<TokenView>() {
+    @Override
+    protected TokenView initialValue() {
+      return new TokenView();
+    }
+  };
+
   /** Comparators. */
   public enum OpG {
     /** General comparison: less or equal. */
@@ -110,7 +124,7 @@ public final class CmpG extends Cmp {
   }
 
   /** Comparator. */
-  OpG op;
+  public OpG op;
   /** Index expression. */
   private ValueAccess[] va = {};
   /** Flag for atomic evaluation. */
@@ -227,7 +241,26 @@ public final class CmpG extends Cmp {
     if(s1 && expr[1].size() == 1)
       return Bln.get(eval(ir1.next(), expr[1].item(ctx, info), ctx.sc.collation));
 
-    Iter ir2 = ctx.iter(expr[1]);
+    // compare items with a large value (e.g., bound to a variable) via hash lookups;
+    // the lookup will be reused as long as the same value is compared
+    final Expr e2 = expr[1];
+    Iter ir2;
+    if(op == OpG.EQ && ctx.sc.collation == null &&
+        (e2 instanceof VarRef || e2.isValue())) {
+      final Value v = e2.value(ctx);
+      if(v.size() >= HASHSIZE) {
+        final Lookup lu = lookup(v, ctx);
+        if(lu.valid) {
+          for(Item it; (it = ir1.next()) != null;) {
+            if(lu.contains(it)) return Bln.TRUE;
+          }
+          return Bln.FALSE;
+        }
+      }
+      ir2 = v.iter();
+    } else {
+      ir2 = ctx.iter(e2);
+    }
     final long is2 = ir2.size();
 
     // skip empty result
@@ -279,6 +312,18 @@ public final class CmpG extends Cmp {
    */
   private boolean eval(final Item a, final Item b, final Collation coll)
       throws QueryException {
+    // compare database texts with strings without copying them
+    if(coll == null && (op == OpG.EQ || op == OpG.NE)) {
+      final boolean na = a instanceof DBNode, nb = b instanceof DBNode;
+      if(na != nb) {
+        final Item it = na ? b : a;
+        if(!(it instanceof FItem) && it.type.isStringOrUntyped()) {
+          final TokenView tv = text((DBNode) (na ? a : b));
+          if(tv != null) return tv.eq(it.string(info)) == (op == OpG.EQ);
+        }
+      }
+    }
+
     final Type ta = a.type, tb = b.type;
     if(!(a instanceof FItem || b instanceof FItem) &&
         (ta == tb || ta.isUntyped() || tb.isUntyped() ||
@@ -287,6 +332,35 @@ public final class CmpG extends Cmp {
     throw Err.INVTYPECMP.thrw(info, ta, tb);
   }
 
+  /**
+   * Returns a hash lookup for the specified value.
+   * @param v value
+   * @param ctx query context
+   * @return lookup
+   * @throws QueryException query exception
+   */
+  private Lookup lookup(final Value v, final QueryContext ctx) throws QueryException {
+    // lookups are stored in the query context, as the same expression may be
+    // evaluated by several threads at the same time
+    Lookup lu = (Lookup) ctx.lookups.get(this);
+    if(lu == null || lu.value != v) {
+      lu = new Lookup(v);
+      ctx.lookups.put(this, lu);
+    }
+    return lu;
+  }
+
+  /**
+   * Returns a view on the string value of a database text or attribute.
+   * @param node database node
+   * @return view, or {@code null} if the node is of another kind
+   */
+  private static TokenView text(final DBNode node) {
+    final int k = node.data.kind(node.pre);
+    return k == Data.TEXT || k == Data.ATTR ?
+      node.data.text(node.pre, k == Data.TEXT, VIEW.get()) : null;
+  }
+
   @Override
   public CmpG invert() {
     return expr[0].size() != 1 || expr[1].size() != 1 ? this :
@@ -323,6 +397,7 @@ public final class CmpG extends Cmp {
 
     // support expressions
     final IndexType ind = text ? IndexType.TEXT : IndexType.ATTRIBUTE;
+    final Stats stats = ic.stats(expr[0], text);
     final Expr arg = expr[1];
     if(!arg.isValue()) {
       final SeqType t = arg.type();
@@ -335,7 +410,7 @@ public final class CmpG extends Cmp {
       if(!t.type.isStringOrUntyped() || arg.has(Flag.CTX) || arg.has(Flag.NDT))
         return false;
 
-      ic.addCosts(ic.data.meta.size / 10);
+      ic.addCosts(ic.estimate(stats, null, -1));
       va = Array.add(va, new ValueAccess(info, arg, ind, ic.data, ic.iterable));
       return true;
     }
@@ -347,11 +422,12 @@ public final class CmpG extends Cmp {
     while((it = ir.next()) != null) {
       if(!it.type.isStringOrUntyped()) return false;
 
-      final int is = ic.data.count(new StringToken(ind, it.string(info)));
+      final byte[] str = it.string(info);
+      final int is = ic.data.count(new StringToken(ind, str));
       // add only expressions that yield results
       if(is != 0) {
         va = Array.add(va, new ValueAccess(info, it, ind, ic.data, ic.iterable));
-        ic.addCosts(is);
+        ic.addCosts(ic.estimate(stats, str, is));
       }
     }
     return true;
@@ -400,4 +476,178 @@ public final class CmpG extends Cmp {
   public String toString() {
     return toString(" " + op + ' ');
   }
+
+  /**
+   * Hash lookup for the items of a value, which is compared with single items.
+   * Equality of strings and untyped values is checked via string hashes, and
+   * numbers are hashed by their double values. If a comparison may raise an error,
+   * the item is compared with all items of the value in their original order.
+   */
+  private final class Lookup {
+    /** Indexed value. */
+    final Value value;
+    /** Indicates if all items of the value have been indexed. */
+    final boolean valid;
+    /** Strings and untyped values. */
+    private final HashItemSet strings = new HashItemSet();
+    /** Numbers. */
+    private final Numbers numbers = new Numbers();
+    /** Untyped values (will be indexed as numbers on demand). */
+    private final ValueBuilder untyped = new ValueBuilder();
+    /** Indicates if the value contains strings. */
+    private final boolean str;
+    /** Indicates if the value contains numbers. */
+    private final boolean num;
+    /** Untyped values, indexed as numbers. */
+    private Numbers unums;
+    /** Indicates if the value contains untyped values that are no numbers. */
+    private boolean nan;
+
+    /**
+     * Constructor.
+     * @param v value to be indexed
+     * @throws QueryException query exception
+     */
+    Lookup(final Value v) throws QueryException {
+      value = v;
+      boolean s = false, n = false, ok = true;
+      final Iter ir = v.iter();
+      for(Item it; ok && (it = ir.next()) != null;) {
+        if(it instanceof ANum) {
+          n = true;
+          numbers.add(it.dbl(info), it);
+        } else if(it instanceof FItem) {
+          ok = false;
+        } else if(it.type.isUntyped()) {
+          strings.add(Str.get(it.string(info)), info);
+          untyped.add(it);
+        } else if(it instanceof AStr) {
+          s = true;
+          strings.add(Str.get(it.string(info)), info);
+        } else {
+          ok = false;
+        }
+      }
+      str = s;
+      num = n;
+      valid = ok;
+    }
+
+    /**
+     * Checks if the specified item is equal to an item of the value.
+     * @param it item to be compared
+     * @return result of check
+     * @throws QueryException query exception
+     */
+    boolean contains(final Item it) throws QueryException {
+      if(it instanceof ANum) {
+        // numbers cannot be compared with strings
+        final Numbers un = unums();
+        if(str || nan) return scan(it);
+        final double d = it.dbl(info);
+        return numbers.contains(d, it) || un.contains(d, it);
+      }
+      if(it instanceof FItem) return scan(it);
+      if(it.type.isUntyped()) {
+        double d = Double.NaN;
+        if(num) {
+          try {
+            d = it.dbl(info);
+          } catch(final QueryException ex) {
+            return scan(it);
+          }
+        }
+        return string(it) || numbers.contains(d, it);
+      }
+      // strings cannot be compared with numbers
+      if(it instanceof AStr && !num) return string(it);
+      return scan(it);
+    }
+
+    /**
+     * Checks if the string value of the specified item has been indexed.
+     * @param it item
+     * @return result of check
+     * @throws QueryException query exception
+     */
+    private boolean string(final Item it) throws QueryException {
+      return strings.id(Str.get(it.string(info)), info) != 0;
+    }
+
+    /**
+     * Compares the specified item with all items of the value.
+     * @param it item to be compared
+     * @return result of check
+     * @throws QueryException query exception
+     */
+    private boolean scan(final Item it) throws QueryException {
+      final Iter ir = value.iter();
+      for(Item i; (i = ir.next()) != null;) if(eval(it, i, null)) return true;
+      return false;
+    }
+
+    /**
+     * Returns the untyped values, indexed as numbers.
+     * @return numbers
+     */
+    private Numbers unums() {
+      if(unums == null) {
+        final Numbers un = new Numbers();
+        final long us = untyped.size();
+        for(int u = 0; u < us; u++) {
+          final Item it = untyped.get(u);
+          try {
+            un.add(it.dbl(info), it);
+          } catch(final QueryException ex) {
+            nan = true;
+          }
+        }
+        unums = un;
+      }
+      return unums;
+    }
+  }
+
+  /**
+   * Hash lookup for numbers.
+   */
+  private final class Numbers {
+    /** Normalized double values. */
+    private final HashItemSet keys = new HashItemSet();
+    /** Items with the same double value. */
+    private final ArrayList<ValueBuilder> items = new ArrayList<ValueBuilder>();
+
+    /**
+     * Adds a number.
+     * @param d double value
+     * @param it item
+     * @throws QueryException query exception
+     */
+    void add(final double d, final Item it) throws QueryException {
+      // NaN is never equal to any value
+      if(Double.isNaN(d)) return;
+      final int id = keys.put(Dbl.get(d == 0 ? 0 : d), info);
+      if(id > items.size()) items.add(new ValueBuilder());
+      items.get(id - 1).add(it);
+    }
+
+    /**
+     * Checks if the specified item is equal to one of the indexed numbers.
+     * @param d double value of the item
+     * @param it item
+     * @return result of check
+     * @throws QueryException query exception
+     */
+    boolean contains(final double d, final Item it) throws QueryException {
+      if(Double.isNaN(d)) return false;
+      final int id = keys.id(Dbl.get(d == 0 ? 0 : d), info);
+      if(id == 0) return false;
+      // different numbers may have the same double value
+      final ValueBuilder vb = items.get(id - 1);
+      final long vs = vb.size();
+      for(int v = 0; v < vs; v++) if(eval(it, vb.get(v), null)) return true;
+      return false;
+    }
+  }
+
 }
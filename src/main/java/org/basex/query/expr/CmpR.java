@@ -3,13 +3,11 @@ package org.basex.query.expr;
 import static org.basex.query.QueryText.*;
 
 import org.basex.index.*;
-import org.basex.index.name.*;
 import org.basex.index.query.*;
 import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.iter.*;
 import org.basex.query.path.*;
-import org.basex.query.path.Test.Mode;
 import org.basex.query.util.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
@@ -131,14 +129,15 @@ public final class CmpR extends Single {
     final boolean attr = s.test.type == NodeType.ATT && ic.data.meta.attrindex;
     if(!text && !attr || !mni || !mxi) return false;
 
-    final Stats key = key(ic, text);
-    if(key == null) return false;
+    final Stats key = ic.stats(expr, text);
+    if(key == null || key.type != StatsType.INTEGER && key.type != StatsType.DOUBLE)
+      return false;
 
     // estimate costs for range access; all values out of range: no results
     rt = new NumericRange(text ? IndexType.TEXT : IndexType.ATTRIBUTE,
         Math.max(min, key.min), Math.min(max, key.max));
     ic.costs(rt.min > rt.max || rt.max < key.min || rt.min > key.max ? 0 :
-      Math.max(1, ic.data.meta.size / 5));
+      ic.estimate(key, rt.min, rt.max));
 
     // use index if costs are zero, or if min/max is not infinite
     return ic.costs() == 0 || min != Double.NEGATIVE_INFINITY &&
@@ -152,34 +151,6 @@ public final class CmpR extends Single {
     return ic.invert(expr, new RangeAccess(info, rt, ic.data, ic.iterable), text);
   }
 
-  /**
-   * Retrieves the statistics key for the tag/attribute name.
-   * @param ic index context
-   * @param text text flag
-   * @return key
-   */
-  private Stats key(final IndexContext ic, final boolean text) {
-    // statistics are not up-to-date
-    if(!ic.data.meta.uptodate || ic.data.nspaces.size() != 0) return null;
-
-    final AxisPath path = (AxisPath) expr;
-    final int st = path.steps.length;
-
-    final Step step;
-    if(text) {
-      step = st == 1 ? ic.step : path.step(st - 2);
-      if(!(step.test.mode == Mode.NAME)) return null;
-    } else {
-      step = path.step(st - 1);
-      if(!step.simple(Axis.ATTR, true)) return null;
-    }
-
-    final Names names = text ? ic.data.tagindex : ic.data.atnindex;
-    final Stats key = names.stat(names.id(((NameTest) step.test).ln));
-    return key == null || key.type == StatsType.INTEGER ||
-        key.type == StatsType.DOUBLE ? key : null;
-  }
-
   @Override
   public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
     return new CmpR(expr.copy(ctx, scp, vs), min, mni, max, mxi, info);
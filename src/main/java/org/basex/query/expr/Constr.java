@@ -58,7 +58,7 @@ public final class Constr {
    * @throws QueryException query exception
    */
   public Constr add(final Expr... expr) throws QueryException {
-    final int s = ctx.sc.ns.size();
+    final int s = ctx.ns.size();
     try {
       for(final Expr e : expr) {
         more = false;
@@ -68,7 +68,7 @@ public final class Constr {
       if(!text.isEmpty()) children.add(new FTxt(text.finish()));
       return this;
     } finally {
-      ctx.sc.ns.size(s);
+      ctx.ns.size(s);
     }
   }
 
@@ -118,7 +118,7 @@ public final class Constr {
         atts.add(new FAttr(name, node.string()));
 
         if(name.hasURI()) {
-          ctx.sc.ns.add(name.prefix(), name.uri());
+          ctx.ns.add(name.prefix(), name.uri());
         }
 
       } else if(ip == NodeType.NSP) {
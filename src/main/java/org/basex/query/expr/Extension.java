@@ -41,6 +41,7 @@ public final class Extension extends Single {
     try {
       for(final Pragma p : pragmas) p.init(ctx, info);
       expr = expr.compile(ctx, scp);
+      for(final Pragma p : pragmas) p.apply(expr, ctx);
       type = expr.type();
       size = expr.size();
     } finally {
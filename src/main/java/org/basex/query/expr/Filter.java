@@ -1,6 +1,7 @@
 package org.basex.query.expr;
 
 import org.basex.query.*;
+import org.basex.query.gflwor.*;
 import org.basex.query.path.*;
 import org.basex.query.util.*;
 import org.basex.query.value.*;
@@ -80,6 +81,10 @@ public abstract class Filter extends Preds {
    * @return compiled expression
    */
   private Expr opt(final QueryContext ctx) {
+    // only sort the tuples of a FLWOR expression that will be returned
+    if(root instanceof GFLWOR && preds[0] instanceof Pos)
+      ((GFLWOR) root).limit(((Pos) preds[0]).max, ctx);
+
     // evaluate return type
     final SeqType t = root.type();
 
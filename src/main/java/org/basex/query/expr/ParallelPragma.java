@@ -0,0 +1,46 @@
+package org.basex.query.expr;
+
+import static org.basex.util.Token.*;
+
+import org.basex.query.*;
+import org.basex.query.gflwor.*;
+import org.basex.query.value.item.*;
+import org.basex.util.*;
+
+/**
+ * Pragma for evaluating FLWOR expressions in parallel. The optional value specifies
+ * the number of partitions; by default, all available processors will be used.
+ * The partitions are evaluated by worker threads that are shared by all queries.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelPragma extends Pragma {
+  /**
+   * Constructor.
+   * @param n name of pragma
+   * @param v optional value
+   */
+  public ParallelPragma(final QNm n, final byte[] v) {
+    super(n, v);
+  }
+
+  @Override
+  void init(final QueryContext ctx, final InputInfo info) { }
+
+  @Override
+  void finish(final QueryContext ctx) { }
+
+  @Override
+  void apply(final Expr expr, final QueryContext ctx) {
+    if(!(expr instanceof GFLWOR)) return;
+    final int t = value.length == 0 ? Runtime.getRuntime().availableProcessors() :
+      toInt(value);
+    ((GFLWOR) expr).parallel(t, ctx);
+  }
+
+  @Override
+  public Pragma copy() {
+    return new ParallelPragma(name, value);
+  }
+}
@@ -49,6 +49,14 @@ public abstract class Pragma extends ExprInfo {
    */
   abstract void finish(final QueryContext ctx);
 
+  /**
+   * Applies the pragma to the compiled expression.
+   * @param expr compiled expression
+   * @param ctx query context
+   */
+  @SuppressWarnings("unused")
+  void apply(final Expr expr, final QueryContext ctx) { }
+
   @Override
   public final String toString() {
     final TokenBuilder tb = new TokenBuilder(PRAGMA + ' ' + name + ' ');
@@ -6,6 +6,7 @@ import static org.basex.query.value.type.AtomType.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.expr.CmpV.OpV;
+import org.basex.query.gflwor.*;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
 import org.basex.query.value.item.*;
@@ -32,7 +33,17 @@ public final class FNAggr extends StandardFunc {
 
   @Override
   public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
-    final Iter iter = ctx.iter(expr[0]);
+    return aggregate(ctx.iter(expr[0]), ctx);
+  }
+
+  /**
+   * Aggregates the items returned by the specified iterator.
+   * @param iter iterator
+   * @param ctx query context
+   * @return resulting item
+   * @throws QueryException query exception
+   */
+  public Item aggregate(final Iter iter, final QueryContext ctx) throws QueryException {
     switch(sig) {
       case COUNT:
         long c = iter.size();
@@ -55,7 +66,7 @@ public final class FNAggr extends StandardFunc {
         it = iter.next();
         return it == null ? null : sum(iter, it, true);
       default:
-        return super.item(ctx, ii);
+        return super.item(ctx, info);
     }
   }
 
@@ -63,6 +74,9 @@ public final class FNAggr extends StandardFunc {
   protected Expr opt(final QueryContext ctx) throws QueryException {
     // skip non-deterministic and variable expressions
     final Expr e = expr[0];
+    // compute aggregates of non-grouping variables while the groups are built
+    if(e instanceof GroupBy.PostRef && expr.length == 1)
+      return ((GroupBy.PostRef) e).aggregate(sig, type(), ctx);
     if(e.has(Flag.NDT) || e instanceof VarRef) return this;
 
     final long c = e.size();
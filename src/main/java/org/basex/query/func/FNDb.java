@@ -205,7 +205,7 @@ public final class FNDb extends StandardFunc {
 
     // parse and compile the name test
     final QNm nm = new QNm(checkStr(expr[a], ctx), ctx);
-    if(!nm.hasPrefix()) nm.uri(ctx.sc.ns.uri(Token.EMPTY));
+    if(!nm.hasPrefix()) nm.uri(ctx.nsURI(Token.EMPTY));
 
     final NameTest nt = new NameTest(nm, NameTest.Mode.STD, true);
     // no results expected: return empty sequence
@@ -46,7 +46,7 @@ public final class FNGen extends StandardFunc {
   public Iter iter(final QueryContext ctx) throws QueryException {
     switch(sig) {
       case DATA:                return dataa(ctx);
-      case COLLECTION:          return collection(ctx).iter();
+      case COLLECTION:          return collectionIter(ctx);
       case URI_COLLECTION:      return uriCollection(ctx);
       case UNPARSED_TEXT_LINES: return unparsedTextLines(ctx);
       default:                  return super.iter(ctx);
@@ -76,6 +76,13 @@ public final class FNGen extends StandardFunc {
     }
   }
 
+  @Override
+  protected boolean preEvaluate(final QueryContext ctx) throws QueryException {
+    // files of directories will be parsed when the collection is evaluated
+    return sig != Function.COLLECTION || expr.length == 0 ||
+      !ctx.resource.lazy(string(checkEStr(expr[0].item(ctx, info))));
+  }
+
   @Override
   protected Expr opt(final QueryContext ctx) throws QueryException {
     if(sig == Function.DATA && expr.length == 1) {
@@ -121,6 +128,22 @@ public final class FNGen extends StandardFunc {
     return ctx.resource.collection(string(in), info);
   }
 
+  /**
+   * Performs the collection function iteratively.
+   * @param ctx query context
+   * @return result
+   * @throws QueryException query exception
+   */
+  private Iter collectionIter(final QueryContext ctx) throws QueryException {
+    // return default collection
+    if(expr.length == 0) return ctx.resource.collection(info).iter();
+
+    // check if reference is valid
+    final byte[] in = checkEStr(expr[0].item(ctx, info));
+    if(!Uri.uri(in).isValid()) INVCOLL.thrw(info, in);
+    return ctx.resource.collectionIter(string(in), info);
+  }
+
   /**
    * Performs the uri-collection function.
    * @param ctx query context
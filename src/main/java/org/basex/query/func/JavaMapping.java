@@ -247,6 +247,8 @@ public abstract class JavaMapping extends Arr {
     // check addressed class
     try {
       final Class<?> clz = ctx.modules.findClass(path);
+      // classes are bound to the loader of the query
+      ctx.cacheable = false;
       return new JavaFunc(ii, clz, name, args);
     } catch(final ClassNotFoundException ex) {
       // only throw exception if "java:" prefix was explicitly specified
@@ -58,8 +58,19 @@ public abstract class StandardFunc extends Arr {
   public final Expr optimize(final QueryContext ctx, final VarScope scp)
       throws QueryException {
     // skip context-based or non-deterministic functions, and non-values
-    return optPre(has(Flag.CTX) || has(Flag.NDT) || !allAreValues() ? opt(ctx) :
-      sig.ret.zeroOrOne() ? item(ctx, info) : value(ctx), ctx);
+    return optPre(has(Flag.CTX) || has(Flag.NDT) || !allAreValues() || !preEvaluate(ctx) ?
+      opt(ctx) : sig.ret.zeroOrOne() ? item(ctx, info) : value(ctx), ctx);
+  }
+
+  /**
+   * Checks if a function with value arguments can be pre-evaluated at compile time.
+   * @param ctx query context
+   * @return result of check
+   * @throws QueryException query exception
+   */
+  @SuppressWarnings("unused")
+  protected boolean preEvaluate(final QueryContext ctx) throws QueryException {
+    return true;
   }
 
   /**
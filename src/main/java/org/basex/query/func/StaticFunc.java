@@ -17,6 +17,7 @@ import org.basex.query.value.seq.*;
 import org.basex.query.value.type.*;
 import org.basex.query.var.*;
 import org.basex.util.*;
+import org.basex.util.hash.*;
 
 /**
  * A static User-defined function.
@@ -60,6 +61,30 @@ public final class StaticFunc extends StaticDecl implements XQFunction {
     updating = ann.contains(Ann.Q_UPDATING);
   }
 
+  /**
+   * Creates a copy of this function. The body is assigned by {@link #copyBody}.
+   * @param ctx query context
+   * @return copy
+   */
+  StaticFunc copy(final QueryContext ctx) {
+    final VarScope scp = new VarScope();
+    final Var[] vs = new Var[args.length];
+    for(int a = 0; a < vs.length; a++) vs[a] = scp.newCopyOf(ctx, args[a]);
+    return new StaticFunc(ann, name, vs, declType, null, sc, scp, xqdoc(), info);
+  }
+
+  /**
+   * Assigns a copy of the body of the specified function.
+   * @param sf function to be copied
+   * @param ctx query context
+   */
+  void copyBody(final StaticFunc sf, final QueryContext ctx) {
+    if(sf.expr == null) return;
+    final IntObjMap<Var> vs = new IntObjMap<Var>();
+    for(int a = 0; a < args.length; a++) vs.put(sf.args[a].id, args[a]);
+    expr = sf.expr.copy(ctx, scope, vs);
+  }
+
   @Override
   public void compile(final QueryContext ctx) throws QueryException {
     if(compiled) return;
@@ -90,7 +90,7 @@ public abstract class StaticFuncCall extends Arr {
     final Expr[] arg = new Expr[expr.length];
     for(int i = 0; i < arg.length; i++) arg[i] = expr[i].copy(ctx, scp, vs);
     final BaseFuncCall call = new BaseFuncCall(name, arg, sc, info);
-    call.func = func;
+    call.func = ctx.funcs.get(func);
     call.type = type;
     call.size = size;
     return call;
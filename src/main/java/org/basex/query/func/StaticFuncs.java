@@ -143,6 +143,39 @@ public final class StaticFuncs extends ExprInfo {
     }
   }
 
+  /**
+   * Declares copies of the functions of the specified container. The function
+   * bodies are assigned by {@link #copyBodies}, as they may reference
+   * functions and variables that have not been declared yet.
+   * @param sf functions to be copied
+   * @param ctx query context
+   */
+  public void declareCopies(final StaticFuncs sf, final QueryContext ctx) {
+    for(final byte[] sig : sf.funcs) {
+      funcs.put(sig, new FuncCache(sf.funcs.get(sig).func.copy(ctx)));
+    }
+  }
+
+  /**
+   * Assigns copies of the bodies of the functions of the specified container.
+   * @param sf functions to be copied
+   * @param ctx query context
+   */
+  public void copyBodies(final StaticFuncs sf, final QueryContext ctx) {
+    for(final byte[] sig : sf.funcs) funcs.get(sig).func.copyBody(sf.funcs.get(sig).func, ctx);
+  }
+
+  /**
+   * Returns the function of this container that has the same signature as the
+   * specified one.
+   * @param sf function
+   * @return function, or the specified function if it is unknown
+   */
+  StaticFunc get(final StaticFunc sf) {
+    final FuncCache fc = sf == null ? null : funcs.get(sf.id());
+    return fc != null && fc.func != null ? fc.func : sf;
+  }
+
   /**
    * Checks if the functions perform updates.
    * @throws QueryException query exception
@@ -71,10 +71,7 @@ public final class For extends GFLWOR.Clause {
           final Item it = iter == null ? null : iter.next();
           if(it != null) {
             // there's another item to serve
-            ++p;
-            ctx.set(var, it, info);
-            if(pos != null) ctx.set(pos, Int.get(p), info);
-            if(score != null) ctx.set(score, Dbl.get(it.score()), info);
+            bind(ctx, it, ++p);
             return true;
           }
           if(empty && iter != null && p == 0) {
@@ -96,6 +93,19 @@ public final class For extends GFLWOR.Clause {
     };
   }
 
+  /**
+   * Binds the variables of this clause.
+   * @param ctx query context
+   * @param it item
+   * @param p position of the item
+   * @throws QueryException query exception
+   */
+  void bind(final QueryContext ctx, final Item it, final long p) throws QueryException {
+    ctx.set(var, it, info);
+    if(pos != null) ctx.set(pos, Int.get(p), info);
+    if(score != null) ctx.set(score, Dbl.get(it.score()), info);
+  }
+
   @Override
   public void plan(final FElem plan) {
     final FElem e = planElem();
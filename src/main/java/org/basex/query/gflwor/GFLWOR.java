@@ -1,7 +1,9 @@
 package org.basex.query.gflwor;
 
 import java.util.*;
+import java.util.concurrent.*;
 
+import org.basex.core.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.func.*;
@@ -30,6 +32,8 @@ public final class GFLWOR extends ParseExpr {
   private final LinkedList<Clause> clauses;
   /** XQuery 3.0 flag. */
   private boolean xq30;
+  /** Number of threads for evaluating the first for clause in parallel (0: off). */
+  private int threads;
 
   /**
    * Constructor.
@@ -45,18 +49,9 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public Iter iter(final QueryContext ctx) throws QueryException {
-    // Start evaluator, doing nothing, once.
-    Eval e = new Eval() {
-      /** First-evaluation flag. */
-      private boolean first = true;
-      @Override
-      public boolean next(final QueryContext c) {
-        if(!first) return false;
-        first = false;
-        return true;
-      }
-    };
+    if(threads != 0 && parallel()) return parallel(ctx);
 
+    Eval e = start();
     for(final Clause cls : clauses) e = cls.eval(e);
     final Eval ev = e;
 
@@ -81,6 +76,183 @@ public final class GFLWOR extends ParseExpr {
     };
   }
 
+  /**
+   * Returns a start evaluator, doing nothing, once.
+   * @return evaluator
+   */
+  private static Eval start() {
+    return new Eval() {
+      /** First-evaluation flag. */
+      private boolean first = true;
+      @Override
+      public boolean next(final QueryContext c) {
+        if(!first) return false;
+        first = false;
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Evaluates the items of the first for clause in parallel. Leading let clauses are
+   * evaluated once, and the results of the partitions are returned in their
+   * original order. The partitions are evaluated by the shared {@link Workers};
+   * nested parallel expressions are evaluated sequentially by the worker.
+   * @param ctx query context
+   * @return result
+   * @throws QueryException query exception
+   */
+  private ValueBuilder parallel(final QueryContext ctx) throws QueryException {
+    Eval e = start();
+    final Iterator<Clause> iter = clauses.iterator();
+    Clause cls = iter.next();
+    for(; cls instanceof Let; cls = iter.next()) e = cls.eval(e);
+    e.next(ctx);
+
+    final For fr = (For) cls;
+    final Value in = ctx.value(fr.expr);
+    final ArrayList<Clause> rest = new ArrayList<Clause>();
+    while(iter.hasNext()) rest.add(iter.next());
+
+    final long is = in.size();
+    final int ts = (int) Math.min(threads, is);
+    if(ts < 2 || Thread.currentThread() instanceof Worker)
+      return eval(ctx, fr, in, 0, is, rest);
+
+    // the current date and time must be the same in all threads
+    ctx.initDateTime();
+    final QueryContext[] qcs = new QueryContext[ts];
+    final ArrayList<Future<ValueBuilder>> futures =
+        new ArrayList<Future<ValueBuilder>>(ts);
+    try {
+      for(int t = 0; t < ts; t++) {
+        final QueryContext qc = new QueryContext(ctx);
+        final long s = is * t / ts, l = is * (t + 1) / ts;
+        qcs[t] = qc;
+        futures.add(Workers.POOL.submit(new Callable<ValueBuilder>() {
+          @Override
+          public ValueBuilder call() throws QueryException {
+            return eval(qc, fr, in, s, l, rest);
+          }
+        }));
+      }
+      final ValueBuilder vb = new ValueBuilder();
+      for(final Future<ValueBuilder> f : futures) vb.add(result(f, ctx).value());
+      return vb;
+    } finally {
+      // stop partitions that are still running or waiting
+      for(final QueryContext qc : qcs) if(qc != null) qc.stop();
+      for(final Future<ValueBuilder> f : futures) f.cancel(false);
+    }
+  }
+
+  /**
+   * Evaluates the remaining clauses and the return expression for a partition of
+   * the items of the first for clause.
+   * @param ctx query context
+   * @param fr first for clause
+   * @param in items of the for clause
+   * @param s first item
+   * @param l last item (exclusive)
+   * @param rest remaining clauses
+   * @return result
+   * @throws QueryException query exception
+   */
+  private ValueBuilder eval(final QueryContext ctx, final For fr, final Value in,
+      final long s, final long l, final ArrayList<Clause> rest) throws QueryException {
+
+    Eval e = new Eval() {
+      /** Current item. */
+      private long p = s;
+      @Override
+      public boolean next(final QueryContext c) throws QueryException {
+        if(p == l) return false;
+        fr.bind(c, in.itemAt(p), ++p);
+        return true;
+      }
+    };
+    for(final Clause cls : rest) e = cls.eval(e);
+
+    final ValueBuilder vb = new ValueBuilder();
+    while(e.next(ctx)) vb.add(ctx.value(ret));
+    return vb;
+  }
+
+  /**
+   * Waits for the result of a thread and checks if the query was stopped.
+   * @param f future result
+   * @param ctx query context
+   * @return result
+   * @throws QueryException query exception
+   */
+  private static ValueBuilder result(final Future<ValueBuilder> f,
+      final QueryContext ctx) throws QueryException {
+    try {
+      while(true) {
+        try {
+          return f.get(100, TimeUnit.MILLISECONDS);
+        } catch(final TimeoutException ex) {
+          ctx.checkStop();
+        }
+      }
+    } catch(final InterruptedException ex) {
+      throw new ProcException();
+    } catch(final ExecutionException ex) {
+      final Throwable th = ex.getCause();
+      if(th instanceof QueryException) throw (QueryException) th;
+      if(th instanceof RuntimeException) throw (RuntimeException) th;
+      if(th instanceof Error) throw (Error) th;
+      throw Util.notexpected(th);
+    }
+  }
+
+  /**
+   * Enables the parallel evaluation of the first for clause, if possible.
+   * @param t number of threads
+   * @param ctx query context
+   */
+  public void parallel(final int t, final QueryContext ctx) {
+    if(t < 2 || has(Flag.NDT) || has(Flag.UPD) || !parallel()) return;
+    ctx.compInfo(QueryText.OPTPARALLEL, this);
+    threads = t;
+  }
+
+  /**
+   * Limits the number of tuples that are returned by a trailing order by clause.
+   * This is possible if the results are filtered by a position range, and if the
+   * return expression yields exactly one item per tuple.
+   * @param max maximum position of the results
+   * @param ctx query context
+   */
+  public void limit(final long max, final QueryContext ctx) {
+    if(max < 1 || max > Integer.MAX_VALUE / 2 || clauses.isEmpty() ||
+        !(clauses.getLast() instanceof OrderBy) || !ret.type().one()) return;
+    final OrderBy ob = (OrderBy) clauses.getLast();
+    if(ob.limit != 0 && ob.limit <= max) return;
+    ctx.compInfo(QueryText.OPTTOPK, max, ob);
+    ob.limit = (int) max;
+  }
+
+  /**
+   * Checks if the first for clause can be evaluated in parallel. It may only be
+   * preceded by let clauses, and the following clauses must not depend on other
+   * tuples (as it is the case for group by, order by and count clauses).
+   * @return result of check
+   */
+  private boolean parallel() {
+    boolean fr = false;
+    for(final Clause cls : clauses) {
+      if(!fr) {
+        fr = cls instanceof For && !((For) cls).empty;
+        if(!fr && !(cls instanceof Let)) return false;
+      } else if(!(cls instanceof For || cls instanceof Let || cls instanceof Where ||
+          cls instanceof Join || cls instanceof Window)) {
+        return false;
+      }
+    }
+    return fr;
+  }
+
   @Override
   public Expr compile(final QueryContext ctx, final VarScope scp) throws QueryException {
     int i = 0;
@@ -144,8 +316,15 @@ public final class GFLWOR extends ParseExpr {
         final For last = (For) clauses.getLast();
         // for $x in E return $x  ==>  return E
         if(!last.var.checksType() && last.var.is(((VarRef) ret).var)) {
-          clauses.removeLast();
-          ret = last.expr;
+          // joins would be hidden in the return expression: rewrite them first
+          final int l = clauses.size() - 1;
+          final Join join = Join.get(ctx, scp, last, clauses.subList(0, l));
+          if(join != null) {
+            clauses.set(l, join);
+          } else {
+            clauses.removeLast();
+            ret = last.expr;
+          }
           changed = true;
         }
       }
@@ -188,6 +367,11 @@ public final class GFLWOR extends ParseExpr {
        * */
     } while(changed);
 
+    // aggregate non-grouping variables while building the groups
+    if(aggregate(ctx, scp)) cleanDeadVars(ctx);
+
+    // evaluate value-based joins via hash tables
+    hashJoins(ctx, scp);
     mergeWheres();
 
     size = calcSize();
@@ -338,6 +522,42 @@ public final class GFLWOR extends ParseExpr {
     return change;
   }
 
+  /**
+   * Computes the aggregates of non-grouping variables while the groups are built
+   * if the variables are arguments of the functions {@code count}, {@code sum},
+   * {@code avg}, {@code min} or {@code max}. If a variable is not referenced otherwise,
+   * its values will not be cached anymore.
+   * @param ctx query context
+   * @param scp variable scope
+   * @return {@code true} if the clauses have been modified
+   * @throws QueryException query exception
+   */
+  private boolean aggregate(final QueryContext ctx, final VarScope scp)
+      throws QueryException {
+    boolean change = false;
+    for(int c = 0; c < clauses.size(); c++) {
+      if(!(clauses.get(c) instanceof GroupBy)) continue;
+      final GroupBy grp = (GroupBy) clauses.get(c);
+      final Var[] post = grp.post;
+      for(int p = 0; p < post.length; p++) {
+        // skip variables that are already bound to aggregates
+        if(grp.aggr[p] != null) continue;
+        final Var v = post[p];
+        final GroupBy.PostRef ref = new GroupBy.PostRef(info, v, scp);
+        if(!inline(ctx, scp, v, ref, c + 1)) continue;
+        // restore the references that have not been replaced; the variable has been
+        // dropped from the tuples of subsequent order by clauses, which must be rebuilt
+        inline(ctx, scp, v, new VarRef(info, v), c + 1);
+        change = true;
+        if(ref.funcs.isEmpty()) continue;
+        ctx.compInfo(QueryText.OPTAGGR, v);
+        clauses.set(c, grp.aggregate(v, ref.funcs, ref.vars, ctx, scp));
+        change = true;
+      }
+    }
+    return change;
+  }
+
   /**
    * Cleans dead entries from the tuples that {@link GroupBy} and {@link OrderBy} handle.
    * @param ctx query context
@@ -388,7 +608,8 @@ public final class GFLWOR extends ParseExpr {
         if(!curr.skippable(let)) break;
         // insert directly above the highest skippable for or window clause
         // this guarantees that no unnecessary swaps occur
-        if(curr instanceof For || curr instanceof Window) insert = j;
+        if(curr instanceof For || curr instanceof Join || curr instanceof Window)
+          insert = j;
       }
 
       if(insert >= 0) {
@@ -461,6 +682,24 @@ public final class GFLWOR extends ParseExpr {
     return change;
   }
 
+  /**
+   * Rewrites for clauses with equality predicates on the variables of preceding
+   * clauses to hash joins. This is only done if no index can be applied to the
+   * predicates, as such predicates would have been rewritten before.
+   * @param ctx query context
+   * @param scp variable scope
+   * @throws QueryException query exception
+   */
+  private void hashJoins(final QueryContext ctx, final VarScope scp)
+      throws QueryException {
+    for(int i = 1; i < clauses.size(); i++) {
+      final Clause c = clauses.get(i);
+      if(!(c instanceof For)) continue;
+      final Join join = Join.get(ctx, scp, (For) c, clauses.subList(0, i));
+      if(join != null) clauses.set(i, join);
+    }
+  }
+
   /** Merges consecutive {@code where} clauses. */
   private void mergeWheres() {
     Where before = null;
@@ -588,7 +827,8 @@ public final class GFLWOR extends ParseExpr {
     final ListIterator<Clause> iter = clauses.listIterator(idx);
     while(iter.hasPrevious()) {
       final Clause b4 = iter.previous();
-      if(b4 instanceof For || b4 instanceof Window || b4 instanceof Where) {
+      if(b4 instanceof For || b4 instanceof Join || b4 instanceof Window ||
+          b4 instanceof Where) {
         iter.next();
         while(iter.hasNext()) {
           iter.next();
@@ -605,7 +845,9 @@ public final class GFLWOR extends ParseExpr {
   public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
     final LinkedList<Clause> cls = new LinkedList<Clause>();
     for(final Clause cl : clauses) cls.add(cl.copy(ctx, scp, vs));
-    return copyType(new GFLWOR(info, cls, ret.copy(ctx, scp, vs)));
+    final GFLWOR fl = new GFLWOR(info, cls, ret.copy(ctx, scp, vs));
+    fl.threads = threads;
+    return copyType(fl);
   }
 
   /**
@@ -626,7 +868,8 @@ public final class GFLWOR extends ParseExpr {
 
   @Override
   public void plan(final FElem plan) {
-    final FElem e = planElem();
+    final FElem e = threads == 0 ? planElem() :
+      planElem(Token.token(QueryText.PARALLEL), Token.token(threads));
     for(final Clause cl : clauses) cl.plan(e);
     ret.plan(e);
     plan.add(e);
@@ -678,6 +921,34 @@ public final class GFLWOR extends ParseExpr {
     boolean next(final QueryContext ctx) throws QueryException;
   }
 
+  /**
+   * Worker threads for the parallel evaluation of FLWOR expressions, which are
+   * shared by all queries. The pool is created on first use, and its size is bounded
+   * by the number of available processors.
+   */
+  private static final class Workers {
+    /** Thread pool. */
+    static final ExecutorService POOL = Executors.newFixedThreadPool(
+      Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          return new Worker(r);
+        }
+      });
+  }
+
+  /** Worker thread. */
+  private static final class Worker extends Thread {
+    /**
+     * Constructor.
+     * @param r runnable
+     */
+    Worker(final Runnable r) {
+      super(r, Util.name(GFLWOR.class));
+      setDaemon(true);
+    }
+  }
+
   /**
    * A FLWOR clause.
    *
@@ -10,6 +10,7 @@ import org.basex.query.func.*;
 import org.basex.query.gflwor.GFLWOR.Eval;
 import org.basex.query.iter.*;
 import org.basex.query.util.*;
+import org.basex.query.value.*;
 import org.basex.query.value.item.*;
 import org.basex.query.value.node.*;
 import org.basex.query.value.seq.*;
@@ -32,6 +33,8 @@ public final class GroupBy extends GFLWOR.Clause {
   Expr[] preExpr;
   /** Non-grouping variables. */
   Var[] post;
+  /** Aggregating functions of non-grouping variables ({@code null}: values are cached). */
+  Function[] aggr;
   /** Number of non-occluded grouping variables. */
   final int nonOcc;
   /** If this clause uses collations. */
@@ -51,6 +54,7 @@ public final class GroupBy extends GFLWOR.Clause {
     preExpr = new Expr[pr.length];
     System.arraycopy(pr, 0, preExpr, 0, pr.length);
     post = pst;
+    aggr = new Function[pst.length];
     int n = 0;
     boolean coll = false;
     for(final Spec spec : specs) {
@@ -66,16 +70,18 @@ public final class GroupBy extends GFLWOR.Clause {
    * @param gs grouping specs
    * @param pe pre-grouping expressions
    * @param pst post-grouping variables
+   * @param ag aggregating functions
    * @param no number of non-occluded grouping variables
    * @param coll if the clause uses collations
    * @param ii input info
    */
-  private GroupBy(final Spec[] gs, final Expr[] pe, final Var[] pst,
+  private GroupBy(final Spec[] gs, final Expr[] pe, final Var[] pst, final Function[] ag,
       final int no, final boolean coll, final InputInfo ii) {
     super(ii, vars(gs, pst));
     specs = gs;
     preExpr = pe;
     post = pst;
+    aggr = ag;
     nonOcc = no;
     usesColl = coll;
   }
@@ -117,7 +123,9 @@ public final class GroupBy extends GFLWOR.Clause {
             ctx.set(spec.var, key == null ? Empty.SEQ : key, info);
           }
         }
-        for(int i = 0; i < post.length; i++) ctx.set(post[i], curr.ngv[i].value(), info);
+        for(int i = 0; i < post.length; i++) {
+          ctx.set(post[i], aggr[i] == null ? curr.ngv[i].value() : aggregate(curr, i), info);
+        }
         return true;
       }
 
@@ -130,6 +138,12 @@ public final class GroupBy extends GFLWOR.Clause {
         final ArrayList<Group> grps = new ArrayList<Group>();
         final IntObjMap<Group> map = usesColl ? null : new IntObjMap<Group>();
         final Collation[] colls = new Collation[nonOcc];
+        // functions for aggregating the values of non-grouping variables
+        final FNAggr[] funcs = new FNAggr[aggr.length];
+        for(int i = 0; i < aggr.length; i++) {
+          final Function f = aggr[i] == Function.AVG ? Function.SUM : aggr[i];
+          if(f != null && f != Function.COUNT) funcs[i] = (FNAggr) f.get(info, preExpr[i]);
+        }
         if(usesColl) {
           for(int i = 0; i < specs.length; i++) {
             if(!specs[i].occluded) colls[i] = specs[i].coll;
@@ -172,7 +186,9 @@ public final class GroupBy extends GFLWOR.Clause {
           if(grp == null) {
             // new group, add it to the list
             final ValueBuilder[] ngs = new ValueBuilder[preExpr.length];
-            for(int i = 0; i < ngs.length; i++) ngs[i] = new ValueBuilder();
+            for(int i = 0; i < ngs.length; i++) {
+              if(aggr[i] == null) ngs[i] = new ValueBuilder();
+            }
             grp = new Group(key, ngs);
             grps.add(grp);
 
@@ -189,7 +205,32 @@ public final class GroupBy extends GFLWOR.Clause {
           }
 
           // add values of non-grouping variables to the group
-          for(int j = 0; j < preExpr.length; j++) grp.ngv[j].add(preExpr[j].value(ctx));
+          for(int j = 0; j < preExpr.length; j++) {
+            final Value v = preExpr[j].value(ctx);
+            if(aggr[j] == null) {
+              grp.ngv[j].add(v);
+            } else if(v.size() != 0) {
+              // aggregate the new values and the previous result
+              grp.cnt[j] += v.size();
+              if(funcs[j] == null || grp.acc[j] instanceof Failure) continue;
+              final Item acc = grp.acc[j];
+              final Iter iter;
+              if(acc == null) {
+                iter = v.iter();
+              } else {
+                final ValueBuilder vb = new ValueBuilder();
+                vb.add(acc);
+                vb.add(v);
+                iter = vb;
+              }
+              try {
+                grp.acc[j] = funcs[j].aggregate(iter, ctx);
+              } catch(final QueryException ex) {
+                // the error will only be raised if the aggregate is referenced
+                grp.acc[j] = new Failure(ex);
+              }
+            }
+          }
         }
 
         // we're finished, copy the array so the list can be garbage-collected
@@ -198,6 +239,54 @@ public final class GroupBy extends GFLWOR.Clause {
     };
   }
 
+  /**
+   * Returns the aggregate of a non-grouping variable.
+   * @param grp group
+   * @param i index of the variable
+   * @return aggregate
+   * @throws QueryException query exception
+   */
+  Value aggregate(final Group grp, final int i) {
+    final Item acc = grp.acc[i];
+    switch(aggr[i]) {
+      case COUNT: return Int.get(grp.cnt[i]);
+      case SUM:   return acc == null ? Int.get(0) : acc;
+      case AVG:
+        if(acc == null || acc instanceof Failure) return acc == null ? Empty.SEQ : acc;
+        try {
+          return Calc.DIV.ev(info, acc, Int.get(grp.cnt[i]));
+        } catch(final QueryException ex) {
+          return new Failure(ex);
+        }
+      default:    return acc == null ? Empty.SEQ : acc;
+    }
+  }
+
+  /**
+   * Returns a copy of this clause, in which the values of the specified non-grouping
+   * variable are additionally aggregated.
+   * @param v non-grouping variable
+   * @param funcs aggregating functions
+   * @param vars variables bound to the aggregates
+   * @param ctx query context
+   * @param scp variable scope
+   * @return new clause
+   */
+  GroupBy aggregate(final Var v, final ArrayList<Function> funcs, final ArrayList<Var> vars,
+      final QueryContext ctx, final VarScope scp) {
+    int p = -1;
+    while(!post[++p].is(v));
+    Expr[] pe = preExpr;
+    Var[] ps = post;
+    Function[] ag = aggr;
+    for(int i = 0; i < funcs.size(); i++) {
+      pe = Array.add(pe, preExpr[p].copy(ctx, scp));
+      ps = Array.add(ps, vars.get(i));
+      ag = Array.add(ag, funcs.get(i));
+    }
+    return new GroupBy(specs, pe, ps, ag, nonOcc, usesColl, info);
+  }
+
   /**
    * Checks two keys for equality.
    * @param as first key
@@ -220,6 +309,14 @@ public final class GroupBy extends GFLWOR.Clause {
   public void plan(final FElem plan) {
     final FElem e = planElem();
     for(final Spec spec : specs) spec.plan(e);
+    for(int i = 0; i < post.length; i++) {
+      if(aggr[i] == null) continue;
+      final String f = aggr[i].toString();
+      final FElem a = new FElem(AGGR).add(NAM, f.substring(0, f.indexOf('(')));
+      post[i].plan(a);
+      preExpr[i].plan(a);
+      e.add(a);
+    }
     plan.add(e);
   }
 
@@ -248,6 +345,7 @@ public final class GroupBy extends GFLWOR.Clause {
   public GroupBy optimize(final QueryContext ctx, final VarScope scp)
       throws QueryException {
     for(int i = 0; i < preExpr.length; i++) {
+      if(aggr[i] != null) continue;
       final SeqType it = preExpr[i].type();
       post[i].refineType(it.withOcc(it.mayBeZero() ? Occ.ZERO_MORE : Occ.ONE_MORE),
           ctx, info);
@@ -289,7 +387,8 @@ public final class GroupBy extends GFLWOR.Clause {
     }
 
     // done
-    return new GroupBy(Arr.copyAll(ctx, scp, vs, specs), pEx, ps, nonOcc, usesColl, info);
+    return new GroupBy(Arr.copyAll(ctx, scp, vs, specs), pEx, ps, aggr, nonOcc, usesColl,
+        info);
   }
 
   @Override
@@ -307,6 +406,7 @@ public final class GroupBy extends GFLWOR.Clause {
     for(int i = 0; i < post.length; i++) {
       if(!used.get(post[i].id)) {
         preExpr = Array.delete(preExpr, i);
+        aggr = Array.delete(aggr, i);
         post = Array.delete(post, i--);
       }
     }
@@ -408,6 +508,156 @@ public final class GroupBy extends GFLWOR.Clause {
     }
   }
 
+  /**
+   * Reference to a non-grouping variable, which is temporarily inlined into the
+   * clauses following a group by clause. If it is the argument of an aggregating
+   * function, the function call is replaced by a reference to a new non-grouping
+   * variable, which will be bound to the aggregate of the values.
+   *
+   * @author BaseX Team 2005-12, BSD License
+   * @author Christian Gruen
+   */
+  public static final class PostRef extends VarRef {
+    /** Variable scope. */
+    private final VarScope scope;
+    /** Aggregating functions. */
+    final ArrayList<Function> funcs;
+    /** Variables bound to the aggregates. */
+    final ArrayList<Var> vars;
+
+    /**
+     * Constructor.
+     * @param ii input info
+     * @param v non-grouping variable
+     * @param scp variable scope
+     */
+    PostRef(final InputInfo ii, final Var v, final VarScope scp) {
+      this(ii, v, scp, new ArrayList<Function>(), new ArrayList<Var>());
+    }
+
+    /**
+     * Constructor.
+     * @param ii input info
+     * @param v non-grouping variable
+     * @param scp variable scope
+     * @param fs aggregating functions
+     * @param vs variables bound to the aggregates
+     */
+    private PostRef(final InputInfo ii, final Var v, final VarScope scp,
+        final ArrayList<Function> fs, final ArrayList<Var> vs) {
+      super(ii, v);
+      scope = scp;
+      funcs = fs;
+      vars = vs;
+    }
+
+    /**
+     * Returns a reference to a variable that will be bound to the aggregate of the
+     * values of the referenced variable.
+     * @param f aggregating function
+     * @param t type of the aggregate
+     * @param ctx query context
+     * @return variable reference
+     * @throws QueryException query exception
+     */
+    public VarRef aggregate(final Function f, final SeqType t, final QueryContext ctx)
+        throws QueryException {
+      int i = funcs.indexOf(f);
+      if(i == -1) {
+        final Var v = scope.newLocal(ctx, var.name, null, false);
+        v.refineType(t, ctx, info);
+        i = funcs.size();
+        funcs.add(f);
+        vars.add(v);
+      }
+      return new AggrRef(info, vars.get(i));
+    }
+
+    @Override
+    public VarRef copy(final QueryContext ctx, final VarScope scp,
+        final IntObjMap<Var> vs) {
+      return new PostRef(info, var, scope, funcs, vars);
+    }
+  }
+
+  /**
+   * Reference to a variable that is bound to the aggregate of a non-grouping variable.
+   * If the aggregation failed, the error is raised when the variable is referenced.
+   */
+  static final class AggrRef extends VarRef {
+    /**
+     * Constructor.
+     * @param ii input info
+     * @param v variable bound to the aggregate
+     */
+    AggrRef(final InputInfo ii, final Var v) {
+      super(ii, v);
+    }
+
+    @Override
+    public Item item(final QueryContext ctx, final InputInfo ii) throws QueryException {
+      return value(ctx).item(ctx, ii);
+    }
+
+    @Override
+    public Iter iter(final QueryContext ctx) throws QueryException {
+      return value(ctx).iter();
+    }
+
+    @Override
+    public Value value(final QueryContext ctx) throws QueryException {
+      final Value v = ctx.get(var);
+      if(v instanceof Failure) throw ((Failure) v).error;
+      return v;
+    }
+
+    @Override
+    public VarRef copy(final QueryContext ctx, final VarScope scp,
+        final IntObjMap<Var> vs) {
+      final Var nw = vs.get(var.id);
+      return new AggrRef(info, nw != null ? nw : var);
+    }
+  }
+
+  /**
+   * Error that has been raised while aggregating the values of a non-grouping variable.
+   * It is bound to the variable of the aggregate instead of a result.
+   */
+  private static final class Failure extends Item {
+    /** Error. */
+    final QueryException error;
+
+    /**
+     * Constructor.
+     * @param ex error
+     */
+    Failure(final QueryException ex) {
+      super(AtomType.ITEM);
+      error = ex;
+    }
+
+    @Override
+    public byte[] string(final InputInfo ii) throws QueryException {
+      throw error;
+    }
+
+    @Override
+    public boolean eq(final Item it, final Collation coll, final InputInfo ii)
+        throws QueryException {
+      throw error;
+    }
+
+    @Override
+    public Object toJava() throws QueryException {
+      throw error;
+    }
+
+    @Override
+    public String toString() {
+      return error.getMessage();
+    }
+  }
+
   /**
    * A group of tuples of post-grouping variables.
    *
@@ -419,6 +669,10 @@ public final class GroupBy extends GFLWOR.Clause {
     final Item[] key;
     /** Non-grouping variables. */
     final ValueBuilder[] ngv;
+    /** Intermediate aggregates of non-grouping variables. */
+    final Item[] acc;
+    /** Number of aggregated items. */
+    final long[] cnt;
     /** Overflow list. */
     Group next;
 
@@ -430,6 +684,8 @@ public final class GroupBy extends GFLWOR.Clause {
     Group(final Item[] k, final ValueBuilder[] ng) {
       key = k;
       ngv = ng;
+      acc = new Item[ng.length];
+      cnt = new long[ng.length];
     }
   }
 }
@@ -0,0 +1,528 @@
+package org.basex.query.gflwor;
+
+import static org.basex.query.QueryText.*;
+
+import java.util.List;
+
+import org.basex.query.*;
+import org.basex.query.expr.*;
+import org.basex.query.expr.CmpG.OpG;
+import org.basex.query.gflwor.GFLWOR.Clause;
+import org.basex.query.gflwor.GFLWOR.Eval;
+import org.basex.query.iter.*;
+import org.basex.query.path.*;
+import org.basex.query.util.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.type.*;
+import org.basex.query.value.type.SeqType.Occ;
+import org.basex.query.var.*;
+import org.basex.util.*;
+import org.basex.util.hash.*;
+import org.basex.util.list.*;
+
+/**
+ * FLWOR {@code for} clause, which is evaluated as hash join. It iterates over all items
+ * of the input sequence that satisfy an equality comparison between a key expression,
+ * which is evaluated with the item as context, and a probe expression, which depends
+ * on the variables of the preceding clauses:
+ *
+ * <pre>for $c in //customer[@id = $o/@cid]</pre>
+ *
+ * <p>The input sequence and the keys of its items are computed once, and a hash
+ * table is created from the keys. For each incoming tuple, the probe values are
+ * looked up in this table. Items of types that cannot be hashed (and comparisons
+ * that would raise type errors) are handled by evaluating the original predicate for
+ * all input items.</p>
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class Join extends GFLWOR.Clause {
+  /** Item variable. */
+  final Var var;
+  /** Input expression. */
+  Expr input;
+  /** Join predicate. */
+  CmpG pred;
+  /** Offset of the key expression in the join predicate. */
+  int key;
+
+  /**
+   * Constructor.
+   * @param v item variable
+   * @param in input expression
+   * @param p join predicate
+   * @param k offset of the key expression
+   * @param ii input info
+   */
+  private Join(final Var v, final Expr in, final CmpG p, final int k,
+      final InputInfo ii) {
+    super(ii, v);
+    var = v;
+    input = in;
+    pred = p;
+    key = k;
+  }
+
+  /**
+   * Tries to rewrite the specified for clause to a hash join. This is possible if the
+   * last predicate of its bound expression is an equality comparison between a key
+   * expression, which depends on the context, and a probe expression, which depends
+   * on the preceding clauses. The remaining expression must be independent of all
+   * preceding clauses that may bind more than one tuple.
+   * @param ctx query context
+   * @param scp variable scope
+   * @param fr for clause
+   * @param before preceding clauses
+   * @return hash join, or {@code null}
+   * @throws QueryException query exception
+   */
+  static Join get(final QueryContext ctx, final VarScope scp, final For fr,
+      final List<Clause> before) throws QueryException {
+
+    if(fr.empty || fr.vars.length > 1 || before.isEmpty()) return null;
+
+    // find predicates of the bound expression
+    final Preds preds;
+    if(fr.expr instanceof AxisPath) {
+      final AxisPath path = (AxisPath) fr.expr;
+      final Expr step = path.steps[path.steps.length - 1];
+      if(!(step instanceof Step)) return null;
+      preds = (Step) step;
+    } else if(fr.expr instanceof Filter) {
+      preds = (Filter) fr.expr;
+    } else {
+      return null;
+    }
+    final Expr[] prds = preds.preds;
+    final int pl = prds.length;
+    if(pl == 0 || !(prds[pl - 1] instanceof CmpG)) return null;
+
+    // leading let clauses are only evaluated once
+    int l = 0;
+    final int bl = before.size();
+    while(l < bl && before.get(l) instanceof Let) l++;
+    if(l == bl) return null;
+    final List<Clause> iter = before.subList(l, bl);
+
+    // check comparison: key must depend on context, probe on preceding clauses
+    final CmpG cmp = (CmpG) prds[pl - 1];
+    final int k = key(cmp);
+    if(k == -1 || uses(cmp.expr[k], iter) || !uses(cmp.expr[1 - k], iter)) return null;
+
+    // check if remaining expression is independent of the iterated clauses
+    preds.preds = Array.delete(prds, pl - 1);
+    if(uses(fr.expr, iter) || fr.expr.has(Flag.NDT) || fr.expr.has(Flag.CNS)) {
+      preds.preds = prds;
+      return null;
+    }
+
+    final Expr in = fr.expr instanceof AxisPath ? fr.expr.optimize(ctx, scp) :
+      pl == 1 ? ((Filter) fr.expr).root :
+      Filter.get(fr.info, ((Filter) fr.expr).root, preds.preds).optimize(ctx, scp);
+    ctx.compInfo(OPTHASHJOIN, fr);
+    return new Join(fr.var, in, cmp, k, fr.info).optimize(ctx, scp);
+  }
+
+  /**
+   * Returns the offset of the key expression in the specified comparison.
+   * @param cmp comparison
+   * @return offset, or {@code -1} if the comparison cannot be evaluated as join
+   */
+  private static int key(final CmpG cmp) {
+    if(cmp.op != OpG.EQ || cmp.has(Flag.NDT) || cmp.has(Flag.FCS)) return -1;
+    final boolean c0 = cmp.expr[0].has(Flag.CTX), c1 = cmp.expr[1].has(Flag.CTX);
+    return c0 == c1 ? -1 : c0 ? 0 : 1;
+  }
+
+  /**
+   * Checks if the specified expression uses variables of the specified clauses.
+   * @param expr expression
+   * @param clauses clauses
+   * @return result of check
+   */
+  private static boolean uses(final Expr expr, final List<Clause> clauses) {
+    for(final Clause cl : clauses) {
+      for(final Var v : cl.vars) if(expr.uses(v)) return true;
+    }
+    return false;
+  }
+
+  @Override
+  Eval eval(final Eval sub) {
+    return new Eval() {
+      /** Hash table (created when the first tuple arrives). */
+      private Table table;
+      /** Matching items. */
+      private Iter iter;
+      @Override
+      public boolean next(final QueryContext ctx) throws QueryException {
+        while(true) {
+          final Item it = iter == null ? null : iter.next();
+          if(it != null) {
+            ctx.set(var, it, info);
+            return true;
+          }
+          if(!sub.next(ctx)) return false;
+          if(table == null) table = new Table(ctx);
+          iter = table.probe(ctx);
+        }
+      }
+    };
+  }
+
+  @Override
+  public void plan(final FElem plan) {
+    final FElem e = planElem();
+    var.plan(e);
+    input.plan(e);
+    pred.plan(e);
+    plan.add(e);
+  }
+
+  @Override
+  public String toString() {
+    return FOR + ' ' + var + ' ' + IN + ' ' + input + '[' + pred + ']';
+  }
+
+  @Override
+  public boolean has(final Flag flag) {
+    // the predicate is evaluated with the input items as context
+    return input.has(flag) || flag != Flag.CTX && flag != Flag.FCS && pred.has(flag);
+  }
+
+  @Override
+  public Clause compile(final QueryContext ctx, final VarScope scp)
+      throws QueryException {
+    input = input.compile(ctx, scp);
+    return join(ctx, scp, pred.compile(ctx, scp));
+  }
+
+  @Override
+  public Join optimize(final QueryContext ctx, final VarScope scp) throws QueryException {
+    type = SeqType.get(input.type().type, Occ.ONE);
+    var.refineType(type, ctx, info);
+    size = 1;
+    return this;
+  }
+
+  @Override
+  public boolean removable(final Var v) {
+    return input.removable(v) && !pred.uses(v);
+  }
+
+  @Override
+  public VarUsage count(final Var v) {
+    // the predicate may be evaluated for each input item
+    return input.count(v).plus(pred.count(v).times(-1));
+  }
+
+  @Override
+  public Clause inline(final QueryContext ctx, final VarScope scp,
+      final Var v, final Expr e) throws QueryException {
+    final Expr in = input.inline(ctx, scp, v, e), pr = pred.inline(ctx, scp, v, e);
+    if(in == null && pr == null) return null;
+    if(in != null) input = in;
+    return join(ctx, scp, pr == null ? pred : pr);
+  }
+
+  /**
+   * Assigns a new join predicate. If the predicate cannot be evaluated as join
+   * anymore, a for clause is returned.
+   * @param ctx query context
+   * @param scp variable scope
+   * @param p predicate
+   * @return resulting clause
+   * @throws QueryException query exception
+   */
+  private Clause join(final QueryContext ctx, final VarScope scp, final Expr p)
+      throws QueryException {
+    if(p instanceof CmpG) {
+      final int k = key((CmpG) p);
+      if(k != -1) {
+        pred = (CmpG) p;
+        key = k;
+        return optimize(ctx, scp);
+      }
+    }
+    final Expr ex = Filter.get(info, input, p).optimize(ctx, scp);
+    return new For(var, null, null, ex, false, info).optimize(ctx, scp);
+  }
+
+  @Override
+  public Join copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
+    final Var v = scp.newCopyOf(ctx, var);
+    vs.put(var.id, v);
+    return new Join(v, input.copy(ctx, scp, vs), (CmpG) pred.copy(ctx, scp, vs), key,
+        info);
+  }
+
+  @Override
+  public boolean accept(final ASTVisitor visitor) {
+    return input.accept(visitor) && pred.accept(visitor) && visitor.declared(var);
+  }
+
+  @Override
+  public void checkUp() throws QueryException {
+    checkNoneUp(input, pred);
+  }
+
+  @Override
+  long calcSize(final long count) {
+    return input.size() == 0 ? 0 : -1;
+  }
+
+  @Override
+  public int exprSize() {
+    return input.exprSize() + pred.exprSize();
+  }
+
+  /**
+   * Hash table on the keys of the input items.
+   */
+  private final class Table {
+    /** Input items. */
+    private final ValueBuilder items = new ValueBuilder();
+    /** Positions of the input items, indexed by the string values of their keys. */
+    private final TokenObjMap<IntList> strings = new TokenObjMap<IntList>();
+    /** Ids of numeric entries, indexed by the bits of their double values. */
+    private final TokenObjMap<IntList> numbers = new TokenObjMap<IntList>();
+    /** Positions of numeric entries. */
+    private final IntList npos = new IntList();
+    /** Keys of numeric entries. */
+    private final ValueBuilder nkeys = new ValueBuilder();
+    /** Positions of untyped keys (will be indexed as numbers on demand). */
+    private IntList upos = new IntList();
+    /** Untyped keys (will be indexed as numbers on demand). */
+    private ValueBuilder ukeys = new ValueBuilder();
+    /** Positions of matching items. */
+    private final IntList matches = new IntList();
+
+    /** Indicates if string keys exist. */
+    private boolean str;
+    /** Indicates if numeric keys exist. */
+    private boolean num;
+    /** Indicates if untyped keys exist that cannot be converted to numbers. */
+    private boolean nan;
+    /** Indicates if the table cannot be used. */
+    private boolean fallback;
+
+    /**
+     * Constructor, evaluating the input and key expressions.
+     * @param ctx query context
+     * @throws QueryException query exception
+     */
+    Table(final QueryContext ctx) throws QueryException {
+      // collations may lead to different equivalence classes
+      fallback = ctx.sc.collation != null;
+
+      final Expr k = pred.expr[key];
+      final Iter ir = ctx.iter(input);
+      final Value cv = ctx.value;
+      try {
+        for(Item it; (it = ir.next()) != null;) {
+          ctx.checkStop();
+          final int p = (int) items.size();
+          items.add(it);
+          if(fallback) continue;
+          ctx.value = it;
+          try {
+            final Iter ki = ctx.iter(k);
+            for(Item ky; !fallback && (ky = ki.next()) != null;) add(ky, p);
+          } catch(final QueryException ex) {
+            // errors will be raised by the original predicate
+            fallback = true;
+          }
+        }
+      } finally {
+        ctx.value = cv;
+      }
+    }
+
+    /**
+     * Adds a key.
+     * @param ky key
+     * @param p position of the input item
+     * @throws QueryException query exception
+     */
+    private void add(final Item ky, final int p) throws QueryException {
+      if(ky instanceof Int || ky instanceof Dbl) {
+        num = true;
+        number(ky.dbl(info), ky, p);
+      } else if(ky.type.isUntyped()) {
+        string(ky.string(info), p);
+        upos.add(p);
+        ukeys.add(ky);
+      } else if(ky.type.isStringOrUntyped()) {
+        str = true;
+        string(ky.string(info), p);
+      } else {
+        fallback = true;
+      }
+    }
+
+    /**
+     * Adds a position to the string table.
+     * @param s string value
+     * @param p position of the input item
+     */
+    private void string(final byte[] s, final int p) {
+      IntList il = strings.get(s);
+      if(il == null) {
+        il = new IntList(1);
+        strings.put(s, il);
+      }
+      il.add(p);
+    }
+
+    /**
+     * Adds an entry to the numeric table.
+     * @param d double value
+     * @param ky key
+     * @param p position of the input item
+     */
+    private void number(final double d, final Item ky, final int p) {
+      // NaN is never equal to any value
+      if(Double.isNaN(d)) return;
+      final byte[] n = bits(d);
+      IntList il = numbers.get(n);
+      if(il == null) {
+        il = new IntList(1);
+        numbers.put(n, il);
+      }
+      il.add(npos.size());
+      npos.add(p);
+      nkeys.add(ky);
+    }
+
+    /**
+     * Returns all input items that match the probe values of the current tuple.
+     * @param ctx query context
+     * @return matching items
+     * @throws QueryException query exception
+     */
+    Iter probe(final QueryContext ctx) throws QueryException {
+      if(!fallback) {
+        matches.reset();
+        final Iter ir = ctx.iter(pred.expr[1 - key]);
+        boolean ok = true;
+        for(Item it; ok && (it = ir.next()) != null;) ok = probe(it);
+        if(ok) {
+          final int ms = matches.sort().unique().size();
+          final ValueBuilder vb = new ValueBuilder(ms);
+          for(int m = 0; m < ms; m++) vb.add(items.get(matches.get(m)));
+          return vb;
+        }
+      }
+
+      // evaluate original predicate for all input items
+      final ValueBuilder vb = new ValueBuilder();
+      final Value cv = ctx.value;
+      try {
+        final long is = items.size();
+        for(int i = 0; i < is; i++) {
+          ctx.checkStop();
+          final Item it = items.get(i);
+          ctx.value = it;
+          if(pred.test(ctx, info) != null) vb.add(it);
+        }
+      } finally {
+        ctx.value = cv;
+      }
+      return vb;
+    }
+
+    /**
+     * Looks up a single probe value.
+     * @param it probe value
+     * @return {@code false} if the value cannot be looked up in the table
+     * @throws QueryException query exception
+     */
+    private boolean probe(final Item it) throws QueryException {
+      if(it instanceof Int || it instanceof Dbl) {
+        // numbers cannot be compared with strings
+        if(str) return false;
+        index();
+        if(nan) return false;
+        match(it.dbl(info), it);
+      } else if(it.type.isUntyped()) {
+        match(it.string(info));
+        if(num) {
+          final double d;
+          try {
+            d = it.dbl(info);
+          } catch(final QueryException ex) {
+            return false;
+          }
+          match(d, it);
+        }
+      } else if(it.type.isStringOrUntyped()) {
+        // strings cannot be compared with numbers
+        if(num) return false;
+        match(it.string(info));
+      } else {
+        return false;
+      }
+      return true;
+    }
+
+    /**
+     * Adds the positions of all items with the specified string key.
+     * @param s string value
+     */
+    private void match(final byte[] s) {
+      final IntList il = strings.get(s);
+      if(il == null) return;
+      final int is = il.size();
+      for(int i = 0; i < is; i++) matches.add(il.get(i));
+    }
+
+    /**
+     * Adds the positions of all items with keys that are equal to the specified value.
+     * @param d double value
+     * @param it probe value
+     * @throws QueryException query exception
+     */
+    private void match(final double d, final Item it) throws QueryException {
+      if(Double.isNaN(d)) return;
+      final IntList il = numbers.get(bits(d));
+      if(il == null) return;
+      // double values may be equal for different integers
+      final int is = il.size();
+      for(int i = 0; i < is; i++) {
+        final int id = il.get(i);
+        if(nkeys.get(id).eq(it, null, info)) matches.add(npos.get(id));
+      }
+    }
+
+    /**
+     * Adds the untyped keys to the numeric table.
+     */
+    private void index() {
+      if(ukeys == null) return;
+      final long us = ukeys.size();
+      for(int u = 0; u < us; u++) {
+        final Item ky = ukeys.get(u);
+        try {
+          number(ky.dbl(info), ky, upos.get(u));
+        } catch(final QueryException ex) {
+          nan = true;
+        }
+      }
+      ukeys = null;
+      upos = null;
+    }
+  }
+
+  /**
+   * Returns a byte representation of the specified double value.
+   * @param d double value
+   * @return bytes
+   */
+  private static byte[] bits(final double d) {
+    // positive and negative zero are equal
+    return Token.token(Double.doubleToLongBits(d == 0 ? 0 : d));
+  }
+}
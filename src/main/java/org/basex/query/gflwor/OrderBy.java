@@ -1,11 +1,15 @@
 package org.basex.query.gflwor;
 
 import static org.basex.query.QueryText.*;
+import static org.basex.query.util.Err.*;
 import static org.basex.util.Array.*;
 
+import java.io.*;
 import java.util.*;
 import java.util.List;
 
+import org.basex.core.*;
+import org.basex.data.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.gflwor.GFLWOR.Eval;
@@ -31,6 +35,8 @@ public final class OrderBy extends GFLWOR.Clause {
   final Key[] keys;
   /** Stable sort flag. */
   final boolean stable;
+  /** Maximum number of returned tuples (0: no limit). */
+  int limit;
 
   /**
    * Constructor.
@@ -52,14 +58,19 @@ public final class OrderBy extends GFLWOR.Clause {
     return new Eval() {
       /** Sorted output tuples. */
       private Value[][] tpls;
+      /** Sort keys of the output tuples (only assigned if runs exist). */
+      private Item[][] ks;
       /** Permutation of the values. */
       private int[] perm;
+      /** Sorted runs that have been written to disk ({@code null} if none exist). */
+      private ArrayList<TupleRun> runs;
       /** Current position. */
       int pos;
       @Override
       public boolean next(final QueryContext ctx) throws QueryException {
         if(tpls == null) sort(ctx);
-        if(pos == tpls.length) return false;
+        if(runs != null) return merge(ctx);
+        if(pos == perm.length) return false;
         final int p = perm[pos++];
         final Value[] tuple = tpls[p];
         // free the space occupied by the tuple
@@ -69,13 +80,60 @@ public final class OrderBy extends GFLWOR.Clause {
       }
 
       /**
-       * Caches and sorts all incoming tuples.
+       * Returns the next tuple from the sorted runs and the tuples in main memory.
+       * The runs are ordered by their creation; on equal keys, the tuple of the
+       * earliest run is returned first, and the main memory tuples come last.
+       * @param ctx query context
+       * @return {@code true} if another tuple was found
+       * @throws QueryException evaluation exception
+       */
+      private boolean merge(final QueryContext ctx) throws QueryException {
+        TupleRun min = null;
+        for(final TupleRun r : runs) {
+          if(r.key != null && (min == null || cmp(r.key, min.key) < 0)) min = r;
+        }
+        if(pos < perm.length && (min == null || cmp(ks[perm[pos]], min.key) < 0)) {
+          ks[perm[pos]] = null;
+          min = null;
+        }
+        if(min == null) {
+          if(pos == perm.length) return false;
+          final int p = perm[pos++];
+          final Value[] tuple = tpls[p];
+          tpls[p] = null;
+          for(int i = 0; i < refs.length; i++) ctx.set(refs[i].var, tuple[i], info);
+        } else {
+          for(int i = 0; i < refs.length; i++) ctx.set(refs[i].var, min.vals[i], info);
+          try {
+            min.next(ctx);
+          } catch(final IOException ex) {
+            IOERR.thrw(info, ex);
+          }
+        }
+        return true;
+      }
+
+      /**
+       * Caches and sorts all incoming tuples. If a memory limit is specified via
+       * {@link Prop#SORTMEMORY}, and if it is exceeded, the cached tuples are sorted
+       * and written to a temporary file. Tuples with items that cannot be written
+       * (e.g., constructed nodes) disable this behavior.
        * @param ctx query context
        * @throws QueryException evaluation exception
        */
       private void sort(final QueryContext ctx) throws QueryException {
+        if(limit != 0) {
+          top(ctx);
+          return;
+        }
+
+        final long budget = (long) ctx.context.prop.num(Prop.SORTMEMORY) << 20;
+        boolean spill = budget > 0;
+        long mem = 0;
+        final ArrayList<Data> datas = new ArrayList<Data>();
+
         // keys are stored at odd positions, values at even ones
-        List<Value[]> tuples = new ArrayList<Value[]>();
+        final List<Value[]> tuples = new ArrayList<Value[]>();
         while(sub.next(ctx)) {
           final Item[] key = new Item[keys.length];
           for(int i = 0; i < keys.length; i++)
@@ -85,10 +143,98 @@ public final class OrderBy extends GFLWOR.Clause {
           final Value[] vals = new Value[refs.length];
           for(int i = 0; i < refs.length; i++) vals[i] = refs[i].value(ctx);
           tuples.add(vals);
+
+          if(!spill) continue;
+          final long s = TupleRun.size(key, vals);
+          if(s == -1) {
+            spill = false;
+          } else if((mem += s) > budget) {
+            sort(tuples);
+            try {
+              final TupleRun run = new TupleRun(ks, tpls, perm, datas, info);
+              ctx.resource.addTemp(run);
+              if(runs == null) runs = new ArrayList<TupleRun>();
+              runs.add(run);
+            } catch(final IOException ex) {
+              IOERR.thrw(info, ex);
+            }
+            tuples.clear();
+            mem = 0;
+          }
         }
+        sort(tuples);
+
+        if(runs == null) {
+          // keys are not needed anymore
+          ks = null;
+        } else {
+          try {
+            for(final TupleRun r : runs) r.init(ctx, keys.length, refs.length);
+          } catch(final IOException ex) {
+            IOERR.thrw(info, ex);
+          }
+        }
+      }
 
+      /**
+       * Caches the first tuples in the sort order, the number of which is specified
+       * by {@link #limit}. The tuples are managed by a heap, which has the last of
+       * the cached tuples at its top.
+       * @param ctx query context
+       * @throws QueryException evaluation exception
+       */
+      private void top(final QueryContext ctx) throws QueryException {
+        final int n = limit + 1;
+        ks = new Item[n][];
+        tpls = new Value[n][];
+        // input positions of the tuples, used to order tuples with equal keys
+        final long[] ps = new long[n];
+        final MinHeap<Integer, Integer> heap = new MinHeap<Integer, Integer>(n,
+            new Comparator<Integer>() {
+          @Override
+          public int compare(final Integer a, final Integer b) {
+            try {
+              final int c = cmp(ks[a], ks[b]);
+              return c != 0 ? -c : ps[a] < ps[b] ? 1 : -1;
+            } catch(final QueryException ex) {
+              throw new QueryRTException(ex);
+            }
+          }
+        });
+
+        try {
+          long p = 0;
+          for(int s = 0; sub.next(ctx);) {
+            final Item[] key = new Item[keys.length];
+            for(int i = 0; i < keys.length; i++)
+              key[i] = keys[i].expr.item(ctx, keys[i].info);
+            final Value[] vals = new Value[refs.length];
+            for(int i = 0; i < refs.length; i++) vals[i] = refs[i].value(ctx);
+
+            ks[s] = key;
+            tpls[s] = vals;
+            ps[s] = p++;
+            heap.insert(s, s);
+            // reuse the slot of the removed tuple
+            s = heap.size() > limit ? heap.removeMin() : heap.size();
+          }
+        } catch(final QueryRTException ex) {
+          throw ex.wrapped();
+        }
+
+        perm = new int[heap.size()];
+        for(int i = perm.length; --i >= 0;) perm[i] = heap.removeMin();
+        ks = null;
+      }
+
+      /**
+       * Sorts the specified tuples and assigns them to the global arrays.
+       * @param tuples cached tuples
+       * @throws QueryException evaluation exception
+       */
+      private void sort(final List<Value[]> tuples) throws QueryException {
         final int len = tuples.size() >>> 1;
-        final Item[][] ks = new Item[len][];
+        ks = new Item[len][];
         perm = new int[len];
         tpls = new Value[len][];
         for(int i = 0; i < len; i++) {
@@ -96,8 +242,6 @@ public final class OrderBy extends GFLWOR.Clause {
           tpls[i] = tuples.get(i << 1 | 1);
           ks[i] = (Item[]) tuples.get(i << 1);
         }
-        // be nice to the garbage collector
-        tuples = null;
         sort(ks, 0, len);
       }
 
@@ -171,14 +315,26 @@ public final class OrderBy extends GFLWOR.Clause {
 
       /**
        * Returns the difference of two entries (part of QuickSort).
-       * @param ks sort keys
+       * @param k sort keys
        * @param x first position
        * @param y second position
        * @return result
        * @throws QueryException query exception
        */
-      private int cmp(final Item[][] ks, final int x, final int y) throws QueryException {
-        final Item[] a = ks[x], b = ks[y];
+      private int cmp(final Item[][] k, final int x, final int y) throws QueryException {
+        final int c = cmp(k[x], k[y]);
+        // optional stable sorting
+        return c != 0 || !stable ? c : x - y;
+      }
+
+      /**
+       * Returns the difference of two sort keys.
+       * @param a first sort key
+       * @param b second sort key
+       * @return result
+       * @throws QueryException query exception
+       */
+      private int cmp(final Item[] a, final Item[] b) throws QueryException {
         for(int k = 0; k < keys.length; k++) {
           final Key or = keys[k];
           Item m = a[k], n = b[k];
@@ -190,9 +346,7 @@ public final class OrderBy extends GFLWOR.Clause {
             or.least ? 1 : -1 : m.diff(n, or.coll, or.info);
           if(c != 0) return or.desc ? -c : c;
         }
-
-        // optional stable sorting
-        return stable ? x - y : 0;
+        return 0;
       }
 
       /**
@@ -216,7 +370,8 @@ public final class OrderBy extends GFLWOR.Clause {
 
   @Override
   public void plan(final FElem plan) {
-    final FElem e = planElem(Token.token(STABLE), Token.token(stable));
+    final FElem e = limit == 0 ? planElem(Token.token(STABLE), Token.token(stable)) :
+      planElem(Token.token(STABLE), Token.token(stable), MAX, Token.token(limit));
     for(final Key k : keys) k.plan(e);
     plan.add(e);
   }
@@ -269,8 +424,10 @@ public final class OrderBy extends GFLWOR.Clause {
   @Override
   public OrderBy copy(final QueryContext ctx, final VarScope scp,
       final IntObjMap<Var> vs) {
-    return new OrderBy(Arr.copyAll(ctx, scp, vs, refs),
+    final OrderBy ob = new OrderBy(Arr.copyAll(ctx, scp, vs, refs),
         Arr.copyAll(ctx, scp, vs, keys), stable, info);
+    ob.limit = limit;
+    return ob;
   }
 
   @Override
@@ -0,0 +1,296 @@
+package org.basex.query.gflwor;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.data.*;
+import org.basex.io.*;
+import org.basex.io.in.DataInput;
+import org.basex.io.out.DataOutput;
+import org.basex.query.*;
+import org.basex.query.iter.*;
+import org.basex.query.value.*;
+import org.basex.query.value.item.*;
+import org.basex.query.value.node.*;
+import org.basex.query.value.seq.*;
+import org.basex.query.value.type.*;
+import org.basex.util.*;
+
+/**
+ * A sorted run of {@code order by} tuples, which has been written to a temporary file.
+ * Sort keys and bound values are restored one tuple at a time. Database nodes are
+ * stored as references, atomic items by their value; all other items (such as
+ * constructed nodes or function items) cannot be written.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Leo Woerteler
+ */
+final class TupleRun implements Closeable {
+  /** Empty sort key. */
+  private static final int EMPTY = 0;
+  /** Database node. */
+  private static final int NODE = 1;
+  /** Integer. */
+  private static final int INT = 2;
+  /** Double. */
+  private static final int DBL = 3;
+  /** Float. */
+  private static final int FLT = 4;
+  /** Boolean. */
+  private static final int BLN = 5;
+  /** String. */
+  private static final int STR = 6;
+  /** Untyped atomic value. */
+  private static final int ATM = 7;
+  /** Other atomic value, restored by casting its string representation. */
+  private static final int CAST = 8;
+
+  /** Databases referenced by the written nodes (shared by all runs of a clause). */
+  private final ArrayList<Data> datas;
+  /** Input info. */
+  private final InputInfo info;
+  /** Temporary file. */
+  private final IOFile file;
+  /** Input stream ({@code null} if the run has been closed). */
+  private DataInput in;
+  /** Number of remaining tuples. */
+  private int left;
+
+  /** Sort keys of the current tuple. */
+  Item[] key;
+  /** Values of the current tuple. */
+  Value[] vals;
+
+  /**
+   * Writes the specified tuples to a temporary file.
+   * @param ks sort keys
+   * @param tpls values
+   * @param perm order in which the tuples will be written
+   * @param dbs databases referenced by the written nodes
+   * @param ii input info
+   * @throws IOException I/O exception
+   */
+  TupleRun(final Item[][] ks, final Value[][] tpls, final int[] perm,
+      final ArrayList<Data> dbs, final InputInfo ii) throws IOException {
+    datas = dbs;
+    info = ii;
+    file = new IOFile(File.createTempFile("orderby", IO.BASEXSUFFIX));
+    final DataOutput out = new DataOutput(file);
+    try {
+      for(final int p : perm) {
+        for(final Item it : ks[p]) write(it, out);
+        for(final Value v : tpls[p]) {
+          out.writeNum((int) v.size());
+          for(final Item it : v) write(it, out);
+        }
+      }
+    } finally {
+      out.close();
+    }
+    left = perm.length;
+    in = new DataInput(file);
+  }
+
+  /**
+   * Reads the next tuple.
+   * @param ctx query context
+   * @return {@code true} if a tuple was read, {@code false} if the run is exhausted
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  boolean next(final QueryContext ctx) throws IOException, QueryException {
+    if(left == 0) {
+      close();
+      key = null;
+      vals = null;
+      return false;
+    }
+    left--;
+    for(int k = 0; k < key.length; k++) key[k] = read(ctx);
+    for(int v = 0; v < vals.length; v++) {
+      final int s = in.readNum();
+      final ValueBuilder vb = new ValueBuilder(s);
+      for(int i = 0; i < s; i++) vb.add(read(ctx));
+      vals[v] = vb.value();
+    }
+    return true;
+  }
+
+  /**
+   * Initializes the tuple buffers and reads the first tuple.
+   * @param ctx query context
+   * @param nk number of sort keys
+   * @param nv number of values
+   * @return {@code true} if a tuple was read
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  boolean init(final QueryContext ctx, final int nk, final int nv)
+      throws IOException, QueryException {
+    key = new Item[nk];
+    vals = new Value[nv];
+    return next(ctx);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(in == null) return;
+    in.close();
+    in = null;
+    file.delete();
+  }
+
+  /**
+   * Estimates the main memory consumed by a tuple.
+   * @param key sort keys
+   * @param vals values
+   * @return estimated number of bytes, or {@code -1} if the tuple cannot be written
+   */
+  static long size(final Item[] key, final Value[] vals) {
+    long s = 16L + (key.length + vals.length << 3);
+    for(final Item it : key) {
+      final long is = size(it);
+      if(is == -1) return -1;
+      s += is;
+    }
+    for(final Value v : vals) {
+      for(final Item it : v) {
+        final long is = size(it);
+        if(is == -1) return -1;
+        s += is;
+      }
+    }
+    return s;
+  }
+
+  /**
+   * Estimates the main memory consumed by an item.
+   * @param it item ({@code null} for an empty sort key)
+   * @return estimated number of bytes, or {@code -1} if the item cannot be written
+   */
+  private static long size(final Item it) {
+    if(it == null) return 0;
+    switch(kind(it)) {
+      case -1:  return -1;
+      case STR:
+      case ATM: return 40 + len(it);
+      default:  return 32;
+    }
+  }
+
+  /**
+   * Returns the length of the string of an item.
+   * @param it string or untyped item
+   * @return length
+   */
+  private static int len(final Item it) {
+    return (it instanceof Atm ? ((Atm) it).string(null) : ((Str) it).string()).length;
+  }
+
+  /**
+   * Returns the kind of the specified item.
+   * @param it item
+   * @return kind, or {@code -1} if the item cannot be written
+   */
+  private static int kind(final Item it) {
+    if(it instanceof DBNode) return it instanceof FTNode ? -1 : NODE;
+    if(it instanceof Int) return INT;
+    if(it instanceof Dbl) return DBL;
+    if(it instanceof Flt) return FLT;
+    if(it instanceof Bln) return BLN;
+    if(it instanceof Atm) return ATM;
+    if(it.getClass() == Str.class) return STR;
+    return it instanceof ADateDur || it instanceof Dec || it instanceof Uri ||
+        it instanceof Hex || it instanceof B64 && !(it instanceof B64Stream) ? CAST : -1;
+  }
+
+  /**
+   * Writes an item.
+   * @param it item ({@code null} for an empty sort key)
+   * @param out output stream
+   * @throws IOException I/O exception
+   */
+  private void write(final Item it, final DataOutput out) throws IOException {
+    if(it == null) {
+      out.write1(EMPTY);
+      return;
+    }
+    final int k = kind(it);
+    out.write1(k);
+    switch(k) {
+      case NODE:
+        final DBNode n = (DBNode) it;
+        int d = datas.indexOf(n.data);
+        if(d == -1) {
+          d = datas.size();
+          datas.add(n.data);
+        }
+        out.writeNum(d);
+        out.writeNum(n.pre);
+        break;
+      case INT:
+        out.write1(it.type.id().asByte());
+        out.write8(((Int) it).itr());
+        break;
+      case DBL:
+        out.write8(Double.doubleToRawLongBits(((Dbl) it).dbl()));
+        break;
+      case FLT:
+        out.write8(Double.doubleToRawLongBits(((Flt) it).dbl()));
+        break;
+      case BLN:
+        out.writeBool(((Bln) it).bool(info));
+        break;
+      case STR:
+        out.write1(it.type.id().asByte());
+        out.writeToken(((Str) it).string());
+        break;
+      case ATM:
+        out.writeToken(((Atm) it).string(info));
+        break;
+      default:
+        out.write1(it.type.id().asByte());
+        try {
+          out.writeToken(it.string(info));
+        } catch(final QueryException ex) {
+          throw Util.notexpected(ex);
+        }
+    }
+  }
+
+  /**
+   * Reads an item.
+   * @param ctx query context
+   * @return item ({@code null} for an empty sort key)
+   * @throws IOException I/O exception
+   * @throws QueryException query exception
+   */
+  private Item read(final QueryContext ctx) throws IOException, QueryException {
+    switch(in.read()) {
+      case EMPTY:
+        return null;
+      case NODE:
+        final Data d = datas.get(in.readNum());
+        return new DBNode(d, in.readNum());
+      case INT:
+        final Type ti = Type.ID.getType((byte) in.read());
+        return Int.get(in.read8(), ti);
+      case DBL:
+        return Dbl.get(Double.longBitsToDouble(in.read8()));
+      case FLT:
+        return Flt.get((float) Double.longBitsToDouble(in.read8()));
+      case BLN:
+        return Bln.get(in.readBool());
+      case STR:
+        final AtomType ts = (AtomType) Type.ID.getType((byte) in.read());
+        return ts == AtomType.STR ? Str.get(in.readToken()) : new Str(in.readToken(), ts);
+      case ATM:
+        return new Atm(in.readToken());
+      case CAST:
+        final Type tc = Type.ID.getType((byte) in.read());
+        return (Item) tc.cast(Str.get(in.readToken()), ctx, info);
+      default:
+        throw Util.notexpected();
+    }
+  }
+}
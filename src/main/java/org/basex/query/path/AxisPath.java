@@ -136,6 +136,8 @@ public abstract class AxisPath extends Path {
 
     // cache index access costs
     IndexContext ics = null;
+    // index contexts of all predicates that are index accessible
+    final IndexContext[][] ia = new IndexContext[steps.length][];
     // cheapest predicate and step
     int pmin = 0;
     int smin = 0;
@@ -150,6 +152,7 @@ public abstract class AxisPath extends Path {
       final boolean i = pathNodes(data, s) != null;
 
       // choose cheapest index access
+      ia[s] = new IndexContext[stp.preds.length];
       for(int p = 0; p < stp.preds.length; ++p) {
         final IndexContext ic = new IndexContext(ctx, data, stp, i);
         if(!stp.preds[p].indexAccessible(ic)) continue;
@@ -164,6 +167,7 @@ public abstract class AxisPath extends Path {
           ctx.compInfo(OPTNOINDEX, this);
           return Empty.SEQ;
         }
+        ia[s][p] = ic;
         if(ics == null || ics.costs() > ic.costs()) {
           ics = ic;
           pmin = p;
@@ -172,12 +176,31 @@ public abstract class AxisPath extends Path {
       }
     }
 
-    // skip if no index access is possible, or if it is too expensive
-    if(ics == null || ics.costs() > data.meta.size) return this;
+    // skip if no index access is possible, or if it is more expensive than
+    // sequentially checking the nodes of the index step
+    if(ics == null || ics.costs() > ics.scanCosts(pathNodes(data, smin))) return this;
 
     // replace expressions for index access
     final Step stp = step(smin);
-    final Expr ie = stp.preds[pmin].indexEquivalent(ics);
+    final boolean[] ip = new boolean[stp.preds.length];
+    ip[pmin] = true;
+    Expr ie = stp.preds[pmin].indexEquivalent(ics);
+
+    // intersect the results of other index-accessible predicates of the same step
+    if(!ics.seq) {
+      Expr[] is = { ie };
+      for(int p = 0; p < stp.preds.length; ++p) {
+        final IndexContext ic = ia[smin][p];
+        if(p == pmin || ic == null || ic.seq || ic.not ||
+            !ics.intersect(ic.costs())) continue;
+        is = Array.add(is, stp.preds[p].indexEquivalent(ic));
+        ip[p] = true;
+      }
+      if(is.length > 1) {
+        ctx.compInfo(OPTINTERSECT, is.length);
+        ie = new InterSect(info, is);
+      }
+    }
 
     if(ics.seq) {
       // sequential evaluation; do not invert path
@@ -187,10 +210,9 @@ public abstract class AxisPath extends Path {
       Step[] invSteps = {};
 
       // collect remaining predicates
-      final Expr[] newPreds = new Expr[stp.preds.length - 1];
-      int c = 0;
+      Expr[] newPreds = {};
       for(int p = 0; p != stp.preds.length; ++p) {
-        if(p != pmin) newPreds[c++] = stp.preds[p];
+        if(!ip[p]) newPreds = Array.add(newPreds, stp.preds[p]);
       }
 
       // check if path before index step needs to be inverted and traversed
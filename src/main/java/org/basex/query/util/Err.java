@@ -40,6 +40,8 @@ public enum Err {
   BASX_ANNOT(BASX, 6, "Annotation %% is invalid or not supported."),
   /** BASX0006. */
   BASX_ANNOTARGS(BASX, 6, "Annotation %% has invalid arguments."),
+  /** BASX0007. */
+  BASX_PRAGMA(BASX, 7, "Pragma % has invalid value '%'."),
 
   // Client module
 
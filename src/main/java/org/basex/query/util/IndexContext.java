@@ -1,9 +1,15 @@
 package org.basex.query.util;
 
+import java.util.ArrayList;
+
 import org.basex.data.*;
+import org.basex.index.name.*;
+import org.basex.index.path.*;
+import org.basex.index.stats.*;
 import org.basex.query.*;
 import org.basex.query.expr.*;
 import org.basex.query.path.*;
+import org.basex.query.path.Test.Mode;
 import org.basex.util.*;
 
 /**
@@ -15,6 +21,9 @@ import org.basex.util.*;
  * @author Sebastian Gath
  */
 public final class IndexContext {
+  /** Maximum ratio between the costs of intersected and cheapest index requests. */
+  private static final int INTERSECT = 8;
+
   /** Query context. */
   public final QueryContext ctx;
   /** Data reference. */
@@ -77,6 +86,98 @@ public final class IndexContext {
     return path;
   }
 
+  /**
+   * Returns the statistics of the elements or attributes whose values will be
+   * requested from the index, or {@code null} if no up-to-date statistics exist.
+   * @param expr indexed expression
+   * @param text text flag
+   * @return statistics
+   */
+  public Stats stats(final Expr expr, final boolean text) {
+    // statistics are not up-to-date
+    if(!data.meta.uptodate || data.nspaces.size() != 0) return null;
+
+    final int st = expr instanceof AxisPath ? ((AxisPath) expr).steps.length : 0;
+    final Step s;
+    if(text) {
+      s = st < 2 ? step : ((AxisPath) expr).step(st - 2);
+      if(s.test.mode != Mode.NAME) return null;
+    } else {
+      s = st == 0 ? step : ((AxisPath) expr).step(st - 1);
+      if(!s.simple(Axis.ATTR, true)) return null;
+    }
+
+    final Names names = text ? data.tagindex : data.atnindex;
+    return names.stat(names.id(((NameTest) s.test).ln));
+  }
+
+  /**
+   * Estimates the number of results of an index request.
+   * The number of index hits refers to all elements or attributes; it is reduced to the
+   * number of values of the addressed elements or attributes if statistics exist.
+   * If the requested value is unknown, the number of results is derived from the number
+   * of distinct values.
+   * @param stats statistics (may be {@code null})
+   * @param value requested value ({@code null} if unknown)
+   * @param hits number of index hits ({@code -1} if unknown)
+   * @return estimated number of results
+   */
+  public int estimate(final Stats stats, final byte[] value, final int hits) {
+    if(hits == 0) return 0;
+    // no statistics: if unknown, assume that a tenth of all nodes will be found
+    if(stats == null) return hits != -1 ? hits : Math.max(1, data.meta.size / 10);
+
+    int c = hits != -1 ? Math.min(hits, stats.count) : stats.count / 10;
+    if(stats.type == StatsType.CATEGORY) {
+      if(value == null) {
+        c = stats.count / Math.max(1, stats.cats.size());
+      } else {
+        final int v = stats.cats.get(value);
+        if(v > 0) c = Math.min(c, v);
+      }
+    }
+    return Math.max(1, c);
+  }
+
+  /**
+   * Estimates the number of results of a numeric range request.
+   * @param stats numeric statistics
+   * @param min minimum value
+   * @param max maximum value
+   * @return estimated number of results
+   */
+  public int estimate(final Stats stats, final double min, final double max) {
+    final double range = stats.max - stats.min;
+    final double sel = range > 0 ? (Math.min(max, stats.max) - Math.max(min, stats.min)) /
+        range : 1;
+    return Math.max(1, (int) (stats.count * Math.min(1, sel)));
+  }
+
+  /**
+   * Returns the costs for sequentially checking the nodes of an index step.
+   * @param nodes path summary nodes of the step ({@code null} if unknown)
+   * @return number of nodes
+   */
+  public int scanCosts(final ArrayList<PathNode> nodes) {
+    if(nodes == null) return data.meta.size;
+    long sz = 0;
+    for(final PathNode pn : nodes) sz += pn.stats.count;
+    return (int) Math.min(data.meta.size, sz);
+  }
+
+  /**
+   * Checks if the results of an index request with the specified costs will be
+   * intersected with the results of this request. Index entries are read sequentially,
+   * whereas the nodes that are found by this request would otherwise be filtered
+   * via random table access. Hence, intersection pays off if the costs of the
+   * other request do not exceed the costs of this request by a constant factor.
+   * @param c costs of the other request
+   * @return result of check
+   */
+  public boolean intersect(final int c) {
+    return c <= (long) costs * INTERSECT;
+  }
+
   /**
    * Adds the estimated costs.
    * @param c cost to be added
@@ -16,8 +16,6 @@ import org.basex.util.*;
 public final class NSContext {
   /** Static namespaces, containing prefixes and URIs. */
   private final Atts ns = new Atts();
-  /** Dynamically added namespaces. */
-  private Atts stack;
 
   /**
    * Validates and adds the specified namespace at parsing time.
@@ -60,51 +58,13 @@ public final class NSContext {
 
   /**
    * Returns the namespace URI for the specified prefix, if it is either
-   * found in the dynamic, static or predefined namespaces.
+   * found in the static or predefined namespaces. Dynamically added namespaces
+   * are resolved by {@link QueryContext#nsURI(byte[])}.
    * @param pref prefix of the namespace
    * @return namespace URI or {@code null}
    */
   public byte[] uri(final byte[] pref) {
-    if(stack != null) {
-      for(int s = stack.size() - 1; s >= 0; s--) {
-        if(eq(stack.name(s), pref)) return stack.value(s);
-      }
-    }
     final byte[] uri = staticURI(pref);
     return uri == null ? NSGlobal.uri(pref) : uri.length == 0 ? null : uri;
   }
-
-  /**
-   * Returns the number of dynamic namespaces.
-   * @return namespaces
-   */
-  public int size() {
-    return stack().size();
-  }
-
-  /**
-   * Sets the number of dynamic namespaces.
-   * @param s namespaces
-   */
-  public void size(final int s) {
-    stack().size(s);
-  }
-
-  /**
-   * Adds a namespace to the namespace stack.
-   * @param pref namespace prefix
-   * @param uri namespace URI
-   */
-  public void add(final byte[] pref, final byte[] uri) {
-    stack().add(pref, uri);
-  }
-
-  /**
-   * Returns the namespace stack.
-   * @return stack
-   */
-  public Atts stack() {
-    if(stack == null) stack = new Atts();
-    return stack;
-  }
 }
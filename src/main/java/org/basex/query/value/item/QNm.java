@@ -90,7 +90,7 @@ public final class QNm extends Item {
    */
   public QNm(final byte[] n, final QueryContext ctx) {
     this(n);
-    uri(ctx.sc.ns.uri(prefix()));
+    uri(ctx.nsURI(prefix()));
   }
 
   /**
@@ -69,6 +69,26 @@ public final class StaticVar extends StaticDecl {
     implicit = true;
   }
 
+  /**
+   * Copy constructor. The bound expression is assigned by {@link #copyExpr}.
+   * @param var variable to be copied
+   */
+  StaticVar(final StaticVar var) {
+    super(var.sc, var.ann, var.name, var.declType, new VarScope(), var.xqdoc(), var.info);
+    external = var.external;
+    lazy = var.lazy;
+    implicit = var.implicit;
+  }
+
+  /**
+   * Assigns a copy of the expression that is bound to the specified variable.
+   * @param var variable to be copied
+   * @param ctx query context
+   */
+  void copyExpr(final StaticVar var, final QueryContext ctx) {
+    if(var.expr != null) expr = var.expr.copy(ctx, scope);
+  }
+
   @Override
   public void compile(final QueryContext ctx) throws QueryException {
     if(expr == null) throw (implicit ? VARUNDEF : VAREMPTY).thrw(info, this);
@@ -69,7 +69,7 @@ public class StaticVarRef extends ParseExpr {
   @Override
   public Expr copy(final QueryContext ctx, final VarScope scp, final IntObjMap<Var> vs) {
     final StaticVarRef ref = new StaticVarRef(info, name, sc);
-    ref.var = var;
+    ref.var = ctx.vars.get(var);
     return ref;
   }
 
@@ -19,7 +19,7 @@ import org.basex.util.hash.*;
  * @author Christian Gruen
  * @author Leo Woerteler
  */
-public final class VarRef extends ParseExpr {
+public class VarRef extends ParseExpr {
   /** Variable name. */
   public Var var;
 
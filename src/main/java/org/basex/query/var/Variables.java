@@ -47,6 +47,40 @@ public final class Variables extends ExprInfo implements Iterable<StaticVar> {
     return var;
   }
 
+  /**
+   * Declares copies of the variables of the specified container. The bound
+   * expressions are assigned by {@link #copyExprs}, as they may reference
+   * functions and variables that have not been declared yet.
+   * @param vs variables to be copied
+   */
+  public void declareCopies(final Variables vs) {
+    for(final Entry<QNm, VarEntry> e : vs.vars.entrySet()) {
+      vars.put(e.getKey(), new VarEntry(new StaticVar(e.getValue().var)));
+    }
+  }
+
+  /**
+   * Assigns copies of the expressions that are bound to the variables of the
+   * specified container.
+   * @param vs variables to be copied
+   * @param ctx query context
+   */
+  public void copyExprs(final Variables vs, final QueryContext ctx) {
+    for(final Entry<QNm, VarEntry> e : vs.vars.entrySet()) {
+      vars.get(e.getKey()).var.copyExpr(e.getValue().var, ctx);
+    }
+  }
+
+  /**
+   * Returns the variable of this container that has the same name as the specified one.
+   * @param var variable
+   * @return variable, or the specified variable if it is unknown
+   */
+  StaticVar get(final StaticVar var) {
+    final VarEntry ve = var == null ? null : vars.get(var.name);
+    return ve != null && ve.var != null ? ve.var : var;
+  }
+
   /**
    * Checks if none of the variables contains an updating expression.
    * @throws QueryException query exception
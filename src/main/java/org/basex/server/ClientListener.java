@@ -5,7 +5,10 @@ import static org.basex.util.Token.*;
 
 import java.io.*;
 import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.basex.*;
 import org.basex.core.*;
@@ -19,12 +22,22 @@ import org.basex.util.list.*;
 
 /**
  * Server-side client session in the client-server architecture.
+ * The login data is received by the selector thread of the server. Sessions are
+ * processed by the workers of the server: the first run authenticates the client,
+ * and each further run processes the commands that have been sent by the client.
+ * Idle sessions are handed back to the server.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
  */
-public final class ClientListener extends Thread {
+public final class ClientListener implements Runnable {
+  /** Session id counter. */
+  private static final AtomicLong SESSIONS = new AtomicLong();
+  /** Maximum size of the login data. */
+  private static final int MAXLOGIN = 1 << 12;
+  /** Maximum size of deferred responses. */
+  private static final int MAXDEFER = 1 << 16;
   /** Timer for authentication time out. */
   public final Timer auth = new Timer();
   /** Timestamp of last interaction. */
@@ -41,6 +54,10 @@ public final class ClientListener extends Thread {
   private final BaseXServer server;
   /** Socket reference. */
   private final Socket socket;
+  /** Session id. */
+  private final long sid = SESSIONS.incrementAndGet();
+  /** Login data, received by the selector thread. */
+  private final ByteList login = new ByteList();
 
   /** Socket for events. */
   private Socket esocket;
@@ -52,12 +69,18 @@ public final class ClientListener extends Thread {
   private BufferInput in;
   /** Output stream. */
   private PrintOutput out;
+  /** Output stream of the socket. */
+  private PrintOutput sout;
+  /** Responses that are deferred until the preceding updates have been flushed. */
+  private ArrayOutput deferred;
   /** Current command. */
   private Command command;
   /** Query id counter. */
   private int id;
-  /** Indicates if the server thread is running. */
-  private boolean running;
+  /** Timestamp sent for authentication. */
+  private String timestamp;
+  /** Indicates if the session is running. */
+  private volatile boolean running;
 
   /**
    * Constructor.
@@ -70,103 +93,176 @@ public final class ClientListener extends Thread {
     socket = s;
     server = srv;
     last = System.currentTimeMillis();
-    setDaemon(true);
   }
 
   @Override
   public void run() {
-    if(!authenticate()) return;
+    // first run: authenticate session
+    if(in == null) {
+      if(authenticate()) server.listen(this);
+      return;
+    }
+    // process all commands that have already been sent by the client
+    try {
+      boolean more;
+      do {
+        if(!process()) return;
+        // deferred responses are sent when all requests have been processed
+        more = in.available() > 0;
+        if(!more || deferred != null && deferred.size() > MAXDEFER) sync();
+      } while(more);
+    } catch(final IOException ex) {
+      // this exception may be thrown if a session is stopped
+      quit();
+      return;
+    }
+    server.listen(this);
+  }
+
+  /**
+   * Sends the timestamp for authentication. Called by the server, which will then
+   * receive the login data without blocking.
+   * @throws IOException I/O exception
+   */
+  public void greet() throws IOException {
+    timestamp = System.nanoTime() + ClientSession.DEFLATE;
+    // send {TIMESTAMP}0, followed by the supported compression
+    out = PrintOutput.get(socket.getOutputStream());
+    sout = out;
+    out.print(timestamp);
+    send(true);
+  }
+
+  /**
+   * Checks if the session is ready to be processed by a worker. Called by the
+   * selector thread of the server: if the client has not been authenticated yet,
+   * the available login data is read from the non-blocking channel, and
+   * {@code true} is returned once it is complete. The connection is closed if the
+   * client closes it or sends too much data.
+   * @return result of check
+   */
+  public boolean ready() {
+    if(in != null) return true;
+    try {
+      final ByteBuffer bb = ByteBuffer.allocate(MAXLOGIN);
+      if(channel().read(bb) == -1) throw new EOFException();
+      login.add(bb.array(), 0, bb.position());
+      if(login.size() > MAXLOGIN) throw new IOException(Util.info(
+          "Login data exceeds % bytes.", MAXLOGIN));
+      // login data is complete if it contains {USER}0{PASSWORD}0
+      int zeros = 0;
+      for(int l = 0; l < login.size(); l++) if(login.get(l) == 0) zeros++;
+      return zeros == 2;
+    } catch(final IOException ex) {
+      log(ex, false);
+      server.remove(this);
+      try {
+        socket.close();
+      } catch(final IOException e) {
+        Util.debug(e);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Processes a single command.
+   * @return {@code false} if the session has been closed
+   */
+  private boolean process() {
+    if(!running) return false;
 
     ServerCmd sc;
     String cmd;
     try {
-      while(running) {
-        command = null;
-        try {
-          final int b = in.read();
-          if(b == -1) {
-            // end of stream: exit session
-            quit();
-            break;
-          }
-
-          last = System.currentTimeMillis();
-          perf.time();
-          sc = ServerCmd.get(b);
-          cmd = null;
-          if(sc == ServerCmd.CREATE) {
-            create();
-          } else if(sc == ServerCmd.ADD) {
-            add();
-          } else if(sc == ServerCmd.WATCH) {
-            watch();
-          } else if(sc == ServerCmd.UNWATCH) {
-            unwatch();
-          } else if(sc == ServerCmd.REPLACE) {
-            replace();
-          } else if(sc == ServerCmd.STORE) {
-            store();
-          } else if(sc != ServerCmd.COMMAND) {
-            query(sc);
-          } else {
-            // database command
-            cmd = new ByteList().add(b).add(in.readBytes()).toString();
-          }
-        } catch(final IOException ex) {
-          // this exception may be thrown if a session is stopped
+      command = null;
+      try {
+        final int b = in.read();
+        if(b == -1) {
+          // end of stream: exit session
           quit();
-          break;
-        }
-        if(sc != ServerCmd.COMMAND) continue;
-
-        // parse input and create command instance
-        try {
-          command = new CommandParser(cmd, context).parseSingle();
-          log(command, null);
-        } catch(final QueryException ex) {
-          // log invalid command
-          final String msg = ex.getMessage();
-          log(cmd, null);
-          log(msg, false);
-          // send 0 to mark end of potential result
-          out.write(0);
-          // send {INFO}0
-          out.writeString(msg);
-          // send 1 to mark error
-          send(false);
-          continue;
+          return false;
         }
 
-        // execute command and send {RESULT}
-        boolean ok = true;
-        String info;
-        try {
-          // run command
-          command.execute(context, new EncodingOutput(out));
-          info = command.info();
-        } catch(final BaseXException ex) {
-          ok = false;
-          info = ex.getMessage();
-          if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+        last = System.currentTimeMillis();
+        perf.time();
+        sc = ServerCmd.get(b);
+        cmd = null;
+        if(sc == ServerCmd.CREATE) {
+          create();
+        } else if(sc == ServerCmd.ADD) {
+          add();
+        } else if(sc == ServerCmd.WATCH) {
+          watch();
+        } else if(sc == ServerCmd.UNWATCH) {
+          unwatch();
+        } else if(sc == ServerCmd.REPLACE) {
+          replace();
+        } else if(sc == ServerCmd.STORE) {
+          store();
+        } else if(sc != ServerCmd.COMMAND) {
+          query(sc);
+        } else {
+          // database command
+          cmd = new ByteList().add(b).add(in.readBytes()).toString();
         }
-
-        // send 0 to mark end of result
+      } catch(final IOException ex) {
+        // this exception may be thrown if a session is stopped
+        quit();
+        return false;
+      }
+      if(sc != ServerCmd.COMMAND) return true;
+
+      // parse input and create command instance
+      try {
+        command = new CommandParser(cmd, context).parseSingle();
+        log(command, null);
+      } catch(final QueryException ex) {
+        // log invalid command
+        final String msg = ex.getMessage();
+        log(cmd, null);
+        log(msg, false);
+        // send 0 to mark end of potential result
         out.write(0);
-        // send info
-        info(info, ok);
+        // send {INFO}0
+        out.writeString(msg);
+        // send 1 to mark error
+        send(false);
+        return true;
+      }
 
-        // stop console
-        if(command instanceof Exit) {
-          command = null;
-          quit();
-        }
+      // execute command and send {RESULT}
+      boolean ok = true;
+      String info;
+      try {
+        // run command
+        command.execute(context, new EncodingOutput(out));
+        info = command.info();
+      } catch(final BaseXException ex) {
+        ok = false;
+        info = ex.getMessage();
+        if(info.startsWith(INTERRUPTED)) info = TIMEOUT_EXCEEDED;
+      }
+
+      // send 0 to mark end of result
+      out.write(0);
+      // send info
+      info(info, ok);
+
+      // stop console
+      if(command instanceof Exit) {
+        command = null;
+        quit();
+        return false;
       }
     } catch(final IOException ex) {
       log(ex, false);
       command = null;
       quit();
+      return false;
     }
     command = null;
+    return true;
   }
 
   /**
@@ -175,26 +271,28 @@ public final class ClientListener extends Thread {
    */
   private boolean authenticate() {
     try {
-      final String ts = Long.toString(System.nanoTime());
       final byte[] address = socket.getInetAddress().getAddress();
-
-      // send {TIMESTAMP}0
-      out = PrintOutput.get(socket.getOutputStream());
-      out.print(ts);
-      send(true);
-
-      // evaluate login data
-      in = new BufferInput(socket.getInputStream());
-      // receive {USER}0{PASSWORD}0
-      final String us = in.readString();
-      final String pw = in.readString();
+      final InputStream is = socket.getInputStream();
+      in = new BufferInput(is);
+
+      // evaluate {USER}0{PASSWORD}0, followed by the requested compression
+      final ArrayInput li = new ArrayInput(login.toArray());
+      final String us = li.readString();
+      String pw = li.readString();
+      final boolean deflate = pw.endsWith(ClientSession.DEFLATE);
+      if(deflate) pw = pw.substring(0, pw.length() - ClientSession.DEFLATE.length());
       context.user = context.users.get(us);
-      running = context.user != null && md5(context.user.password + ts).equals(pw);
+      running = context.user != null && md5(context.user.password + timestamp).equals(pw);
 
       // write log information
       if(running) {
         // send {OK}
         send(true);
+        if(deflate) {
+          out = PrintOutput.get(new DeflateOutput(socket.getOutputStream()));
+          sout = out;
+          in = new BufferInput(new InflateInput(is));
+        }
         context.blocker.remove(address);
         context.sessions.add(this);
       } else {
@@ -240,6 +338,7 @@ public final class ClientListener extends Thread {
       do Performance.sleep(50); while(command != null);
     }
     context.sessions.remove(this);
+    for(final QueryListener ql : queries.values()) ql.close();
 
     try {
       new Close().run(context);
@@ -255,6 +354,31 @@ public final class ClientListener extends Thread {
     }
   }
 
+  /**
+   * Defers all further responses until the updates of this session have been flushed.
+   * Called when an updating process of this session is unregistered.
+   */
+  public void defer() {
+    if(deferred == null) {
+      deferred = new ArrayOutput();
+      out = deferred;
+    }
+  }
+
+  /**
+   * Waits until the updates of this session have been flushed, and sends the
+   * deferred responses.
+   * @throws IOException I/O exception
+   */
+  private void sync() throws IOException {
+    if(deferred == null) return;
+    context.dbs.sync();
+    sout.write(deferred.toArray());
+    sout.flush();
+    out = sout;
+    deferred = null;
+  }
+
   /**
    * Returns the context of this session.
    * @return user reference
@@ -263,6 +387,22 @@ public final class ClientListener extends Thread {
     return context;
   }
 
+  /**
+   * Returns the id of this session.
+   * @return session id
+   */
+  public long getId() {
+    return sid;
+  }
+
+  /**
+   * Returns the socket channel of this session.
+   * @return channel
+   */
+  public SocketChannel channel() {
+    return socket.getChannel();
+  }
+
   /**
    * Registers the event socket.
    * @param s socket
@@ -483,6 +623,8 @@ public final class ClientListener extends Thread {
           qp.context(val, typ);
           info.append(val);
           if(!typ.isEmpty()) info.append(" as ").append(typ);
+        } else if(sc == ServerCmd.ITER) {
+          qp.iter(Integer.parseInt(in.readString()), out);
         } else if(sc == ServerCmd.RESULTS) {
           qp.execute(true, out, true, false);
         } else if(sc == ServerCmd.EXEC) {
@@ -496,7 +638,7 @@ public final class ClientListener extends Thread {
         } else if(sc == ServerCmd.UPDATING) {
           out.print(Boolean.toString(qp.updating()));
         } else if(sc == ServerCmd.CLOSE) {
-          queries.remove(arg);
+          queries.remove(arg).close();
         } else if(sc == ServerCmd.NEXT) {
           throw new Exception("Protocol for query iteration is out-of-date.");
         }
@@ -514,7 +656,8 @@ public final class ClientListener extends Thread {
       err = Util.message(ex);
       log(sc + "[" + arg + ']', null);
       log(err, false);
-      queries.remove(arg);
+      final QueryListener ql = queries.remove(arg);
+      if(ql != null) ql.close();
     }
     if(err != null) {
       // send 0 as end marker, 1 as error flag, and {MSG}0
@@ -3,7 +3,6 @@ package org.basex.server;
 import java.io.*;
 
 import org.basex.core.*;
-import org.basex.io.in.*;
 
 /**
  * This class defines all methods for iteratively evaluating queries with the
@@ -18,6 +17,8 @@ public class ClientQuery extends Query {
   protected final ClientSession cs;
   /** Query id. */
   protected final String id;
+  /** Number of results to be fetched at once ({@code 0}: all results). */
+  private int fetch;
 
   /**
    * Standard constructor.
@@ -34,6 +35,19 @@ public class ClientQuery extends Query {
     out = os;
   }
 
+  /**
+   * Sets the number of results that will be fetched from the server at once.
+   * If a positive number is specified, the query will be suspended on the server
+   * and only evaluated as far as its results are requested by the client.
+   * As the query keeps its database locks until all results have been fetched
+   * or the query is closed, no updates should be performed on the accessed databases
+   * while the results are iterated. By default, all results are fetched at once.
+   * @param n number of results
+   */
+  public void fetch(final int n) {
+    fetch = Math.max(0, n);
+  }
+
   @Override
   public String info() throws IOException {
     return cs.exec(ServerCmd.INFO, id, null);
@@ -73,11 +87,17 @@ public class ClientQuery extends Query {
 
   @Override
   protected void cache() throws IOException {
-    cs.sout.write(ServerCmd.RESULTS.code);
+    cs.drain();
+    final boolean iter = fetch > 0;
+    cs.sout.write((iter ? ServerCmd.ITER : ServerCmd.RESULTS).code);
     cs.send(id);
+    if(iter) cs.send(Integer.toString(fetch));
     cs.sout.flush();
-    final BufferInput bi = new BufferInput(cs.sin);
-    cache(bi);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    cache(cs.sin);
+    partial = iter && cache.size() == fetch;
+    if(!ClientSession.ok(cs.sin)) {
+      partial = false;
+      throw new BaseXException(cs.sin.readString());
+    }
   }
 }
@@ -25,18 +25,28 @@ import org.basex.util.*;
  * <li> {@link #close} closes the session by sending the {@link Cmd#EXIT}
  * command to the server.</li>
  * </ul>
+ * If pipelining is enabled via {@link #pipeline}, the server responses to
+ * inputs that are sent via {@link #create}, {@link #add}, {@link #replace} and
+ * {@link #store} will be read later, and the inputs can be processed by the server
+ * without waiting for the client. Errors of pipelined requests are only raised by
+ * {@link #sync} and {@link #pipeline pipeline(false)}.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Christian Gruen
  */
 public class ClientSession extends Session {
+  /** Suffix of the timestamp and password, indicating compressed communication. */
+  static final String DEFLATE = ":deflate";
+  /** Maximum number of pending responses in pipelining mode. */
+  private static final int PENDING = 128;
+
   /** Event notifications. */
   protected final Map<String, EventNotifier> notifiers =
     Collections.synchronizedMap(new HashMap<String, EventNotifier>());
   /** Server output (buffered). */
   protected final PrintOutput sout;
-  /** Server input. */
-  protected final InputStream sin;
+  /** Server input (buffered). */
+  protected final BufferInput sin;
 
   /** Socket reference. */
   private final Socket socket;
@@ -44,6 +54,12 @@ public class ClientSession extends Session {
   private final String ehost;
   /** Socket event reference. */
   private Socket esocket;
+  /** Pipelining flag. */
+  private boolean pipelining;
+  /** Number of pending responses. */
+  private int pending;
+  /** First error of a pipelined request. */
+  private String error;
 
   /**
    * Constructor, specifying login data.
@@ -69,7 +85,7 @@ public class ClientSession extends Session {
   public ClientSession(final Context context, final String user, final String pass,
       final OutputStream output) throws IOException {
     this(context.mprop.get(MainProp.HOST), context.mprop.num(MainProp.PORT),
-        user, pass, output);
+        user, pass, output, context.mprop.is(MainProp.COMPRESS));
   }
 
   /**
@@ -98,6 +114,26 @@ public class ClientSession extends Session {
    */
   public ClientSession(final String host, final int port, final String user,
       final String pass, final OutputStream output) throws IOException {
+    this(host, port, user, pass, output, false);
+  }
+
+  /**
+   * Constructor, specifying the server host:port combination, login data,
+   * an output stream and the compression flag. If compression is requested,
+   * and if it is supported by the server, all data that is exchanged with the server
+   * will be compressed.
+   * @param host server name
+   * @param port server port
+   * @param user user name
+   * @param pass password
+   * @param output client output; if set to {@code null}, results will
+   * be returned as strings.
+   * @param compress compress data
+   * @throws IOException I/O exception
+   */
+  public ClientSession(final String host, final int port, final String user,
+      final String pass, final OutputStream output, final boolean compress)
+      throws IOException {
 
     super(output);
     ehost = host;
@@ -108,20 +144,24 @@ public class ClientSession extends Session {
     } catch(final IllegalArgumentException ex) {
       throw new BaseXException(ex);
     }
-    sin = socket.getInputStream();
+    final InputStream is = socket.getInputStream();
+    final OutputStream os = socket.getOutputStream();
 
     // receive timestamp
-    final BufferInput bi = new BufferInput(sin);
+    final BufferInput bi = new BufferInput(is);
     final String ts = bi.readString();
+    final boolean deflate = compress && ts.endsWith(DEFLATE);
 
     // send user name and hashed password/timestamp
-    sout = PrintOutput.get(socket.getOutputStream());
-    send(user);
-    send(Token.md5(Token.md5(pass) + ts));
-    sout.flush();
+    final PrintOutput po = PrintOutput.get(os);
+    po.writeString(user);
+    po.writeString(Token.md5(Token.md5(pass) + ts) + (deflate ? DEFLATE : ""));
+    po.flush();
 
     // receive success flag
     if(!ok(bi)) throw new LoginException();
+    sin = deflate ? new BufferInput(new InflateInput(is)) : bi;
+    sout = deflate ? PrintOutput.get(new DeflateOutput(os)) : po;
   }
 
   @Override
@@ -151,12 +191,46 @@ public class ClientSession extends Session {
 
   @Override
   public synchronized void close() throws IOException {
-    if(esocket != null) esocket.close();
-    socket.close();
+    try {
+      // errors of pending requests are only raised by sync()
+      drain();
+    } finally {
+      if(esocket != null) esocket.close();
+      socket.close();
+    }
+  }
+
+  /**
+   * Enables or disables pipelining. If pipelining is enabled, the methods for sending
+   * inputs to the server will not wait for the server response. Instead, pending
+   * responses will be read in the order of the requests before any other request is
+   * sent, or if a maximum number of responses is pending. If pipelining is disabled,
+   * all pending responses will be read, and the first error will be raised.
+   * @param on pipelining flag
+   * @throws IOException I/O exception, or error of a pending request
+   */
+  public void pipeline(final boolean on) throws IOException {
+    if(!on) sync();
+    pipelining = on;
+  }
+
+  /**
+   * Reads all pending responses of pipelined requests. If any of the requests failed,
+   * an exception with the first error message is thrown.
+   * @throws IOException I/O exception, or error of a pending request
+   */
+  public void sync() throws IOException {
+    drain();
+    if(error != null) {
+      final String err = error;
+      error = null;
+      throw new BaseXException(err);
+    }
   }
 
   @Override
   protected void execute(final String cmd, final OutputStream os) throws IOException {
+    drain();
     send(cmd);
     sout.flush();
     receive(os);
@@ -176,16 +250,16 @@ public class ClientSession extends Session {
   public void watch(final String name, final EventNotifier notifier)
       throws IOException {
 
+    drain();
     sout.write(ServerCmd.WATCH.code);
     if(esocket == null) {
       sout.flush();
-      final BufferInput bi = new BufferInput(sin);
-      final int eport = Integer.parseInt(bi.readString());
+      final int eport = Integer.parseInt(sin.readString());
       // initialize event socket
       esocket = new Socket();
       esocket.connect(new InetSocketAddress(ehost, eport), 5000);
       final OutputStream so = esocket.getOutputStream();
-      so.write(bi.readBytes());
+      so.write(sin.readBytes());
       so.write(0);
       so.flush();
       final InputStream is = esocket.getInputStream();
@@ -204,6 +278,7 @@ public class ClientSession extends Session {
    * @throws IOException I/O exception
    */
   public void unwatch(final String name) throws IOException {
+    drain();
     sout.write(ServerCmd.UNWATCH.code);
     send(name);
     sout.flush();
@@ -242,8 +317,16 @@ public class ClientSession extends Session {
     final EncodingOutput eo = new EncodingOutput(sout);
     for(int b; (b = input.read()) != -1;) eo.write(b);
     sout.write(0);
-    sout.flush();
-    receive(null);
+    if(pipelining) {
+      // read oldest response if too many responses are pending
+      if(++pending > PENDING) {
+        sout.flush();
+        response();
+      }
+    } else {
+      sout.flush();
+      receive(null);
+    }
   }
 
   /**
@@ -253,10 +336,30 @@ public class ClientSession extends Session {
    * @throws IOException I/O exception
    */
   private void receive(final OutputStream os) throws IOException {
-    final BufferInput bi = new BufferInput(sin);
-    if(os != null) receive(bi, os);
-    info = bi.readString();
-    if(!ok(bi)) throw new BaseXException(info);
+    if(os != null) receive(sin, os);
+    info = sin.readString();
+    if(!ok(sin)) throw new BaseXException(info);
+  }
+
+  /**
+   * Reads all pending responses of pipelined requests. Errors are cached, and they
+   * will be raised by the next call of {@link #sync}.
+   * @throws IOException I/O exception
+   */
+  void drain() throws IOException {
+    if(pending == 0) return;
+    sout.flush();
+    do response(); while(pending > 0);
+  }
+
+  /**
+   * Receives the response of a pipelined request and caches the first error.
+   * @throws IOException I/O exception
+   */
+  private void response() throws IOException {
+    pending--;
+    info = sin.readString();
+    if(!ok(sin) && error == null) error = info;
   }
 
   /**
@@ -317,13 +420,13 @@ public class ClientSession extends Session {
   protected String exec(final ServerCmd cmd, final String arg, final OutputStream os)
       throws IOException {
 
+    drain();
     final OutputStream o = os == null ? new ArrayOutput() : os;
     sout.write(cmd.code);
     send(arg);
     sout.flush();
-    final BufferInput bi = new BufferInput(sin);
-    ClientSession.receive(bi, o);
-    if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+    receive(sin, o);
+    if(!ok(sin)) throw new BaseXException(sin.readString());
     return o.toString();
   }
 
@@ -23,6 +23,8 @@ public abstract class Query {
 
   /** Cached results. */
   protected TokenList cache;
+  /** Indicates if more results can be fetched after the cached ones. */
+  protected boolean partial;
   /** Cached result types. */
   private ByteList types;
   /** Cache pointer. */
@@ -71,7 +73,7 @@ public abstract class Query {
    * @throws IOException I/O exception
    */
   public boolean more() throws IOException {
-    if(cache == null) cache();
+    if(cache == null || pos == cache.size() && partial) cache();
     if(pos < cache.size()) return true;
     cache = null;
     types = null;
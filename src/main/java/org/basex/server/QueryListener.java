@@ -5,6 +5,7 @@ import static org.basex.io.serial.SerializerProp.*;
 import static org.basex.query.util.Err.*;
 
 import java.io.*;
+import java.util.concurrent.*;
 
 import org.basex.core.*;
 import org.basex.io.out.*;
@@ -16,12 +17,20 @@ import org.basex.util.*;
 
 /**
  * Server-side query session in the client-server architecture.
+ * Results can either be returned at once, or they can be fetched in batches from a
+ * cursor, which suspends the evaluation until the next items are requested.
+ * Suspended cursors keep their locks, but they are not counted as running
+ * transactions, and they are closed if no items are requested within
+ * {@link MainProp#KEEPALIVE} seconds.
  *
  * @author BaseX Team 2005-12, BSD License
  * @author Andreas Weiler
  * @author Christian Gruen
  */
 final class QueryListener extends Proc {
+  /** End marker of the cursor items. */
+  private static final byte[] END = {};
+
   /** Performance. */
   final Performance perf = new Performance();
   /** Query info. */
@@ -39,6 +48,8 @@ final class QueryListener extends Proc {
   private boolean parsed;
   /** Query info. */
   private String info = "";
+  /** Active cursor. */
+  private Cursor cursor;
 
   /**
    * Constructor.
@@ -58,6 +69,7 @@ final class QueryListener extends Proc {
    * @throws IOException query exception
    */
   void bind(final String n, final Object v, final String t) throws IOException {
+    close();
     try {
       init().bind(n, v, t);
     } catch(final QueryException ex) {
@@ -72,6 +84,7 @@ final class QueryListener extends Proc {
    * @throws IOException query exception
    */
   void context(final Object v, final String t) throws IOException {
+    close();
     try {
       init().context(v, t);
     } catch(final QueryException ex) {
@@ -117,6 +130,7 @@ final class QueryListener extends Proc {
   void execute(final boolean iter, final OutputStream out, final boolean enc,
       final boolean full) throws IOException {
 
+    close();
     try {
       try {
         // parses the query and registers the process
@@ -146,10 +160,7 @@ final class QueryListener extends Proc {
             ser.reset();
           }
           ser.serialize(it);
-          if(iter && !wrap) {
-            po.flush();
-            out.write(0);
-          }
+          if(iter && !wrap) out.write(0);
           c++;
         }
         ser.close();
@@ -180,6 +191,59 @@ final class QueryListener extends Proc {
     }
   }
 
+  /**
+   * Returns the next items of the query cursor. The cursor is created by the first call,
+   * and it is closed as soon as all items have been returned.
+   * @param max maximum number of items to be returned
+   * @param out output stream
+   * @throws IOException I/O Exception
+   */
+  void iter(final int max, final OutputStream out) throws IOException {
+    if(cursor == null) {
+      parse();
+      cursor = new Cursor();
+      cursor.start();
+    }
+    final Cursor cr = cursor;
+    cr.requested.release(max);
+
+    final PrintOutput po = PrintOutput.get(new EncodingOutput(out));
+    for(int c = 0; c < max; c++) {
+      final byte[] item;
+      try {
+        item = cr.items.take();
+      } catch(final InterruptedException ex) {
+        throw new BaseXException(INTERRUPTED);
+      }
+      if(item == END) {
+        close();
+        if(cr.error != null) throw new BaseXException(cr.error);
+        break;
+      }
+      po.write(item);
+      out.write(0);
+    }
+  }
+
+  /**
+   * Stops and closes an active cursor.
+   */
+  void close() {
+    final Cursor cr = cursor;
+    if(cr == null) return;
+    cursor = null;
+    cr.stopped = true;
+    cr.proc.stop();
+    cr.requested.release();
+    try {
+      cr.join();
+    } catch(final InterruptedException ex) {
+      Util.debug(ex);
+    }
+    qp = null;
+    parsed = false;
+  }
+
   /**
    * Initializes the query.
    * @return query processor
@@ -210,4 +274,107 @@ final class QueryListener extends Proc {
     }
     return qp;
   }
+
+  /**
+   * Query cursor. The query is evaluated in a separate thread, which acquires and
+   * releases the database locks. Items are only evaluated and serialized if they have
+   * been requested by the client.
+   */
+  private final class Cursor extends Thread {
+    /** Serialized items, prefixed with their type. */
+    final LinkedBlockingQueue<byte[]> items = new LinkedBlockingQueue<byte[]>();
+    /** Number of requested items. */
+    final Semaphore requested = new Semaphore(0);
+    /** Query processor. */
+    final QueryProcessor proc = qp;
+    /** Stopped flag. */
+    volatile boolean stopped;
+    /** Error message. */
+    volatile String error;
+
+    /**
+     * Constructor.
+     */
+    Cursor() {
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      try {
+        ctx.register(proc);
+        proc.compile();
+        qi.cmpl = perf.time();
+        final Iter ir = proc.iter();
+        qi.evlt = perf.time();
+        options();
+        final boolean wrap = !options.get(S_WRAP_PREFIX).isEmpty();
+
+        // a wrapped result is returned as single item
+        final ArrayOutput ao = new ArrayOutput();
+        if(wrap) ao.write(1);
+        final Serializer ser = Serializer.get(ao, options);
+        final long ka = ctx.mprop.num(MainProp.KEEPALIVE);
+        long printed = 0;
+        int c = 0;
+        while(true) {
+          if(!wrap) {
+            if(!requested.tryAcquire()) {
+              // wait for the next request
+              ctx.suspend(proc);
+              boolean ok = true;
+              try {
+                if(ka > 0) ok = requested.tryAcquire(ka, TimeUnit.SECONDS);
+                else requested.acquire();
+              } finally {
+                ctx.resume(proc);
+              }
+              if(!ok) {
+                error = TIMEOUT_EXCEEDED;
+                break;
+              }
+            }
+            if(stopped) break;
+          }
+          final Item it = ir.next();
+          if(it == null) break;
+          if(!wrap) {
+            ao.write(it.typeId().asByte());
+            ser.reset();
+          }
+          ser.serialize(it);
+          if(!wrap) {
+            printed += ao.size() - 1;
+            items.add(ao.toArray());
+            ao.reset();
+          }
+          c++;
+        }
+        ser.close();
+        if(wrap) {
+          printed = ao.size() - 1;
+          items.add(ao.toArray());
+        }
+        qi.srlz = perf.time();
+
+        // generate query info
+        info = qi.toString(proc, printed, c, ctx.prop.is(Prop.QUERYINFO));
+
+      } catch(final QueryException ex) {
+        error = ex.getMessage();
+      } catch(final StackOverflowError ex) {
+        Util.debug(ex);
+        error = BASX_STACKOVERFLOW.desc;
+      } catch(final ProcException ex) {
+        error = TIMEOUT_EXCEEDED;
+      } catch(final Exception ex) {
+        error = Util.message(ex);
+      } finally {
+        // close processor and unregister the process
+        proc.close();
+        ctx.unregister(proc);
+        items.add(END);
+      }
+    }
+  }
 }
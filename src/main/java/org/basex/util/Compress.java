@@ -93,10 +93,37 @@ public final class Compress {
    * @return unpacked text
    */
   public byte[] unpack(final byte[] txt) {
+    final byte[] res = new byte[Num.get(txt, 0)];
+    unpack(txt, 0, res);
+    return res;
+  }
+
+  /**
+   * Decompresses the specified text into the buffer of the specified view.
+   * @param txt text to be unpacked
+   * @param res view on the unpacked text
+   * @return view on the unpacked text
+   */
+  public TokenView unpack(final TokenView txt, final TokenView res) {
+    final byte[] src = txt.array();
+    final int s = txt.start();
+    final int l = Num.get(src, s);
+    final byte[] buf = res.buffer(l);
+    unpack(src, s, buf);
+    return res.set(buf, 0, l);
+  }
+
+  /**
+   * Decompresses a text.
+   * @param txt array containing the packed text
+   * @param s start offset of the packed text
+   * @param res target array
+   */
+  private void unpack(final byte[] txt, final int s, final byte[] res) {
     // initialize decompression
     final byte[] tmp = bl.get();
     bl.set(txt);
-    uc = Num.length(txt, 0);
+    uc = s + Num.length(txt, s);
     uo = 0;
 
     // read packer bit
@@ -105,8 +132,7 @@ public final class Compress {
     final byte[] unpack = pull() ? UNPACK1 : UNPACK2;
 
     // decompress all characters
-    final int l = Num.get(txt, 0);
-    final byte[] res = new byte[l];
+    final int l = Num.get(txt, s);
     for(int r = 0; r < l; r++) {
       final int b;
       if(pull()) { // 1 xxx
@@ -124,7 +150,6 @@ public final class Compress {
     }
     // make sure that the external txt byte array does not remain in this class
     bl.set(tmp);
-    return res;
   }
 
   /**
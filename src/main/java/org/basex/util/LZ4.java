@@ -0,0 +1,165 @@
+package org.basex.util;
+
+/**
+ * This class compresses and decompresses blocks of bytes. It follows the sequence
+ * format of the LZ4 algorithm: each sequence consists of a token, a run of literals
+ * and a back reference (offset and length) to previously decoded data. The last
+ * sequence of a block consists of literals only.
+ *
+ * The compressed data is not compatible with the LZ4 frame format.
+ * All methods are thread-safe.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LZ4 {
+  /** Minimum length of a match. */
+  private static final int MINMATCH = 4;
+  /** Maximum offset of a match. */
+  private static final int MAXOFFSET = 0xFFFF;
+  /** Number of hash bits. */
+  private static final int HASHBITS = 12;
+
+  /** Private constructor. */
+  private LZ4() { }
+
+  /**
+   * Returns the maximum size of the compressed representation of the specified
+   * number of bytes.
+   * @param len number of bytes
+   * @return maximum size
+   */
+  public static int max(final int len) {
+    return len + len / 255 + 16;
+  }
+
+  /**
+   * Compresses the specified bytes.
+   * @param src source array
+   * @param len number of bytes to compress
+   * @param dst target array (the number of remaining bytes must be at least
+   * {@link #max(int)})
+   * @param off offset in the target array
+   * @return size of the compressed representation
+   */
+  public static int compress(final byte[] src, final int len, final byte[] dst,
+      final int off) {
+    // positions of recent 4-byte sequences (incremented by one; 0: no entry)
+    final int[] table = new int[1 << HASHBITS];
+    final int limit = len - MINMATCH;
+    int s = 0, anchor = 0, d = off;
+    while(s <= limit) {
+      final int v = int4(src, s);
+      final int h = v * 0x9E3779B1 >>> 32 - HASHBITS;
+      final int ref = table[h] - 1;
+      table[h] = s + 1;
+      if(ref < 0 || s - ref > MAXOFFSET || int4(src, ref) != v) {
+        ++s;
+        continue;
+      }
+      // extend match
+      int ml = MINMATCH;
+      while(s + ml < len && src[ref + ml] == src[s + ml]) ++ml;
+      d = sequence(src, anchor, s - anchor, dst, d, s - ref, ml);
+      s += ml;
+      anchor = s;
+    }
+    // last literals
+    return sequence(src, anchor, len - anchor, dst, d, 0, 0) - off;
+  }
+
+  /**
+   * Decompresses the specified bytes.
+   * @param src source array
+   * @param off offset of the compressed bytes
+   * @param len number of compressed bytes
+   * @param dst target array (must be large enough to hold the decompressed bytes)
+   * @return number of decompressed bytes
+   */
+  public static int decompress(final byte[] src, final int off, final int len,
+      final byte[] dst) {
+    final int end = off + len;
+    int s = off, d = 0;
+    while(true) {
+      final int token = src[s++] & 0xFF;
+      // copy literals
+      int ll = token >>> 4;
+      if(ll == 15) {
+        int b;
+        do ll += b = src[s++] & 0xFF; while(b == 255);
+      }
+      System.arraycopy(src, s, dst, d, ll);
+      s += ll;
+      d += ll;
+      if(s >= end) return d;
+
+      // copy match (source and target may overlap)
+      final int o = (src[s++] & 0xFF) | (src[s++] & 0xFF) << 8;
+      int ml = token & 0x0F;
+      if(ml == 15) {
+        int b;
+        do ml += b = src[s++] & 0xFF; while(b == 255);
+      }
+      ml += MINMATCH;
+      int r = d - o;
+      if(o >= ml) {
+        System.arraycopy(dst, r, dst, d, ml);
+        d += ml;
+      } else {
+        for(final int e = d + ml; d < e;) dst[d++] = dst[r++];
+      }
+    }
+  }
+
+  /**
+   * Writes a sequence.
+   * @param src source array
+   * @param lo offset of the literals
+   * @param ll number of literals
+   * @param dst target array
+   * @param dp target position
+   * @param mo offset of the match
+   * @param ml length of the match ({@code 0}: no match)
+   * @return new target position
+   */
+  private static int sequence(final byte[] src, final int lo, final int ll,
+      final byte[] dst, final int dp, final int mo, final int ml) {
+    int d = dp;
+    final int m = ml == 0 ? 0 : ml - MINMATCH;
+    dst[d++] = (byte) (Math.min(ll, 15) << 4 | Math.min(m, 15));
+    if(ll >= 15) d = length(ll - 15, dst, d);
+    System.arraycopy(src, lo, dst, d, ll);
+    d += ll;
+    if(ml != 0) {
+      dst[d++] = (byte) mo;
+      dst[d++] = (byte) (mo >>> 8);
+      if(m >= 15) d = length(m - 15, dst, d);
+    }
+    return d;
+  }
+
+  /**
+   * Writes the remaining bytes of a length.
+   * @param len length
+   * @param dst target array
+   * @param dp target position
+   * @return new target position
+   */
+  private static int length(final int len, final byte[] dst, final int dp) {
+    int l = len, d = dp;
+    for(; l >= 255; l -= 255) dst[d++] = (byte) 255;
+    dst[d++] = (byte) l;
+    return d;
+  }
+
+  /**
+   * Returns the integer value at the specified position.
+   * @param b byte array
+   * @param p position
+   * @return integer value
+   */
+  private static int int4(final byte[] b, final int p) {
+    return (b[p] & 0xFF) << 24 | (b[p + 1] & 0xFF) << 16 | (b[p + 2] & 0xFF) << 8 |
+      b[p + 3] & 0xFF;
+  }
+}
@@ -0,0 +1,156 @@
+package org.basex.util;
+
+import static org.basex.util.Token.*;
+
+import java.util.*;
+
+/**
+ * This class provides a reusable view on a token. The viewed bytes are either
+ * a slice of an existing array (e.g., a block of a database file), or they are
+ * stored in an internal buffer, which is reused for subsequent tokens.
+ *
+ * The contents of a view are only valid until the next token is requested from the
+ * same source by the same thread. If a token needs to be stored, {@link #toArray()}
+ * must be called.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class TokenView {
+  /** Internal buffer. */
+  private byte[] buffer = EMPTY;
+  /** Viewed array. */
+  private byte[] array = EMPTY;
+  /** Start offset. */
+  private int start;
+  /** Number of bytes. */
+  private int size;
+
+  /**
+   * Assigns a complete token.
+   * @param token token
+   * @return self reference
+   */
+  public TokenView set(final byte[] token) {
+    return set(token, 0, token.length);
+  }
+
+  /**
+   * Assigns a slice of an array.
+   * @param arr array
+   * @param s start offset
+   * @param l number of bytes
+   * @return self reference
+   */
+  public TokenView set(final byte[] arr, final int s, final int l) {
+    array = arr;
+    start = s;
+    size = l;
+    return this;
+  }
+
+  /**
+   * Returns the internal buffer, which can be filled and assigned via
+   * {@link #set(byte[], int, int)}.
+   * @param l minimum size of the buffer
+   * @return buffer
+   */
+  public byte[] buffer(final int l) {
+    if(buffer.length < l) buffer = new byte[Math.max(l, buffer.length << 1)];
+    return buffer;
+  }
+
+  /**
+   * Returns the viewed array.
+   * @return array
+   */
+  public byte[] array() {
+    return array;
+  }
+
+  /**
+   * Returns the offset of the first byte in the viewed array.
+   * @return start offset
+   */
+  public int start() {
+    return start;
+  }
+
+  /**
+   * Returns the number of bytes.
+   * @return number of bytes
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a copy of the viewed bytes.
+   * @return token
+   */
+  public byte[] toArray() {
+    return Arrays.copyOfRange(array, start, start + size);
+  }
+
+  /**
+   * Compares the viewed bytes with the specified token.
+   * @param token token to be compared
+   * @return true if the bytes are equal
+   */
+  public boolean eq(final byte[] token) {
+    final int tl = token.length;
+    if(tl != size) return false;
+    final byte[] a = array;
+    for(int t = 0, s = start; t != tl; ++t, ++s) if(token[t] != a[s]) return false;
+    return true;
+  }
+
+  /**
+   * Calculates the difference of the viewed bytes and the specified token;
+   * see {@link Token#diff(byte[], byte[])}.
+   * @param token token to be compared
+   * @return 0 if tokens are equal, negative if first token is smaller,
+   *   positive if first token is bigger
+   */
+  public int diff(final byte[] token) {
+    final int tl = token.length;
+    final int l = Math.min(size, tl);
+    final byte[] a = array;
+    for(int i = 0; i < l; ++i) {
+      final int c = (a[start + i] & 0xFF) - (token[i] & 0xFF);
+      if(c != 0) return c;
+    }
+    return size - tl;
+  }
+
+  /**
+   * Converts the viewed bytes to a long value; see {@link Token#toLong(byte[])}.
+   * @return long value, or {@link Long#MIN_VALUE} if the input is invalid
+   */
+  public long toLong() {
+    return Token.toLong(array, start, start + size);
+  }
+
+  /**
+   * Converts the viewed bytes to a double value; see {@link Token#toDouble(byte[])}.
+   * @return double value, or {@link Double#NaN} if the input is invalid
+   */
+  public double toDouble() {
+    // parse integers without copying the bytes
+    boolean f = false;
+    for(int s = start, e = start + size; s < e; s++) {
+      final int t = array[s];
+      if(t >= 0 && t <= ' ' || digit(t)) continue;
+      f = t == 'e' || t == 'E' || t == '.' || t == '-';
+      if(!f) return Double.NaN;
+    }
+    if(f || size > 9) return Token.toDouble(toArray());
+    final long l = toLong();
+    return l == Long.MIN_VALUE ? Double.NaN : l;
+  }
+
+  @Override
+  public String toString() {
+    return string(array, start, size);
+  }
+}
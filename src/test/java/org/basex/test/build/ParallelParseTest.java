@@ -0,0 +1,70 @@
+package org.basex.test.build;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the parallel parsing of directories.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelParseTest extends SandboxTest {
+  /** Test directory. */
+  private static final String DIR = "src/test/resources/";
+  /** Test query. */
+  private static final String QUERY = "for $d in db:open('" + NAME + "') " +
+      "return (document-uri($d), serialize($d))";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.PARSETHREADS, 1).execute(context);
+    new Set(Prop.SKIPCORRUPT, false).execute(context);
+  }
+
+  /**
+   * Compares the databases created with and without parallel parsing.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void create() throws BaseXException {
+    new Set(Prop.SKIPCORRUPT, true).execute(context);
+    new Set(Prop.PARSETHREADS, 1).execute(context);
+    new CreateDB(NAME, DIR).execute(context);
+    final int size = context.data().meta.size;
+    final int docs = context.data().meta.ndocs;
+    final String expected = new XQuery(QUERY).execute(context);
+
+    for(final int t : new int[] { 2, 4 }) {
+      new Set(Prop.PARSETHREADS, t).execute(context);
+      new CreateDB(NAME, DIR).execute(context);
+      assertEquals(size, context.data().meta.size);
+      assertEquals(docs, context.data().meta.ndocs);
+      assertEquals(expected, new XQuery(QUERY).execute(context));
+    }
+  }
+
+  /**
+   * Checks if corrupt files are rejected.
+   */
+  @Test
+  public void corrupt() {
+    try {
+      new Set(Prop.SKIPCORRUPT, false).execute(context);
+      new Set(Prop.PARSETHREADS, 2).execute(context);
+      new CreateDB(NAME, DIR).execute(context);
+      fail("Corrupt file was not rejected.");
+    } catch(final BaseXException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("corrupt.xml"));
+    }
+  }
+}
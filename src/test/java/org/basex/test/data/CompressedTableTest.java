@@ -0,0 +1,111 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.junit.*;
+
+/**
+ * This class tests the update functionality of the block storage with
+ * compressed blocks.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedTableTest extends DiskTableTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Name of test database. */
+  private static final String DB = NAME + "Compressed";
+  /** Test query. */
+  private static final String QUERY =
+      "count(//*), count(//@*), sum(//*/string-length()), string-join(//name, ',')";
+
+  /**
+   * Initializes the test class.
+   */
+  @BeforeClass
+  public static void compress() {
+    context.prop.set(Prop.COMPRESSTABLE, true);
+  }
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(DB).execute(context);
+    context.prop.set(Prop.COMPRESSTABLE, false);
+  }
+
+  /**
+   * Compares the results of compressed and uncompressed tables.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void read() throws IOException {
+    new Set(Prop.COMPRESSTABLE, false).execute(context);
+    new CreateDB(DB, FILE).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    final long checksum = ParallelReadTest.checksum(context.data());
+    final long length = table();
+
+    new Set(Prop.COMPRESSTABLE, true).execute(context);
+    new CreateDB(DB, FILE).execute(context);
+    assertTrue(context.data().meta.comptable);
+    assertEquals(DataText.DSTORAGE, DictionaryTest.storage());
+    assertTrue(table() < length * 3 / 4);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+    assertEquals(checksum, ParallelReadTest.checksum(context.data()));
+
+    // flag is persistent and independent of the current option
+    new Close().execute(context);
+    new Set(Prop.COMPRESSTABLE, false).execute(context);
+    new Open(DB).execute(context);
+    assertTrue(context.data().meta.comptable);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+
+    // flag is adopted when the database is optimized
+    new OptimizeAll().execute(context);
+    assertTrue(context.data().meta.comptable);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+    new Set(Prop.COMPRESSTABLE, true).execute(context);
+  }
+
+  /**
+   * Checks if updated blocks are correctly written back.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    new CreateDB(DB, FILE).execute(context);
+    final int size = context.data().meta.size;
+    for(int i = 0; i < 100; i++) {
+      new XQuery("insert node <a b='" + i + "'>" + i + "</a> into /*").execute(context);
+    }
+    new XQuery("for $a in //a[@b mod 2 = 0] return delete node $a").execute(context);
+    new XQuery("for $a in //a return insert node <b/> into $a").execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    final long checksum = ParallelReadTest.checksum(context.data());
+
+    new Close().execute(context);
+    new Open(DB).execute(context);
+    final Data data = context.data();
+    assertEquals(size + 200, data.meta.size);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+    assertEquals(checksum, ParallelReadTest.checksum(data));
+  }
+
+  /**
+   * Returns the size of the table file of the opened database.
+   * @return size
+   */
+  private static long table() {
+    return context.data().meta.dbfile(DataText.DATATBL).length();
+  }
+}
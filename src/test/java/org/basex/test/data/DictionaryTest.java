@@ -0,0 +1,130 @@
+package org.basex.test.data;
+
+import static org.basex.data.DataText.*;
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.in.DataInput;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * This class tests the dictionary of frequent texts and attribute values.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class DictionaryTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Test query. */
+  private static final String QUERY =
+      "count(//*), sum(//*/string-length()), string-join(//@*, ','), " +
+      "string-join(//text(), ','), //item[location = 'United States']/name/text()";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.DICTIONARY, 0).execute(context);
+  }
+
+  /**
+   * Compares the results of databases with and without dictionary.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    new Set(Prop.DICTIONARY, 0).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    final long txt = context.data().meta.dbfile(DATATXT).length();
+    final long atv = context.data().meta.dbfile(DATAATV).length();
+
+    new Set(Prop.DICTIONARY, 2).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    assertEquals(2, context.data().meta.dictionary);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+    assertTrue(context.data().meta.dbfile(DATATXT).length() < txt);
+    assertTrue(context.data().meta.dbfile(DATAATV).length() < atv);
+
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+
+    new OptimizeAll().execute(context);
+    assertEquals(2, context.data().meta.dictionary);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+  }
+
+  /**
+   * Checks if shared dictionary values survive updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    new Set(Prop.DICTIONARY, 2).execute(context);
+    new CreateDB(NAME, "<x><a b='v'>t</a><a b='v'>t</a><a b='v'>t</a></x>").
+      execute(context);
+
+    // replace dictionary values
+    new XQuery("replace value of node (//a)[1] with 'u'").execute(context);
+    new XQuery("replace value of node (//@b)[1] with 'w'").execute(context);
+    assertEquals("u t t", new XQuery("string-join(//a, ' ')").execute(context));
+    assertEquals("w v v", new XQuery("string-join(//@b, ' ')").execute(context));
+
+    // delete nodes with dictionary values
+    new XQuery("delete node (//a)[2]").execute(context);
+    assertEquals("u t", new XQuery("string-join(//a, ' ')").execute(context));
+
+    // reference dictionary values
+    new XQuery("insert node <a b='v'>t</a> into /x").execute(context);
+    new XQuery("replace value of node (//a)[1] with 't'").execute(context);
+    new XQuery("replace value of node (//@b)[1] with 'v'").execute(context);
+    assertEquals("t t t", new XQuery("string-join(//a, ' ')").execute(context));
+    assertEquals("v v v", new XQuery("string-join(//@b, ' ')").execute(context));
+
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals("t t t", new XQuery("string-join(//a, ' ')").execute(context));
+    assertEquals("v v v", new XQuery("string-join(//@b, ' ')").execute(context));
+    assertEquals("3", new XQuery("count(//a[@b = 'v'][. = 't'])").execute(context));
+  }
+
+  /**
+   * Checks that databases with dictionaries are marked with a newer storage version.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void marker() throws IOException {
+    new Set(Prop.DICTIONARY, 0).execute(context);
+    new CreateDB(NAME, "<x/>").execute(context);
+    assertEquals(STORAGE, storage());
+
+    new Set(Prop.DICTIONARY, 2).execute(context);
+    new CreateDB(NAME, "<x/>").execute(context);
+    assertEquals(DSTORAGE, storage());
+  }
+
+  /**
+   * Returns the storage version of the opened database.
+   * @return version
+   * @throws IOException I/O exception
+   */
+  static String storage() throws IOException {
+    final DataInput in = new DataInput(context.data().meta.dbfile(DATAINF));
+    try {
+      assertEquals(DBSTR, string(in.readToken()));
+      return string(in.readToken());
+    } finally {
+      in.close();
+    }
+  }
+}
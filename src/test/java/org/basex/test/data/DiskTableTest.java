@@ -21,7 +21,7 @@ import org.junit.*;
  * @author BaseX Team 2005-12, BSD License
  * @author Tim Petrowsky
  */
-public final class DiskTableTest extends SandboxTest {
+public class DiskTableTest extends SandboxTest {
   /** Test file we do updates with. */
   private static final String TESTFILE = "src/test/resources/xmark.xml";
 
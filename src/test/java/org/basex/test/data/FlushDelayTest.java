@@ -0,0 +1,153 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.*;
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.io.in.*;
+import org.basex.server.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests the delayed flushing of database updates.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FlushDelayTest extends SandboxTest {
+  /** Number of updates. */
+  private static final int NUPDATES = 20;
+  /** Flush delay of the client sessions (ms). */
+  private static final int DELAY = 500;
+
+  /**
+   * Initializes the test.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    new Set(Prop.FLUSHDELAY, 20).execute(context);
+  }
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.FLUSHDELAY, 0).execute(context);
+  }
+
+  /**
+   * Checks that updates have been flushed when the commands return.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void add() throws BaseXException {
+    new CreateDB(NAME).execute(context);
+    final DiskData data = (DiskData) context.data();
+    for(int n = 0; n < NUPDATES; n++) {
+      new Add("doc" + n + ".xml", "<x>" + n + "</x>").execute(context);
+      assertFalse(data.updateFile().exists());
+    }
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(String.valueOf(NUPDATES),
+        new XQuery("count(db:open('" + NAME + "'))").execute(context));
+  }
+
+  /**
+   * Checks that the flushes of concurrent sessions are combined.
+   * @throws Exception exception
+   */
+  @Test
+  public void concurrent() throws Exception {
+    final BaseXServer server = createServer();
+    try {
+      final ClientSession cs = createClient();
+      cs.execute("create db " + NAME);
+      cs.execute("close");
+
+      final int n = 4;
+      final ClientSession[] sessions = new ClientSession[n];
+      for(int s = 0; s < n; s++) sessions[s] = open();
+      final String[] errors = new String[n];
+      final Thread[] threads = new Thread[n];
+      for(int s = 0; s < n; s++) {
+        final int c = s;
+        threads[c] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              sessions[c].add("doc" + c + ".xml", new ArrayInput("<x/>"));
+            } catch(final IOException ex) {
+              errors[c] = Util.message(ex);
+            }
+          }
+        };
+      }
+      final Performance perf = new Performance();
+      for(final Thread t : threads) t.start();
+      for(final Thread t : threads) t.join();
+      // separate flushes would take at least n * DELAY ms
+      assertTrue(perf.time() / 1000000 < n * DELAY);
+      for(final String error : errors) assertNull(error, error);
+
+      for(final ClientSession s : sessions) s.close();
+      assertEquals(String.valueOf(n), cs.execute("xquery count(db:open('" + NAME + "'))"));
+      cs.execute("drop db " + NAME);
+      cs.close();
+    } finally {
+      stopServer(server);
+    }
+  }
+
+  /**
+   * Checks that the flushes of pipelined updates of a single session are combined.
+   * @throws Exception exception
+   */
+  @Test
+  public void pipelined() throws Exception {
+    final BaseXServer server = createServer();
+    try {
+      final ClientSession cs = createClient();
+      cs.execute("create db " + NAME);
+      cs.execute("close");
+
+      final ClientSession s = open();
+      final Performance perf = new Performance();
+      s.pipeline(true);
+      for(int n = 0; n < NUPDATES; n++) s.add("doc" + n + ".xml", new ArrayInput("<x/>"));
+      s.pipeline(false);
+      // separate flushes would take at least NUPDATES * DELAY ms
+      assertTrue(perf.time() / 1000000 < NUPDATES * DELAY / 2);
+      s.close();
+
+      assertEquals(String.valueOf(NUPDATES),
+          cs.execute("xquery count(db:open('" + NAME + "'))"));
+      cs.execute("drop db " + NAME);
+      cs.close();
+    } finally {
+      stopServer(server);
+    }
+  }
+
+  /**
+   * Opens a client session with a flush delay.
+   * @return client session
+   * @throws IOException I/O exception
+   */
+  private static ClientSession open() throws IOException {
+    final ClientSession cs = createClient();
+    cs.execute("set flushdelay " + DELAY);
+    cs.execute("open " + NAME);
+    return cs;
+  }
+}
@@ -0,0 +1,121 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests concurrent read access to disk-based databases.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelReadTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Number of threads. */
+  private static final int THREADS = 8;
+  /** Number of runs per thread. */
+  private static final int RUNS = 20;
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.MMAP, false).execute(context);
+    new Set(Prop.COMPRESSTABLE, false).execute(context);
+  }
+
+  /**
+   * Reads the database table and texts in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void buffered() throws Exception {
+    run(false, false);
+  }
+
+  /**
+   * Reads the memory-mapped database table and texts in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void mapped() throws Exception {
+    run(true, false);
+  }
+
+  /**
+   * Reads the compressed database table and texts in parallel.
+   * @throws Exception exception
+   */
+  @Test
+  public void compressed() throws Exception {
+    run(false, true);
+  }
+
+  /**
+   * Runs the test.
+   * @param mmap memory-map the table
+   * @param compress compress the table
+   * @throws Exception exception
+   */
+  private static void run(final boolean mmap, final boolean compress) throws Exception {
+    new Set(Prop.MMAP, mmap).execute(context);
+    new Set(Prop.COMPRESSTABLE, compress).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    // perform an update to test the switch between exclusive and shared state
+    new XQuery("insert node <a b='c'>d</a> into /*").execute(context);
+
+    final Data data = context.data();
+    final long expected = checksum(data);
+    final Throwable[] error = new Throwable[1];
+    final Thread[] threads = new Thread[THREADS];
+    for(int t = 0; t < THREADS; t++) {
+      threads[t] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for(int r = 0; r < RUNS; r++) assertEquals(expected, checksum(data));
+          } catch(final Throwable ex) {
+            error[0] = ex;
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for(final Thread t : threads) t.join();
+    if(error[0] != null) fail(error[0].toString());
+  }
+
+  /**
+   * Computes a checksum over all table entries and texts.
+   * @param data data reference
+   * @return checksum
+   */
+  static long checksum(final Data data) {
+    long cs = 0;
+    final int size = data.meta.size;
+    for(int pre = 0; pre < size; pre++) {
+      final int k = data.kind(pre);
+      cs = cs * 31 + k;
+      cs = cs * 31 + data.size(pre, k);
+      cs = cs * 31 + data.parent(pre, k);
+      cs = cs * 31 + data.id(pre);
+      if(k == Data.TEXT || k == Data.ATTR) {
+        cs = cs * 31 + Token.hash(data.text(pre, k == Data.TEXT));
+        cs = cs * 31 + data.textLen(pre, k == Data.TEXT);
+      } else if(k == Data.ELEM) {
+        cs = cs * 31 + data.name(pre);
+      }
+    }
+    return cs;
+  }
+}
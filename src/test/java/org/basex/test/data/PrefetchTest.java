@@ -0,0 +1,79 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.io.random.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * This class tests the read-ahead of table pages.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class PrefetchTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Test query. */
+  private static final String QUERY =
+      "count(//*), count(//@*), sum(//*/string-length()), string-join(//name, ',')";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.PREFETCH, 0).execute(context);
+    new Set(Prop.MMAP, false).execute(context);
+  }
+
+  /**
+   * Compares the results of table accesses with and without read-ahead.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    new Set(Prop.PREFETCH, 0).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    final long checksum = ParallelReadTest.checksum(context.data());
+    new Close().execute(context);
+
+    final long requested = Prefetcher.requested();
+    new Set(Prop.PREFETCH, 2).execute(context);
+    new Open(NAME).execute(context);
+    for(int i = 0; i < 10; i++) {
+      assertEquals(expected, new XQuery(QUERY).execute(context));
+      assertEquals(checksum, ParallelReadTest.checksum(context.data()));
+    }
+    assertTrue(Prefetcher.requested() > requested);
+
+    new Close().execute(context);
+    new Set(Prop.MMAP, true).execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+    new Set(Prop.MMAP, false).execute(context);
+  }
+
+  /**
+   * Checks if blocks that have been read ahead are discarded after updates.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    new Set(Prop.PREFETCH, 1).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    final int size = context.data().meta.size;
+    for(int i = 0; i < 100; i++) {
+      new XQuery("insert node <a b='" + i + "'>" + i + "</a> into /*").execute(context);
+      assertEquals(Integer.toString(i + 1), new XQuery("count(//a)").execute(context));
+    }
+    assertEquals(size + 300, context.data().meta.size);
+    assertEquals("4950", new XQuery("sum(//a/@b)").execute(context));
+  }
+}
@@ -0,0 +1,65 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * This class tests the memory-mapped access to the database table.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class TableMapTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+  /** Test query. */
+  private static final String QUERY =
+      "count(//*), count(//@*), sum(//*/string-length()), string-join(//name, ',')";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.MMAP, false).execute(context);
+  }
+
+  /**
+   * Compares the results of mapped and block-wise table access.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void read() throws BaseXException {
+    new Set(Prop.MMAP, false).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    final String expected = new XQuery(QUERY).execute(context);
+    new Close().execute(context);
+
+    new Set(Prop.MMAP, true).execute(context);
+    new Open(NAME).execute(context);
+    assertEquals(expected, new XQuery(QUERY).execute(context));
+  }
+
+  /**
+   * Checks if updates are visible after the table has been mapped again.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void update() throws BaseXException {
+    new Set(Prop.MMAP, true).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    final int size = context.data().meta.size;
+    for(int i = 0; i < 100; i++) {
+      new XQuery("insert node <a b='" + i + "'>" + i + "</a> into /*").execute(context);
+      assertEquals(Integer.toString(i + 1), new XQuery("count(/*/a)").execute(context));
+    }
+    assertEquals(size + 300, context.data().meta.size);
+    assertEquals("4950", new XQuery("sum(/*/a/@b)").execute(context));
+  }
+}
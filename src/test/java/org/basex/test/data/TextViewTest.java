@@ -0,0 +1,100 @@
+package org.basex.test.data;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.data.*;
+import org.basex.test.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests the views on texts and attribute values of databases.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class TextViewTest extends SandboxTest {
+  /** Test file. */
+  private static final String FILE = "src/test/resources/xmark.xml";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.MAINMEM, false).execute(context);
+  }
+
+  /**
+   * Compares views with the copied texts.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void texts() throws BaseXException {
+    new CreateDB(NAME, FILE).execute(context);
+    check(context.data());
+    new Set(Prop.MAINMEM, true).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    check(context.data());
+    new Set(Prop.MAINMEM, false).execute(context);
+  }
+
+  /**
+   * Compares views on long texts, which span several blocks and are compressed.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void longTexts() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 100; i++) {
+      sb.append("<a b='").append(i).append("'>");
+      for(int j = 0; j < i * 50; j++) sb.append("text ").append(j % 7).append(' ');
+      sb.append("</a><n>").append(i * 1000000L).append("</n><d>").append(i / 4d);
+      sb.append("</d>");
+    }
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+    check(context.data());
+  }
+
+  /**
+   * Compares the results of serialization and comparisons, which consume views.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void query() throws BaseXException {
+    final String query = "(//item[location = 'United States'], " +
+        "//*[@id = 'person0'], //*[@id != 'person0']/name, //text()[. = 'Male'])";
+    new Set(Prop.MAINMEM, true).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    final String expected = new XQuery(query).execute(context);
+    new Set(Prop.MAINMEM, false).execute(context);
+    new CreateDB(NAME, FILE).execute(context);
+    assertEquals(expected, new XQuery(query).execute(context));
+    assertEquals("true", new XQuery("//@id = 'person0'").execute(context));
+    assertEquals("false", new XQuery("//@id = 'person'").execute(context));
+  }
+
+  /**
+   * Compares the views on all texts of the specified database.
+   * @param data data reference
+   */
+  private static void check(final Data data) {
+    final TokenView tv = new TokenView();
+    for(int pre = 0; pre < data.meta.size; pre++) {
+      final int k = data.kind(pre);
+      if(k == Data.ELEM) continue;
+      final boolean text = k != Data.ATTR;
+      final byte[] txt = data.text(pre, text);
+      final TokenView v = data.text(pre, text, tv);
+      assertTrue(Token.string(txt), v.eq(txt));
+      assertEquals(0, v.diff(txt));
+      assertArrayEquals(txt, v.toArray());
+      assertEquals(Token.toLong(txt), v.toLong());
+      assertEquals(Token.toDouble(txt), v.toDouble(), 0);
+    }
+  }
+}
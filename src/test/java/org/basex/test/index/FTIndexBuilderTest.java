@@ -0,0 +1,85 @@
+package org.basex.test.index;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.core.parse.Commands.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests the creation of full-text indexes with partial indexes and parallel threads.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class FTIndexBuilderTest extends SandboxTest {
+  /** Test query. */
+  private static final String QUERY = "string-join(ft:tokens('" + NAME + "') ! " +
+    "(. || '=' || @count), ','), string-join(ft:search('" + NAME + "', 'w17')/../@id, ','), " +
+    "string-join(//a[text() contains text 'w5 y3'], ','), " +
+    "count(//a[text() contains text 'common'])";
+
+  /**
+   * Creates the test database.
+   * @throws BaseXException database exception
+   */
+  @BeforeClass
+  public static void init() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 40000; i++) {
+      sb.append("<a id='").append(i).append("'>w").append(i % 500).append(" y");
+      sb.append(i % 7).append(" common w").append(i % 11).append("</a>");
+    }
+    new Set(Prop.FTINDEX, false).execute(context);
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+  }
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.FTINDEXSPLITSIZE, 0).execute(context);
+    new Set(Prop.INDEXMEMORY, 0).execute(context);
+    new Set(Prop.INDEXTHREADS, 1).execute(context);
+  }
+
+  /**
+   * Compares indexes that have been created with different settings.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void create() throws BaseXException {
+    final String expected = build(0, 0, 1);
+    assertEquals(expected, build(30000, 0, 1));
+    assertEquals(expected, build(0, 1, 1));
+    assertEquals(expected, build(0, 0, 3));
+    assertEquals(expected, build(0, 1, 3));
+    assertEquals(expected, build(20000, 0, 2));
+  }
+
+  /**
+   * Creates the index and returns the query result.
+   * @param split split size
+   * @param memory memory budget
+   * @param threads number of threads
+   * @return query result
+   * @throws BaseXException database exception
+   */
+  private static String build(final int split, final int memory, final int threads)
+      throws BaseXException {
+    new Set(Prop.FTINDEXSPLITSIZE, split).execute(context);
+    new Set(Prop.INDEXMEMORY, memory).execute(context);
+    new Set(Prop.INDEXTHREADS, threads).execute(context);
+    new Close().execute(context);
+    new Open(NAME).execute(context);
+    new CreateIndex(CmdIndex.FULLTEXT).execute(context);
+    final String result = new XQuery(QUERY).execute(context);
+    new DropIndex(CmdIndex.FULLTEXT).execute(context);
+    return result;
+  }
+}
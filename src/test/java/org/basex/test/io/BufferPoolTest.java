@@ -0,0 +1,125 @@
+package org.basex.test.io;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.io.*;
+import org.basex.io.random.*;
+import org.junit.*;
+
+/**
+ * Tests for class {@link BufferPool}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class BufferPoolTest {
+  /** Size of the buffer pool (in MB). */
+  private static final int MB = 1;
+  /** Number of buffers in the pool. */
+  private static final int BUFFERS = MB << 20 >>> IO.BLOCKPOWER;
+  /** Buffer pool. */
+  private static final BufferPool POOL = BufferPool.get();
+
+  /** First file. */
+  private IOFile file1;
+  /** Second file. */
+  private IOFile file2;
+  /** Instance of first file. */
+  private DataAccess da1;
+  /** Instance of second file. */
+  private DataAccess da2;
+
+  /**
+   * Set up method.
+   * @throws IOException I/O exception
+   */
+  @Before
+  public void setUp() throws IOException {
+    POOL.size(MB);
+    file1 = new IOFile(File.createTempFile("pool", IO.BASEXSUFFIX));
+    file2 = new IOFile(File.createTempFile("pool", IO.BASEXSUFFIX));
+    da1 = new DataAccess(file1);
+    da2 = new DataAccess(file2);
+  }
+
+  /**
+   * Tear down method.
+   */
+  @After
+  public void tearDown() {
+    da1.close();
+    da2.close();
+    file1.delete();
+    file2.delete();
+    POOL.size((Integer) MainProp.BUFFERPOOL[1]);
+  }
+
+  /**
+   * Writes more blocks than the pool can hold and reads them again.
+   */
+  @Test
+  public void evictDirty() {
+    final int blocks = BUFFERS * 3;
+    for(int b = 0; b < blocks; b++) da1.write4((long) b << IO.BLOCKPOWER, b);
+    for(int b = 0; b < blocks; b++) assertEquals(b, da1.read4((long) b << IO.BLOCKPOWER));
+    da1.flush();
+    assertEquals((long) blocks << IO.BLOCKPOWER, file1.length() + IO.BLOCKSIZE - 4);
+  }
+
+  /**
+   * Checks that frequently used blocks survive a sequential scan of another file.
+   */
+  @Test
+  public void scanResistance() {
+    // create files
+    final int hot = BUFFERS >>> 2;
+    final int scan = BUFFERS * 4;
+    for(int b = 0; b < hot; b++) da2.write4((long) b << IO.BLOCKPOWER, b);
+    for(int b = 0; b < scan; b++) da1.write4((long) b << IO.BLOCKPOWER, b);
+    da1.flush();
+    da2.flush();
+
+    // access blocks of second file while scanning the first file
+    for(int b = 0; b < scan; b++) {
+      da1.read4((long) b << IO.BLOCKPOWER);
+      da2.read4((long) (b % hot) << IO.BLOCKPOWER);
+    }
+    // scan first file again
+    for(int b = 0; b < scan; b++) da1.read4((long) b << IO.BLOCKPOWER);
+
+    // blocks of the second file must still be cached
+    final long misses = POOL.misses();
+    final long hits = POOL.hits();
+    for(int b = 0; b < hot; b++) assertEquals(b, da2.read4((long) b << IO.BLOCKPOWER));
+    assertEquals(misses, POOL.misses());
+    assertEquals(hits + hot, POOL.hits());
+  }
+
+  /**
+   * Checks that blocks which are read without locking are shared via the pool.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void sharedReads() throws IOException {
+    final int blocks = BUFFERS >>> 2;
+    for(int b = 0; b < blocks; b++) da1.writeNum((long) b << IO.BLOCKPOWER, b);
+    da1.close();
+    da1 = new DataAccess(file1);
+
+    // first pass: blocks are read from disk and added to the pool
+    // (the first block has already been buffered by the constructor)
+    long misses = POOL.misses();
+    for(int b = 0; b < blocks; b++) assertEquals(b, da1.num((long) b << IO.BLOCKPOWER));
+    assertEquals(misses + blocks - 1, POOL.misses());
+
+    // second pass: blocks are copied from the pool
+    misses = POOL.misses();
+    final long hits = POOL.hits();
+    for(int b = 0; b < blocks; b++) assertEquals(b, da1.num((long) b << IO.BLOCKPOWER));
+    assertEquals(misses, POOL.misses());
+    assertEquals(hits + blocks, POOL.hits());
+  }
+}
@@ -0,0 +1,101 @@
+package org.basex.test.io;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.basex.io.in.*;
+import org.basex.io.out.*;
+import org.junit.*;
+
+/**
+ * Tests for the classes {@link DeflateOutput} and {@link InflateInput}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author agent
+ */
+public final class DeflateOutputTest {
+  /**
+   * Compresses and decompresses incompressible data.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void random() throws IOException {
+    final byte[] data = new byte[DeflateOutput.MAX * 3 + 123];
+    new Random(0).nextBytes(data);
+    assertArrayEquals(data, inflate(deflate(data)));
+  }
+
+  /**
+   * Checks that many small flushes are decompressed correctly.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void flushes() throws IOException {
+    final ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    final DeflateOutput out = new DeflateOutput(bo);
+    final ByteArrayOutputStream raw = new ByteArrayOutputStream();
+    for(int i = 0; i < 1000; i++) {
+      final byte[] b = ("item" + i).getBytes("UTF-8");
+      out.write(b);
+      raw.write(b);
+      if(i % 10 == 0) out.flush();
+    }
+    out.close();
+    assertArrayEquals(raw.toByteArray(), inflate(bo.toByteArray()));
+  }
+
+  /**
+   * Checks that blocks with invalid sizes are rejected.
+   */
+  @Test
+  public void invalid() {
+    final int max = DeflateOutput.MAX;
+    final int maxc = DeflateOutput.MAXCOMP;
+    for(final int[] s : new int[][] {
+        { max + 1, 1 }, { 1, maxc + 1 }, { 0, 1 }, { -1, 1 }, { 1, Integer.MAX_VALUE }}) {
+      final byte[] header = {
+        (byte) (s[0] >>> 24), (byte) (s[0] >>> 16), (byte) (s[0] >>> 8), (byte) s[0],
+        (byte) (s[1] >>> 24), (byte) (s[1] >>> 16), (byte) (s[1] >>> 8), (byte) s[1]
+      };
+      try {
+        inflate(header);
+        fail("Block size was accepted: " + s[0] + '/' + s[1]);
+      } catch(final IOException ex) {
+        assertTrue(ex.getMessage().startsWith("Invalid size"));
+      }
+    }
+  }
+
+  /**
+   * Compresses the specified bytes.
+   * @param data data
+   * @return compressed bytes
+   * @throws IOException I/O exception
+   */
+  private static byte[] deflate(final byte[] data) throws IOException {
+    final ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    final DeflateOutput out = new DeflateOutput(bo);
+    out.write(data);
+    out.close();
+    return bo.toByteArray();
+  }
+
+  /**
+   * Decompresses the specified bytes.
+   * @param data compressed data
+   * @return decompressed bytes
+   * @throws IOException I/O exception
+   */
+  private static byte[] inflate(final byte[] data) throws IOException {
+    final InflateInput in = new InflateInput(new ByteArrayInputStream(data));
+    final ByteArrayOutputStream bo = new ByteArrayOutputStream();
+    try {
+      for(int b; (b = in.read()) != -1;) bo.write(b);
+    } finally {
+      in.close();
+    }
+    return bo.toByteArray();
+  }
+}
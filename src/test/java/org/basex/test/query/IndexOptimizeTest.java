@@ -23,6 +23,32 @@ import org.junit.*;
  * @author Christian Gruen
  */
 public final class IndexOptimizeTest extends SandboxTest {
+  /**
+   * Checks if the index results of several predicates are intersected.
+   * @throws Exception unexpected exception
+   */
+  @Test
+  public void intersectTest() throws Exception {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < 300; i++) {
+      sb.append("<person city='c").append(i % 10).append("'><name>n").
+        append(i % 5).append("</name></person>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(context);
+    new Close().execute(context);
+
+    final String query = _DB_OPEN.args(NAME) + "//person[@city = 'c1'][name = 'n1']";
+    check(COUNT.args(query), "30");
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      final String plan = qp.plan().serialize().toString();
+      assertTrue("No intersection:\n" + plan, plan.contains("<InterSect"));
+    } finally {
+      qp.close();
+    }
+  }
+
   /**
    * Creates a test database.
    * @throws Exception exception
@@ -167,6 +193,34 @@ public final class IndexOptimizeTest extends SandboxTest {
         "//text()[. contains text { $x }] }; local:x('1')", "1");
   }
 
+  /**
+   * Checks if the most selective predicate is chosen for index access.
+   * @throws Exception unexpected exception
+   */
+  @Test
+  public void selectivityTest() throws Exception {
+    final StringBuilder sb = new StringBuilder("<xml>");
+    for(int i = 0; i < 300; i++) {
+      sb.append("<person city='c").append(i % 100).append("' status='").append(i % 3).
+        append("'/>");
+    }
+    new CreateDB(NAME, sb.append("</xml>").toString()).execute(context);
+    new Close().execute(context);
+
+    final String query = "for $s in ('0', '1') for $c in ('c1', 'c2') return " +
+        _DB_OPEN.args(NAME) + "//person[@status = $s][@city = $c]";
+    check(COUNT.args("(" + query + ")"), "4");
+    final QueryProcessor qp = new QueryProcessor(query, context);
+    try {
+      qp.compile();
+      final String plan = qp.plan().serialize().toString();
+      assertTrue("Wrong index predicate:\n" + plan,
+          plan.matches("(?s).*<ValueAccess[^>]*>\\s*<VarRef>\\s*<Var name=.\\$c.*"));
+    } finally {
+      qp.close();
+    }
+  }
+
   /**
    * Creates a test database.
    * @throws Exception exception
@@ -0,0 +1,102 @@
+package org.basex.test.query;
+
+import static org.basex.util.Token.*;
+import static org.junit.Assert.*;
+
+import org.basex.io.*;
+import org.basex.io.out.*;
+import org.basex.io.serial.*;
+import org.basex.query.*;
+import org.basex.test.*;
+import org.junit.*;
+
+/**
+ * Tests for the {@link QueryCache}.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author agent
+ */
+public final class QueryCacheTest extends SandboxTest {
+  /**
+   * Checks that a cached query is compiled with the bindings of each execution.
+   * @throws Exception exception
+   */
+  @Test
+  public void bindings() throws Exception {
+    final String query = "declare variable $x external;" +
+        "declare function local:f($a) { $a * 2 }; local:f($x)";
+    assertFalse(parse(query));
+    assertTrue(parse(query));
+    assertEquals("2", query(query, 1));
+    assertEquals("4", query(query, 2));
+    assertEquals("6", query(query, 3));
+  }
+
+  /**
+   * Checks that a cached query is parsed again if a module file changes.
+   * @throws Exception exception
+   */
+  @Test
+  public void modules() throws Exception {
+    final IOFile file = new IOFile(sandbox(), "cache.xqm");
+    file.write(token("module namespace m='m'; declare function m:f() { 1 };"));
+    final String query = "import module namespace m='m' at '" + file.path() +
+        "'; declare variable $x external; m:f() + $x";
+    assertFalse(parse(query));
+    assertTrue(parse(query));
+    assertEquals("1", query(query, 0));
+
+    file.write(token("module namespace m='m'; declare function m:f() { 2 };"));
+    file.file().setLastModified(file.timeStamp() + 2000);
+    assertFalse(parse(query));
+    assertTrue(parse(query));
+    assertEquals("3", query(query, 1));
+  }
+
+  /**
+   * Checks that queries with function items are not cached.
+   * @throws Exception exception
+   */
+  @Test
+  public void funcItems() throws Exception {
+    final String query = "declare variable $x external; count#1($x)";
+    assertFalse(parse(query));
+    assertFalse(parse(query));
+    assertEquals("1", query(query, 5));
+  }
+
+  /**
+   * Parses a query.
+   * @param query query
+   * @return {@code true} if a cached query was adopted
+   * @throws QueryException query exception
+   */
+  private static boolean parse(final String query) throws QueryException {
+    final QueryContext qc = new QueryContext(context);
+    try {
+      return context.queries.parse(query, qc);
+    } finally {
+      qc.close();
+    }
+  }
+
+  /**
+   * Runs a query with the specified binding.
+   * @param query query
+   * @param x value to be bound to {@code $x}
+   * @return result
+   * @throws Exception exception
+   */
+  private static String query(final String query, final int x) throws Exception {
+    final QueryProcessor qp = new QueryProcessor(query, context).bind("x", x);
+    try {
+      final ArrayOutput ao = new ArrayOutput();
+      final Serializer ser = qp.getSerializer(ao);
+      qp.execute().serialize(ser);
+      ser.close();
+      return ao.toString();
+    } finally {
+      qp.close();
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package org.basex.test.query.ast;
+
+import org.basex.query.util.*;
+import org.junit.*;
+
+/**
+ * Tests the computation of aggregates of non-grouping variables in group by clauses.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class GroupByTest extends QueryPlanTest {
+  /** Checks if the specified number of aggregates is computed while grouping. */
+  private static final String AGGR = "count(//GroupBy/Aggregate) = %";
+  /** Checks if no aggregates are computed while grouping. */
+  private static final String NOAGGR = "empty(//GroupBy/Aggregate)";
+
+  /** Computes aggregates while grouping. */
+  @Test
+  public void aggregate() {
+    check("for $i in 1 to 10 group by $k := $i mod 3 order by $k " +
+        "return (count($i), sum($i), avg($i), max($i), min($i))",
+        "3 18 6 9 3 4 22 5.5 10 1 3 15 5 8 2", aggr(5));
+    check("for $i in 1 to 10 group by $k := $i mod 2 order by $k " +
+        "return count($i) + count($i)", "10 10", aggr(1));
+    check("for $i in (1 to 10)[. > 10] group by $k := $i " +
+        "return (count($i), sum($i), avg($i), max($i))", "", aggr(4));
+    check("for $i in 1 to 4 let $e := $i[. > 10] group by $k := $i mod 2 " +
+        "order by $k return (count($e), sum($e), avg($e), max($e))",
+        "0 0 0 0", aggr(4));
+    check("for $i in 1 to 6 let $d := xs:dayTimeDuration('PT' || $i || 'H') " +
+        "group by $k := $i mod 2 order by $k return sum($d)", "PT12H PT9H", aggr(1));
+    check("for $i in 1 to 6 let $u := <a>{ $i }</a>/text() " +
+        "group by $k := $i mod 2 order by $k return avg($u)", "4 3", aggr(1));
+    check("for $s in ('b', 'a', 'c') group by $k := 1 return (max($s), min($s))",
+        "c a", aggr(2));
+    check("for $i in 1 to 10 group by $k := $i mod 3 where count($i) > 3 " +
+        "return $k", "1", aggr(1));
+    check("for $i in 1 to 4 group by $k := $i mod 2 order by $k " +
+        "return (count($i), $i[1])", "2 2 2 1", aggr(1));
+  }
+
+  /** Caches the values of non-grouping variables. */
+  @Test
+  public void noAggregate() {
+    check("for $i in 1 to 4 group by $k := $i mod 2 order by $k " +
+        "return sum($i, 5)", "6 4", NOAGGR);
+    check("for $i in 1 to 4 group by $k := $i mod 2 order by $k " +
+        "return count($i[. > 1])", "2 1", NOAGGR);
+  }
+
+  /** Keeps non-grouping variables in the tuples of subsequent order by clauses. */
+  @Test
+  public void orderBy() {
+    check("for $i in 1 to 6 group by $k := $i mod 3 order by $k descending " +
+        "return string-join($i ! string(), '-')", "2-5 1-4 3-6", NOAGGR);
+    check("for $i in 1 to 4 group by $k := $i mod 2 order by $k " +
+        "return count($i) || ':' || string-join($i ! string())", "2:24 2:13", aggr(1));
+  }
+
+  /** Reports errors raised while aggregating values. */
+  @Test
+  public void error() {
+    error("for $s in ('b', 'a') group by $k := 1 return sum($s)", Err.SUMTYPE);
+    // errors are only raised if the aggregate is referenced
+    check("for $i in (1, 'a') group by $s := $i instance of xs:string " +
+        "return if($s) then count($i) else sum($i)", "1 1", aggr(2));
+    check("for $i in ('a', 'b') group by $k := 1 where false() return sum($i)",
+        "", aggr(1));
+  }
+
+  /**
+   * Returns a check for the specified number of aggregates.
+   * @param n number of aggregates
+   * @return query
+   */
+  private static String aggr(final int n) {
+    return AGGR.replace("%", Integer.toString(n));
+  }
+}
@@ -0,0 +1,134 @@
+package org.basex.test.query.ast;
+
+import org.basex.query.gflwor.*;
+import org.basex.query.util.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Tests the evaluation of value-based joins in FLWOR expressions as hash joins.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class HashJoinTest extends QueryPlanTest {
+  /** Checks if a join is detected. */
+  private static final String JOIN = Util.info("exists(//%)", Join.class);
+  /** Checks if no join is detected. */
+  private static final String NOJOIN = Util.info("empty(//%)", Join.class);
+
+  /** Joins on string values. */
+  @Test public void strings() {
+    check("let $a := (<a k='x'>1</a>, <a k='y'>2</a>, <a k='x'>3</a>) " +
+        "for $b in ('x', 'z', 'y') " +
+        "for $c in $a[@k = $b] return $b || $c",
+        "x1 x3 y2", JOIN);
+    check("let $a := (<a k='x'>1</a>, <a k='y'>2</a>, <a k='x'>3</a>) " +
+        "for $b in ('x', 'z', 'y') " +
+        "where $a[@k = $b] return $b",
+        "x y");
+    check("let $a := (<a k='x'>1</a>, <a k='y'>2</a>) " +
+        "for $b in (<b k='x'/>, <b k='z'/>) " +
+        "for $c in $a[@k = $b/@k] return string($c)",
+        "1", JOIN);
+  }
+
+  /** Joins written as where clauses, which return the joined items. */
+  @Test public void where() {
+    check("let $d := document { <x><o c='1'/><o c='3'/><o c='1'/>" +
+        "<c i='1'>a</c><c i='2'>b</c><c i='3'>c</c></x> } " +
+        "for $a in $d//o for $c in $d//c where $a/@c = $c/@i return $c",
+        "<c i=\"1\">a</c>\n<c i=\"3\">c</c>\n<c i=\"1\">a</c>", JOIN);
+    check("let $a := (<a k='x'>1</a>, <a k='y'>2</a>) " +
+        "for $b in ('y', 'x', 'z') for $c in $a where $c/@k = $b return $c",
+        "<a k=\"y\">2</a>\n<a k=\"x\">1</a>", JOIN);
+  }
+
+  /** Joins with multiple keys and probe values. */
+  @Test public void sequences() {
+    check("let $a := (<a><k>x</k><k>y</k></a>, <a><k>y</k></a>, <a><k>z</k></a>) " +
+        "for $b in (('x', 'y'), 'z') " +
+        "for $c in $a[k = $b] return count($c/k)",
+        "2 2 1 1", JOIN);
+    check("let $a := (<a><k>x</k><k>y</k></a>, <a><k>y</k></a>, <a><k>z</k></a>) " +
+        "for $b in (<b>x z</b>, <b>y</b>) " +
+        "for $c in $a[k = tokenize($b, ' ')] return count($c/k)",
+        "2 1 2 1", JOIN);
+  }
+
+  /** Joins on numeric values. */
+  @Test public void numbers() {
+    check("let $a := (1, 2.0e0, 3, 2, -0.0e0) " +
+        "for $b in (2, 0, 5) " +
+        "for $c in $a[. = $b] return string($c)",
+        "2 2 -0", JOIN);
+    check("let $a := (<a>1</a>, <a>2.0</a>, <a>02</a>) " +
+        "for $b in (2, 1) " +
+        "for $c in $a[. = $b] return string($c)",
+        "2.0 02 1", JOIN);
+    check("let $a := (1, 2, 3) " +
+        "for $b in (<b>2.0</b>, <b>3</b>) " +
+        "for $c in $a[. = $b] return string($c)",
+        "2 3", JOIN);
+    check("let $a := (9007199254740992, 9007199254740993) " +
+        "for $b in (9007199254740993, 1) " +
+        "for $c in $a[. = $b] return string($c)",
+        "9007199254740993", JOIN);
+    check("let $a := (1, xs:double('NaN'), 2) " +
+        "for $b in (xs:double('NaN'), 1) " +
+        "for $c in $a[. = $b] return string($c)",
+        "1", JOIN);
+  }
+
+  /** Joins on untyped values. */
+  @Test public void untyped() {
+    check("let $a := (<a>1</a>, <a>1.0</a>) " +
+        "for $b in (<b>1</b>, <b>1.0</b>) " +
+        "for $c in $a[. = $b] return string($c)",
+        "1 1.0", JOIN);
+    check("let $a := (<a>1</a>, <a>1.0</a>) " +
+        "for $b in (1, <b>1</b>) " +
+        "for $c in $a[. = $b] return string($c)",
+        "1 1.0 1", JOIN);
+  }
+
+  /** Joins with keys or probe values that cannot be hashed. */
+  @Test public void fallback() {
+    check("let $a := (xs:decimal(1), 2.0, xs:float(3)) " +
+        "for $b in (1, 2, 3) " +
+        "for $c in $a[. = $b] return string($c)",
+        "1 2 3", JOIN);
+    check("let $a := (1, 2) " +
+        "for $b in (xs:float(1), 2.0) " +
+        "for $c in $a[. = $b] return string($c)",
+        "1 2", JOIN);
+    check("declare default collation 'http://www.w3.org/2005/xpath-functions/" +
+        "collation/codepoint'; " +
+        "let $a := ('x', 'y') " +
+        "for $b in ('y', 'x') " +
+        "for $c in $a[. = $b] return string($c)",
+        "y x", JOIN);
+  }
+
+  /** Joins that raise type errors. */
+  @Test public void errors() {
+    error("let $a := (1, 2) for $b in ('1', '2') for $c in $a[. = $b] return string($c)",
+        Err.INVTYPECMP);
+    error("let $a := ('1', 2) for $b in 2 for $c in $a[. = $b] return string($c)",
+        Err.INVTYPECMP);
+    error("let $a := (<a>x</a>, <a>1</a>) for $b in 1 for $c in $a[. = $b] return string($c)",
+        Err.FUNCAST);
+  }
+
+  /** Predicates that are not rewritten. */
+  @Test public void noJoin() {
+    check("let $a := (1, 2, 3) for $b in (2, 3) for $c in $a[. > $b] return $c",
+        "3", NOJOIN);
+    check("let $a := (1, 2, 3) for $b in (2, 3) for $c in $a[$b = 2] return $c",
+        "1 2 3", NOJOIN);
+    check("for $b in (2, 3) for $c in (1, 2, 3)[. = 2] return $c",
+        "2 2", NOJOIN);
+    check("let $a := (1, 2, 3) for $b in (1, 2) for $c in $a[. = $b][1] return $c",
+        "1 2", NOJOIN);
+  }
+}
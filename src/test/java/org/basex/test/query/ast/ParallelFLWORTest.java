@@ -0,0 +1,108 @@
+package org.basex.test.query.ast;
+
+import static org.junit.Assert.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.query.util.*;
+import org.junit.*;
+
+/**
+ * Tests the parallel evaluation of FLWOR expressions.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class ParallelFLWORTest extends QueryPlanTest {
+  /** Pragma. */
+  private static final String PARALLEL = "(# basex:parallel 4 #) ";
+  /** Checks if the expression is evaluated in parallel. */
+  private static final String YES = "exists(//GFLWOR[@parallel = 4])";
+  /** Checks if the expression is evaluated sequentially. */
+  private static final String NO = "empty(//GFLWOR[@parallel])";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+  }
+
+  /** Compares the results of parallel and sequential evaluation. */
+  @Test
+  public void results() {
+    compare("for $i at $p in 1 to 1000 let $s := string($i * $i) " +
+        "where $p mod 3 = 0 return $p || ':' || $s", YES);
+    compare("for $i in 1 to 100 for $j in 1 to $i return $i * $j", YES);
+    compare("let $n := 10 for $i in 1 to 100 return <a>{ $i + $n }</a>", YES);
+    compare("for $i in 1 to 100 for tumbling window $w in 1 to $i " +
+        "start at $s when $s mod 4 = 1 return sum($w)", YES);
+    compare("for $i in 1 to 3 return $i * 2", YES);
+    compare("for $i in (1 to 3)[. > <a>3</a>] return $i * 2", YES);
+    compare("declare function local:f($i) { string-join((1 to $i) ! string()) }; " +
+        "for $i in 1 to 200 return string-length(local:f($i))", YES);
+  }
+
+  /** Expressions that are not evaluated in parallel. */
+  @Test
+  public void sequential() {
+    compare("for $i in 1 to 100 order by $i descending return $i", NO);
+    compare("for $i in 1 to 100 group by $g := $i mod 3 return sum($i)", NO);
+    compare("for $i in 1 to 100 count $c return $c", NO);
+    compare("for $i allowing empty in () return 1", NO);
+    compare("for $i in 1 to 100 return random:integer(1) * $i", NO);
+    check(PARALLEL + "{ count(for $i in 1 to 100 return <a/>) }", "100", NO);
+    check("((# basex:parallel 1 #) { for $i in 1 to 100 return $i * 2 })[1]", "2", NO);
+  }
+
+  /** Checks the identity of constructed nodes. */
+  @Test
+  public void nodes() {
+    check("let $n := " + PARALLEL + "{ for $i in 1 to 1000 return <a>{ $i }</a> } " +
+        "return (count($n/.), sum($n/.), $n[1] = 1, $n[last()] = 1000)",
+        "1000 500500 true true", YES);
+  }
+
+  /** Nested parallel expressions, which share the worker threads. */
+  @Test
+  public void nested() {
+    compare("for $i in 1 to 50 return sum(" + PARALLEL +
+        "{ for $j in 1 to $i return " + PARALLEL + "{ for $k in 1 to $j return $k } })",
+        YES);
+  }
+
+  /**
+   * Accesses a database in parallel.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void database() throws BaseXException {
+    new CreateDB(NAME, "src/test/resources/xmark.xml").execute(context);
+    compare("for $i in db:open('" + NAME + "')//item " +
+        "return $i/name || count(db:open('" + NAME + "')//*[@id = $i/@id])", YES);
+  }
+
+  /** Errors. */
+  @Test
+  public void errors() {
+    error(PARALLEL + "{ for $i in 1 to 100 return if($i = 77) " +
+        "then error() else $i }", Err.FUNERR1);
+    error("(# basex:parallel 0 #) { 1 }", Err.BASX_PRAGMA);
+    error("(# basex:parallel x #) { 1 }", Err.BASX_PRAGMA);
+  }
+
+  /**
+   * Compares the results of the parallel and sequential evaluation of a query.
+   * @param query query
+   * @param plan query on the query plan of the parallel query
+   */
+  private static void compare(final String query, final String plan) {
+    final int d = query.startsWith("declare") ? query.indexOf("; ") + 2 : 0;
+    final String parallel = query.substring(0, d) + PARALLEL + "{ " +
+        query.substring(d) + " }";
+    check(parallel, null, plan);
+    assertEquals(query(query), query(parallel));
+  }
+}
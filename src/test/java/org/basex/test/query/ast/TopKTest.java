@@ -0,0 +1,63 @@
+package org.basex.test.query.ast;
+
+import org.basex.query.util.*;
+import org.junit.*;
+
+/**
+ * Tests the evaluation of order by clauses that are followed by a position range.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class TopKTest extends QueryPlanTest {
+  /** Checks if the number of sorted tuples is limited. */
+  private static final String LIMIT = "exists(//OrderBy[@max = %])";
+  /** Checks if all tuples are sorted. */
+  private static final String NOLIMIT = "empty(//OrderBy/@max)";
+
+  /** Limits the number of sorted tuples. */
+  @Test
+  public void limit() {
+    check("(for $i in 1 to 1000 order by $i mod 100 descending, $i return $i)" +
+        "[position() <= 5]", "99 199 299 399 499", limit(5));
+    check("(for $i in 1 to 1000 stable order by $i mod 10 return $i)" +
+        "[position() = 3 to 5]", "30 40 50", limit(5));
+    check("(for $i in 1 to 1000 order by -$i return $i)[1]", "1000", limit(1));
+    check("(for $i in 1 to 1000 order by -$i return $i)[3]", "998", limit(3));
+    check("(for $i in 1 to 3 order by -$i return $i)[position() <= 10]",
+        "3 2 1", limit(10));
+    check("(for $i in 1 to 20 stable order by " +
+        "(if($i mod 2 = 0) then () else $i) empty greatest return $i)" +
+        "[position() = 9 to 12]", "17 19 2 4", limit(12));
+    check("(for $i in 1 to 1000 let $s := string($i) " +
+        "order by $s descending return $s)[position() <= 3]", "999 998 997", limit(3));
+  }
+
+  /** Sorts all tuples. */
+  @Test
+  public void noLimit() {
+    check("(for $i in 1 to 10 order by -$i return ($i, $i))[position() <= 3]",
+        "10 10 9", NOLIMIT);
+    check("(for $i in 1 to 10 order by -$i return $i[. mod 2 = 0])[position() <= 3]",
+        "10 8 6", NOLIMIT);
+    check("(for $i in 1 to 10 order by -$i count $c return $i)[position() <= 3]",
+        "10 9 8", NOLIMIT);
+    check("(for $i in 1 to 10 order by -$i return $i)[position() > 8]",
+        "2 1", NOLIMIT);
+  }
+
+  /** Reports errors raised while comparing keys. */
+  @Test
+  public void error() {
+    error("(for $i in (1, 'a', 2) order by $i return $i)[1]", Err.INVCASTEX);
+  }
+
+  /**
+   * Returns a check for the specified limit.
+   * @param max limit
+   * @return query
+   */
+  private static String limit(final int max) {
+    return LIMIT.replace("%", Integer.toString(max));
+  }
+}
@@ -0,0 +1,76 @@
+package org.basex.test.query.expr;
+
+import org.basex.query.util.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Tests for general comparisons with large sequences, which are evaluated via
+ * hash lookups.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CmpGTest extends AdvancedQueryTest {
+  /** Strings. */
+  private static final String STRINGS =
+      "let $s := (1 to 1000) ! string() ";
+  /** Numbers. */
+  private static final String NUMBERS =
+      "let $s := (1 to 999, 9007199254740993, -0.0e0, xs:double('NaN')) ";
+  /** Untyped values. */
+  private static final String UNTYPED =
+      "let $s := (1 to 1000) ! <x>{ . }</x> ";
+
+  /** Compares items with strings. */
+  @Test
+  public void strings() {
+    query(STRINGS + "return count((0 to 2000)[string() = $s])", 1000);
+    query(STRINGS + "return count((0 to 2000)[<x>{ . }</x> = $s])", 1000);
+    query(STRINGS + "return <x>5</x>/(. = $s, text() = $s, @a = $s)", "true true false");
+    query(STRINGS + "return ('a', '10', xs:anyURI('100')) = $s", true);
+    error(STRINGS + "return 1 = $s", Err.INVTYPECMP);
+    error(STRINGS + "return xs:date('2001-01-01') = $s", Err.INVTYPECMP);
+  }
+
+  /** Compares items with numbers. */
+  @Test
+  public void numbers() {
+    query(NUMBERS + "return count((0 to 2000)[. = $s])", 1000);
+    query(NUMBERS + "return count((0 to 2000)[. * 1.0e0 = $s])", 1000);
+    query(NUMBERS + "return count((0 to 2000)[xs:decimal(.) = $s])", 1000);
+    query(NUMBERS + "return (9007199254740992, 9007199254740994) = $s", false);
+    query(NUMBERS + "return 9007199254740993 = $s", true);
+    query(NUMBERS + "return 9007199254740992.0e0 = $s", true);
+    query(NUMBERS + "return xs:double('NaN') = $s", false);
+    query(NUMBERS + "return xs:float(5) = $s", true);
+    query(NUMBERS + "return <x>5.0</x> = $s", true);
+    query(NUMBERS + "return <x>-0</x> = $s", true);
+    error(NUMBERS + "return <x>a</x> = $s", Err.FUNCAST);
+    error(NUMBERS + "return 'a' = $s", Err.INVTYPECMP);
+  }
+
+  /** Compares items with untyped values. */
+  @Test
+  public void untyped() {
+    query(UNTYPED + "return count((0 to 2000)[. = $s])", 1000);
+    query(UNTYPED + "return count((0 to 2000)[string() = $s])", 1000);
+    query(UNTYPED + "return count((0 to 2000)[<x>{ . }</x> = $s])", 1000);
+    query(UNTYPED + "return (<x>1.0</x>, '1.0') = $s", false);
+    query(UNTYPED + "return 1.0 = $s", true);
+    query(UNTYPED + "return ('a', 1) = $s", true);
+    query("let $s := ((1 to 100) ! <x>{ . }</x>, <x>a</x>) return 'a' = $s", true);
+    error("let $s := ((1 to 100) ! <x>{ . }</x>, <x>a</x>) return 0 = $s", Err.FUNCAST);
+  }
+
+  /** Compares items with mixed values. */
+  @Test
+  public void mixed() {
+    query("let $s := ((1 to 100), 'a') return 1 = $s", true);
+    error("let $s := ((1 to 100), 'a') return 0 = $s", Err.INVTYPECMP);
+    query("let $s := (xs:date('2001-01-01'), 1 to 100) " +
+        "return xs:date('2001-01-01') = $s", true);
+    query("declare default collation 'http://www.w3.org/2005/xpath-functions/" +
+        "collation/codepoint'; " + STRINGS + "return '5' = $s", true);
+  }
+}
@@ -0,0 +1,116 @@
+package org.basex.test.query.expr;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.core.*;
+import org.basex.core.cmd.*;
+import org.basex.test.query.*;
+import org.junit.*;
+
+/**
+ * Tests for order by clauses, which write sorted runs to temporary files if the
+ * memory limit ({@link Prop#SORTMEMORY}) is exceeded.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class OrderByTest extends AdvancedQueryTest {
+  /** Number of tuples. */
+  private static final String N = "100000";
+
+  /**
+   * Finishes the test.
+   * @throws BaseXException database exception
+   */
+  @AfterClass
+  public static void finish() throws BaseXException {
+    new DropDB(NAME).execute(context);
+    new Set(Prop.SORTMEMORY, 0).execute(context);
+  }
+
+  /**
+   * Sorts atomic values.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void atomic() throws BaseXException {
+    compare("for $i in 1 to " + N + " stable order by $i mod 7 return $i");
+    compare("for $i in 1 to " + N + " order by $i mod 1000 descending, $i return $i");
+    compare("for $i in 1 to " + N + " let $s := string($i) order by $s return $s");
+    compare("for $i in 1 to " + N + " let $d := $i div 7 " +
+        "stable order by round($d) descending return $d");
+    compare("for $i in 1 to " + N + " let $d := xs:date('2000-01-01') + " +
+        "xs:dayTimeDuration('P' || $i mod 500 || 'D') stable order by $d return $d");
+    compare("for $i in 1 to " + N + " let $u := <a>{ $i mod 10 }</a>/text() " +
+        "stable order by data($u) return ($u, xs:float($i) div 3, $i mod 2 = 0)");
+  }
+
+  /**
+   * Sorts empty keys and NaN values.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void empty() throws BaseXException {
+    compare("for $i in 1 to " + N + " stable order by " +
+        "(if($i mod 10 = 0) then () else $i mod 100) empty greatest return $i");
+    compare("for $i in 1 to " + N + " stable order by " +
+        "(if($i mod 5 = 0) then xs:double('NaN') else $i div 3) " +
+        "descending empty least return $i");
+  }
+
+  /**
+   * Sorts strings with a collation.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void collation() throws BaseXException {
+    compare("for $i in 1 to " + N + " let $s := ('a', 'A', 'b', 'Ä')[$i mod 4 + 1] " +
+        "stable order by $s collation 'http://basex.org/collation?lang=de;" +
+        "strength=primary' return $s || $i");
+  }
+
+  /**
+   * Sorts database and constructed nodes.
+   * @throws BaseXException database exception
+   */
+  @Test
+  public void nodes() throws BaseXException {
+    final StringBuilder sb = new StringBuilder("<x>");
+    for(int i = 0; i < 20000; i++) sb.append("<a>1</a><a>0</a>");
+    new CreateDB(NAME, sb.append("</x>").toString()).execute(context);
+    compare("for $a at $p in //a stable order by $a descending return ($a, $p)");
+    compare("for $i in 1 to " + N + " let $a := <a>{ $i }</a> " +
+        "stable order by $i mod 3 return $a");
+  }
+
+  /**
+   * Compares the results of a query with and without memory limit, and checks that
+   * all temporary files have been deleted.
+   * @param query query
+   * @throws BaseXException database exception
+   */
+  private static void compare(final String query) throws BaseXException {
+    new Set(Prop.SORTMEMORY, 0).execute(context);
+    final String expected = new XQuery(query).execute(context);
+    final int files = temp();
+    new Set(Prop.SORTMEMORY, 1).execute(context);
+    assertEquals(expected, new XQuery(query).execute(context));
+    assertEquals(files, temp());
+  }
+
+  /**
+   * Returns the number of temporary files created by order by clauses.
+   * @return number of files
+   */
+  private static int temp() {
+    final String[] files = new File(Prop.TMP).list(new FilenameFilter() {
+      @Override
+      public boolean accept(final File dir, final String name) {
+        return name.startsWith("orderby");
+      }
+    });
+    return files == null ? 0 : files.length;
+  }
+}
@@ -1,7 +1,11 @@
 package org.basex.test.query.func;
 
 import static org.basex.query.func.Function.*;
+import static org.basex.util.Token.*;
 
+import java.io.*;
+
+import org.basex.io.*;
 import org.basex.query.func.*;
 import org.basex.query.util.*;
 import org.basex.test.query.*;
@@ -16,6 +20,8 @@ import org.junit.*;
 public final class FNGenTest extends AdvancedQueryTest {
   /** Text file. */
   private static final String TEXT = "src/test/resources/input.xml";
+  /** Directory with XML files. */
+  private static final String DIR = "src/test/resources/dir";
 
   /** Test method. */
   @Test
@@ -25,6 +31,39 @@ public final class FNGenTest extends AdvancedQueryTest {
     error(UNPARSED_TEXT.args(TEXT, "xyz"), Err.WHICHENC);
   }
 
+  /** Test method. */
+  @Test
+  public void collection() {
+    query(COUNT.args(COLLECTION.args(DIR)), 3);
+    query(COLLECTION.args(DIR) + "[1] is " + COLLECTION.args(DIR) + "[1]", true);
+    query(COUNT.args(" for $a in " + COLLECTION.args(DIR) + ", $b in " +
+        COLLECTION.args(DIR) + " where $a is $b return $a"), 3);
+    contains(COLLECTION.args(DIR) + "[1]/document-uri()", "input.xml");
+  }
+
+  /**
+   * Test method.
+   * @throws IOException I/O exception
+   */
+  @Test
+  public void collectionOrder() throws IOException {
+    final IOFile dir = new IOFile(sandbox(), "coll");
+    new IOFile(dir, "sub").md();
+    new IOFile(dir, "a.xml").write(token("<x><a/><b/></x>"));
+    new IOFile(dir, "sub/b.xml").write(token("<x><a/><b/></x>"));
+    final String coll = COLLECTION.args(dir.path());
+
+    // nodes of different documents are returned in document order
+    query("deep-equal(" + coll + "//b | " + coll + "//a, " +
+        "for $d in " + coll + " return $d//(a, b))", true);
+    query("(" + coll + "//b | " + coll + "//a) ! name()", "a b a b");
+    query("(" + coll + "[2]//a | " + coll + "[1]//b) ! name()", "b a");
+    query(coll + "[1] << " + coll + "[2]", true);
+    // paths of subdirectories are preserved
+    query("for $u in " + coll + "/document-uri() order by $u " +
+        "return substring-after($u, 'coll/')", "a.xml sub/b.xml");
+  }
+
   /** Test method. */
   @Test
   public void parseXML() {
@@ -5,6 +5,9 @@ import static org.junit.Assert.*;
 import java.io.*;
 
 import org.basex.*;
+import org.basex.core.*;
+import org.basex.io.in.*;
+import org.basex.server.*;
 import org.basex.util.*;
 import org.junit.*;
 
@@ -46,4 +49,80 @@ public class ClientSessionTest extends SessionTest {
       fail(Util.message(ex));
     }
   }
+
+  /** Fetches query results in batches.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetch() throws IOException {
+    for(int f = 1; f <= 4; f++) {
+      final ClientQuery query = ((ClientSession) session).query("1 to 3");
+      query.fetch(f);
+      int c = 0;
+      while(query.more()) assertEqual(++c, query.next());
+      assertEquals(3, c);
+      query.close();
+    }
+  }
+
+  /** Closes a query before all results have been fetched.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetchClose() throws IOException {
+    session.execute("create db " + NAME);
+    final ClientQuery query = ((ClientSession) session).query(
+        "db:open('" + NAME + "'), 1 to 100000000");
+    query.fetch(10);
+    assertEqual("1", query.next());
+    query.close();
+    // the database must have been unlocked
+    session.execute("drop db " + NAME);
+  }
+
+  /** Opens more cursors than transactions are allowed to run in parallel.
+   * @throws IOException I/O exception */
+  @Test
+  public void queryFetchParallel() throws IOException {
+    final ClientSession cs = (ClientSession) session;
+    cs.execute("create db " + NAME);
+    final int n = server.context.mprop.num(MainProp.PARALLEL) + 2;
+    final ClientQuery[] queries = new ClientQuery[n];
+    for(int q = 0; q < n; q++) {
+      queries[q] = cs.query("db:open('" + NAME + "'), 1 to 100000000");
+      queries[q].fetch(10);
+      assertEqual("1", queries[q].next());
+    }
+    // suspended cursors must not block other transactions
+    assertEqual("2", cs.query("1 + 1").execute());
+    final ClientSession cs2 = createClient();
+    cs2.execute("xquery db:open('" + NAME + "')");
+    cs2.close();
+    for(final ClientQuery query : queries) query.close();
+    cs.execute("drop db " + NAME);
+  }
+
+  /** Adds documents in pipelining mode.
+   * @throws IOException I/O exception */
+  @Test
+  public void pipeline() throws IOException {
+    final ClientSession cs = (ClientSession) session;
+    cs.execute("create db " + NAME);
+    cs.pipeline(true);
+    for(int i = 0; i < 1000; i++) cs.add("a" + i, new ArrayInput("<a/>"));
+    cs.pipeline(false);
+    assertEqual("1000", cs.query("count(db:open('" + NAME + "'))").execute());
+
+    // errors are only raised by the next synchronization
+    cs.pipeline(true);
+    cs.add("b", new ArrayInput("<b"));
+    cs.add("c", new ArrayInput("<c/>"));
+    assertEqual("1001", cs.query("count(db:open('" + NAME + "'))").execute());
+    try {
+      cs.sync();
+      fail("Error expected.");
+    } catch(final BaseXException ex) {
+      // expected
+    }
+    cs.pipeline(false);
+    assertEqual("1001", cs.query("count(db:open('" + NAME + "'))").execute());
+  }
 }
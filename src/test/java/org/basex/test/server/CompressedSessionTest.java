@@ -0,0 +1,30 @@
+package org.basex.test.server;
+
+import static org.basex.core.Text.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import org.basex.server.*;
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * This class tests the client/server session API with compressed communication.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class CompressedSessionTest extends ClientSessionTest {
+  /** Starts a compressed session. */
+  @Override
+  @Before
+  public void startSession() {
+    try {
+      session = new ClientSession(LOCALHOST, 9999, ADMIN, ADMIN, null, true);
+      session.setOutputStream(out);
+    } catch(final IOException ex) {
+      fail(Util.message(ex));
+    }
+  }
+}
@@ -7,7 +7,6 @@ import java.util.*;
 
 import org.basex.*;
 import org.basex.core.*;
-import org.basex.io.in.*;
 import org.basex.io.out.*;
 import org.basex.server.*;
 import org.basex.test.*;
@@ -104,10 +103,10 @@ public final class XdmInfoTest extends SandboxTest {
     }
 
     /**
-     * Executes a command and sends the result to the specified output stream.
+     * Executes a command and returns a single result item.
      * @param cmd server command
      * @param arg argument
-     * @return string
+     * @return result item
      * @throws IOException I/O exception
      */
     byte[] exec(final ServerCmd cmd, final String arg) throws IOException {
@@ -115,9 +114,11 @@ public final class XdmInfoTest extends SandboxTest {
       sout.write(cmd.code);
       send(arg);
       sout.flush();
-      final BufferInput bi = new BufferInput(sin);
-      ClientSession.receive(bi, o);
-      if(!ClientSession.ok(bi)) throw new BaseXException(bi.readString());
+      ClientSession.receive(sin, o);
+      // single result item: read end marker and success flag
+      if(sin.read() != 0 || !ClientSession.ok(sin)) {
+        throw new BaseXException(sin.readString());
+      }
       return o.toArray();
     }
   }
@@ -0,0 +1,78 @@
+package org.basex.test.util;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.basex.util.*;
+import org.junit.*;
+
+/**
+ * Class for testing the {@link LZ4} methods.
+ *
+ * @author BaseX Team 2005-12, BSD License
+ * @author Christian Gruen
+ */
+public final class LZ4Test {
+  /** Test. */
+  @Test
+  public void empty() {
+    run(new byte[0]);
+  }
+
+  /** Test. */
+  @Test
+  public void literals() {
+    run(Token.token("abc"));
+    final byte[] b = new byte[300];
+    for(int i = 0; i < b.length; i++) b[i] = (byte) i;
+    run(b);
+  }
+
+  /** Test. */
+  @Test
+  public void zeros() {
+    assertTrue(run(new byte[4096]) < 32);
+  }
+
+  /** Test. */
+  @Test
+  public void repeated() {
+    final byte[] b = new byte[4096];
+    for(int i = 0; i < b.length; i++) b[i] = (byte) (i % 7);
+    assertTrue(run(b) < 64);
+    for(int i = 0; i < b.length; i++) b[i] = (byte) (i / 16 % 3 + i % 16);
+    run(b);
+  }
+
+  /** Test. */
+  @Test
+  public void random() {
+    final Random rnd = new Random(0);
+    for(int r = 0; r < 100; r++) {
+      final byte[] b = new byte[rnd.nextInt(8192)];
+      // mix random bytes with runs and copies of previous bytes
+      for(int i = 0; i < b.length; i++) {
+        final int t = rnd.nextInt(4);
+        b[i] = (byte) (t == 0 || i < 64 ? rnd.nextInt(256) : t == 1 ? 0 :
+          b[i - 1 - rnd.nextInt(64)]);
+      }
+      run(b);
+    }
+  }
+
+  /**
+   * Compresses and decompresses the specified bytes.
+   * @param b bytes
+   * @return size of the compressed bytes
+   */
+  private static int run(final byte[] b) {
+    final byte[] packed = new byte[LZ4.max(b.length) + 3];
+    final int len = LZ4.compress(b, b.length, packed, 3);
+    assertTrue(len <= LZ4.max(b.length));
+    final byte[] unpacked = new byte[b.length];
+    assertEquals(b.length, LZ4.decompress(packed, 3, len, unpacked));
+    assertArrayEquals(b, unpacked);
+    return len;
+  }
+}